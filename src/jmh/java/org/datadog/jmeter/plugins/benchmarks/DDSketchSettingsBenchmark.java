@@ -0,0 +1,107 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettings;
+import org.datadog.jmeter.plugins.aggregation.DDSketchStatsCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost, footprint and accuracy of the sketch of one interval for every mapping and store.
+ *
+ * The score is the latency of recording the values of an interval and taking its percentiles. The estimated footprint
+ * of the sketch and the worst relative error of its percentiles against the exact ones are deterministic, they are
+ * printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DDSketchSettingsBenchmark {
+    private static final int VALUES = 10000;
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.95, 0.99, 0.999 };
+
+    @Param({"logarithmic", "cubic", "linear"})
+    public String mapping;
+
+    @Param({"unbounded_dense", "collapsing_lowest", "collapsing_highest", "sparse"})
+    public String store;
+
+    /**
+     * response_time: log-normal around 100ms with a spike of 5 minute timeouts. bytes: from a few bytes to hundreds
+     * of megabytes.
+     */
+    @Param({"response_time", "bytes"})
+    public String data;
+
+    @Param({"0.01"})
+    public double accuracy;
+
+    @Param({"2048"})
+    public int maxBins;
+
+    private DDSketchStatsCollector collector;
+    private double[] values;
+    private double[] exact;
+
+    @Setup
+    public void setup() {
+        DDSketchSettings.StoreType storeType = DDSketchSettings.StoreType.fromStringValue(store);
+        collector = new DDSketchStatsCollector(new DDSketchSettings(
+            DDSketchSettings.Mapping.fromStringValue(mapping), accuracy, storeType, storeType == DDSketchSettings.StoreType.COLLAPSING_LOWEST
+                || storeType == DDSketchSettings.StoreType.COLLAPSING_HIGHEST ? maxBins : 0));
+        Random random = new Random(42);
+        values = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            if (data.equals("bytes")) {
+                values[i] = Math.floor(Math.exp(random.nextDouble() * 20)) + 1;
+            } else {
+                values[i] = i % 200 == 0 ? 300 + random.nextDouble() : Math.exp(random.nextGaussian()) / 10;
+            }
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        exact = new double[QUANTILES.length];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            // Same rank as the sketch
+            exact[i] = sorted[(int) (QUANTILES[i] * (VALUES - 1))];
+        }
+    }
+
+    @Benchmark
+    public double[] recordInterval() {
+        collector.reset();
+        collector.addValues(values, VALUES);
+        return collector.getValuesAtQuantiles(QUANTILES);
+    }
+
+    @TearDown
+    public void report() {
+        double[] estimated = recordInterval();
+        double worst = 0;
+        for (int i = 0; i < QUANTILES.length; i++) {
+            worst = Math.max(worst, Math.abs(estimated[i] - exact[i]) / exact[i]);
+        }
+        System.out.printf("%n%s %s %s: %d bytes, worst relative error %.3f%%%n",
+            data, mapping, store, collector.estimateMemoryBytes(), worst * 100);
+    }
+}
@@ -0,0 +1,279 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.benchmarks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.apache.jmeter.samplers.SampleResult;
+import org.datadog.jmeter.plugins.aggregation.CumulativeAggregator;
+import org.datadog.jmeter.plugins.aggregation.DDSketchStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.IntervalAggregator;
+import org.datadog.jmeter.plugins.aggregation.SampleGroup;
+import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+import org.datadog.jmeter.plugins.metrics.SampleTagSetCache;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+import org.datadog.jmeter.plugins.metrics.TagSetPool;
+import org.datadog.jmeter.plugins.util.CachedRegexFilter;
+import org.datadog.jmeter.plugins.util.CommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Micro-benchmarks of the work done for every sample result in {@code DatadogBackendClient.handleSampleResults}.
+ * Each benchmark processes one sample, cycling through a small set of distinct labels and response codes as a
+ * test plan would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HotPathBenchmark {
+    private static final int DISTINCT_LABELS = 64;
+    private static final String[] RESPONSE_CODES = {"200", "201", "204", "301", "404", "500", "503"};
+    private static final String[] THREAD_GROUPS = {"Thread Group", "Checkout Users", "Browse Users"};
+    private static final int CACHE_SIZE = 10000;
+    private static final int BATCH_SIZE = 100;
+
+    private String[] labels;
+    private int index;
+
+    private Pattern samplersRegex;
+    private Pattern excludeLogsRegex;
+    private CachedRegexFilter samplersFilter;
+    private CachedRegexFilter excludeLogsFilter;
+    private CachedRegexFilter defaultSamplersFilter;
+    private CachedRegexFilter defaultExcludeLogsFilter;
+
+    private List<String> baseTags;
+    private IntervalAggregator aggregator;
+    private DatadogMetricContext[] assertionContexts;
+    private TagSet[] sampleTagSets;
+    private final TagSetPool tagSetPool = new TagSetPool(CACHE_SIZE);
+    private SampleTagSetCache sampleTagSetCache;
+    private String[][] responseCodeTags;
+    private String[] threadGroupTags;
+
+    private SampleResult[] sampleResults;
+    private CumulativeAggregator cumulativeRecordedTotal;
+    private CumulativeAggregator cumulativeMergedTotal;
+
+    @Setup
+    public void setup() {
+        labels = new String[DISTINCT_LABELS];
+        for (int i = 0; i < DISTINCT_LABELS; i++) {
+            labels[i] = "HTTP Request - /api/v1/resource" + i;
+        }
+
+        samplersRegex = Pattern.compile("^HTTP Request - /api/v\\d+/.*");
+        excludeLogsRegex = Pattern.compile("[23][0-5][0-9]");
+        samplersFilter = new CachedRegexFilter(samplersRegex, false, CACHE_SIZE);
+        excludeLogsFilter = new CachedRegexFilter(excludeLogsRegex, true, CACHE_SIZE);
+        defaultSamplersFilter = new CachedRegexFilter(Pattern.compile(""), false, CACHE_SIZE);
+        defaultExcludeLogsFilter = new CachedRegexFilter(Pattern.compile(""), true, CACHE_SIZE);
+
+        baseTags = Arrays.asList("statistics_mode:ddsketch", "test_run_id:2026-01-24t14:30:25z-myhost-a1b2c3d4",
+            "runner_host:myhost", "runner_mode:local", "runner_host_ip:192.0.2.10", "runner_host_fqdn:myhost.example.local",
+            "jmeter_version:5.6.2");
+        aggregator = new IntervalAggregator(DDSketchStatsCollector::new);
+        responseCodeTags = new String[RESPONSE_CODES.length][];
+        for (int i = 0; i < RESPONSE_CODES.length; i++) {
+            responseCodeTags[i] = new String[] {CommonUtils.sanitizeTagPair("response_code", RESPONSE_CODES[i])};
+        }
+        threadGroupTags = new String[THREAD_GROUPS.length];
+        for (int i = 0; i < THREAD_GROUPS.length; i++) {
+            threadGroupTags[i] = CommonUtils.sanitizeTagPair("thread_group", THREAD_GROUPS[i]);
+        }
+        sampleTagSetCache = new SampleTagSetCache(tagSetPool, baseTags, CACHE_SIZE);
+        assertionContexts = new DatadogMetricContext[DISTINCT_LABELS];
+        sampleTagSets = new TagSet[DISTINCT_LABELS];
+        for (int i = 0; i < DISTINCT_LABELS; i++) {
+            sampleTagSets[i] = sampleTagSet(i);
+            assertionContexts[i] = new DatadogMetricContext("jmeter.assertions_count", sampleTagSets[i]);
+        }
+
+        sampleResults = new SampleResult[DISTINCT_LABELS];
+        for (int i = 0; i < DISTINCT_LABELS; i++) {
+            sampleResults[i] = SampleResult.createTestSample(1000, 1000 + 10 * i);
+            sampleResults[i].setSampleLabel(labels[i]);
+            sampleResults[i].setSampleCount(1);
+        }
+        cumulativeRecordedTotal = new CumulativeAggregator(DDSketchStatsCollector::new, false);
+        cumulativeMergedTotal = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+            new CumulativeAggregator.Settings().recordTotal(false));
+    }
+
+    private List<String> sampleTags(int i) {
+        return CommonUtils.combineTags(baseTags,
+            CommonUtils.sanitizeTagPair("response_code", RESPONSE_CODES[i % RESPONSE_CODES.length]),
+            CommonUtils.sanitizeTagPair("sample_label", labels[i]),
+            CommonUtils.sanitizeTagPair("thread_group", THREAD_GROUPS[i % THREAD_GROUPS.length]),
+            "result:ok");
+    }
+
+    /**
+     * The tag set of a sample, as in {@code DatadogBackendClient.extractIntervalMetrics}.
+     */
+    private TagSet sampleTagSet(int i) {
+        return sampleTagSetCache.get(responseCodeTags[i % RESPONSE_CODES.length], labels[i],
+            threadGroupTags[i % THREAD_GROUPS.length], true);
+    }
+
+    private int next() {
+        index = (index + 1) % DISTINCT_LABELS;
+        return index;
+    }
+
+    @Benchmark
+    public boolean filterSampleRegex() {
+        int i = next();
+        return samplersRegex.matcher(labels[i]).find()
+            && !excludeLogsRegex.matcher(RESPONSE_CODES[i % RESPONSE_CODES.length]).matches();
+    }
+
+    @Benchmark
+    public boolean filterSampleCached() {
+        int i = next();
+        return samplersFilter.test(labels[i])
+            && !excludeLogsFilter.test(RESPONSE_CODES[i % RESPONSE_CODES.length]);
+    }
+
+    @Benchmark
+    public boolean filterSampleDefaultConfig() {
+        int i = next();
+        return defaultSamplersFilter.test(labels[i])
+            && !defaultExcludeLogsFilter.test(RESPONSE_CODES[i % RESPONSE_CODES.length]);
+    }
+
+    @Benchmark
+    public void sanitizeSampleTags(Blackhole blackhole) {
+        int i = next();
+        blackhole.consume(CommonUtils.sanitizeTagPair("response_code", RESPONSE_CODES[i % RESPONSE_CODES.length]));
+        blackhole.consume(CommonUtils.sanitizeTagPair("sample_label", labels[i]));
+        blackhole.consume(CommonUtils.sanitizeTagPair("thread_group", THREAD_GROUPS[i % THREAD_GROUPS.length]));
+    }
+
+    /**
+     * The tag set of one sample, built from its tags then interned. Run with {@code -prof gc} to compare the
+     * allocations with {@link #cachedSampleTags()}.
+     */
+    @Benchmark
+    public TagSet internSampleTags() {
+        return tagSetPool.intern(sampleTags(next()));
+    }
+
+    /**
+     * The tag set of one sample, looked up by its memoized tags.
+     */
+    @Benchmark
+    public TagSet cachedSampleTags() {
+        return sampleTagSet(next());
+    }
+
+    /**
+     * The interval metrics recorded for one sample, as in {@code DatadogBackendClient.extractIntervalMetrics}.
+     */
+    @Benchmark
+    public void aggregateSample() {
+        int i = next();
+        TagSet tags = sampleTagSet(i);
+        aggregator.recordSample(tags, 1, 0.125, 124, 12345, 0.012);
+    }
+
+    /**
+     * Same as {@link #aggregateSample()}, one metric at a time.
+     */
+    @Benchmark
+    public void aggregateSampleMetricByMetric() {
+        int i = next();
+        TagSet tags = sampleTagSet(i);
+        aggregator.incrementCounter("jmeter.responses_count", tags, 1);
+        aggregator.histogram("jmeter.response_time", tags, 0.125);
+        aggregator.histogram("jmeter.bytes_sent", tags, 124);
+        aggregator.incrementCounter("jmeter.bytes_sent.total", tags, 124);
+        aggregator.histogram("jmeter.bytes_received", tags, 12345);
+        aggregator.incrementCounter("jmeter.bytes_received.total", tags, 12345);
+        aggregator.histogram("jmeter.latency", tags, 0.012);
+    }
+
+    /**
+     * The interval metrics recorded for a list of {@value #BATCH_SIZE} samples, one sample at a time.
+     */
+    @Benchmark
+    public void aggregateBatchPerSample() {
+        for (int n = 0; n < BATCH_SIZE; n++) {
+            int i = next() % 8;
+            aggregator.recordSample(sampleTagSet(i), 1, 0.125, 124, 12345, 0.012);
+        }
+    }
+
+    /**
+     * Same as {@link #aggregateBatchPerSample()}, grouping the samples by tag set first as in
+     * {@code DatadogBackendClient.handleSampleResults}.
+     */
+    @Benchmark
+    public void aggregateBatchGrouped() {
+        Map<TagSet, SampleGroup> groups = new LinkedHashMap<>();
+        for (int n = 0; n < BATCH_SIZE; n++) {
+            int i = next() % 8;
+            groups.computeIfAbsent(sampleTagSet(i), k -> new SampleGroup()).add(1, 0.125, 124, 12345, 0.012);
+        }
+        for (Map.Entry<TagSet, SampleGroup> entry : groups.entrySet()) {
+            aggregator.recordSamples(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * A counter increment on an existing context, as for assertion metrics. Run with {@code -prof gc} to see the
+     * allocations per increment.
+     */
+    @Benchmark
+    public void incrementCounter() {
+        aggregator.incrementCounter(assertionContexts[next()], 1);
+    }
+
+    /**
+     * A whole interval: one sample for each label, then a flush. Run with {@code -prof gc} to see the allocations
+     * around the flush boundary.
+     */
+    @Benchmark
+    public void aggregateAndFlushInterval(Blackhole blackhole) {
+        for (int i = 0; i < DISTINCT_LABELS; i++) {
+            aggregator.recordSample(sampleTagSets[i], 1, 0.125, 124, 12345, 0.012);
+        }
+        blackhole.consume(aggregator.flushMetrics());
+    }
+
+    /**
+     * The cumulative metrics recorded for one sample, also recording it into the total.
+     */
+    @Benchmark
+    public void cumulativeSampleRecordedTotal() {
+        cumulativeRecordedTotal.addSample(sampleResults[next()]);
+    }
+
+    /**
+     * Same as {@link #cumulativeSampleRecordedTotal()}, the total being merged from the labels when metrics are built.
+     */
+    @Benchmark
+    public void cumulativeSampleMergedTotal() {
+        cumulativeMergedTotal.addSample(sampleResults[next()]);
+    }
+}
@@ -0,0 +1,102 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile.EstimationType;
+import org.datadog.jmeter.plugins.aggregation.AggregateReportStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.DDSketchStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.DashboardCompatibleStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.StatsCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Latency of building the snapshots of every label, as done for cumulative metrics at every flush.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    private static final int LABELS = 1000;
+    private static final int UPDATES = 100;
+
+    @Param({"ddsketch", "aggregate_report", "dashboard"})
+    public String mode;
+
+    /**
+     * Values per label. Dashboard windows hold up to 20000 values.
+     */
+    @Param({"20000"})
+    public int values;
+
+    private StatsCollector[] collectors;
+    /**
+     * New values added to every label between two snapshots.
+     */
+    private double[] updates;
+
+    @Setup
+    public void setup() {
+        Supplier<StatsCollector> factory;
+        switch (mode) {
+            case "ddsketch":
+                factory = DDSketchStatsCollector::new;
+                break;
+            case "aggregate_report":
+                factory = AggregateReportStatsCollector::new;
+                break;
+            default:
+                factory = () -> new DashboardCompatibleStatsCollector(20000, EstimationType.LEGACY);
+        }
+        Random random = new Random(42);
+        collectors = new StatsCollector[LABELS];
+        for (int i = 0; i < LABELS; i++) {
+            collectors[i] = factory.get();
+            for (int j = 0; j < values; j++) {
+                // Log-normal response times around 100ms
+                collectors[i].addValue(Math.exp(random.nextGaussian() * 0.5) / 10);
+            }
+        }
+        updates = new double[UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            updates[i] = Math.exp(random.nextGaussian() * 0.5) / 10;
+        }
+    }
+
+    @Benchmark
+    public void snapshotAllLabels(Blackhole blackhole) {
+        for (StatsCollector collector : collectors) {
+            blackhole.consume(collector.getSnapshot());
+        }
+    }
+
+    /**
+     * A few values added to every label since the previous flush, so windows have changed.
+     */
+    @Benchmark
+    public void updateAndSnapshotAllLabels(Blackhole blackhole) {
+        for (StatsCollector collector : collectors) {
+            collector.addValues(updates, UPDATES);
+            blackhole.consume(collector.getSnapshot());
+        }
+    }
+}
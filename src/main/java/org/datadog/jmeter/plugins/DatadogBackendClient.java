@@ -9,15 +9,16 @@ import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import net.minidev.json.JSONObject;
 import org.apache.jmeter.assertions.AssertionResult;
@@ -28,15 +29,31 @@ import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
 import org.apache.jmeter.visualizers.backend.UserMetric;
+import org.datadog.jmeter.plugins.aggregation.AggregateReportStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.CardinalityGovernor;
 import org.datadog.jmeter.plugins.aggregation.CumulativeAggregator;
 import org.datadog.jmeter.plugins.aggregation.IntervalAggregator;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettings;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettingsByFamily;
 import org.datadog.jmeter.plugins.aggregation.DDSketchStatsCollector;
 import org.datadog.jmeter.plugins.aggregation.DashboardCompatibleStatsCollector;
-import org.datadog.jmeter.plugins.aggregation.JmeterCompatibleStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.EventTimeAggregator;
+import org.datadog.jmeter.plugins.aggregation.MetricFamily;
+import org.datadog.jmeter.plugins.aggregation.PercentilesByFamily;
+import org.datadog.jmeter.plugins.aggregation.SampleGroup;
 import org.datadog.jmeter.plugins.aggregation.StatsCollector;
+import org.datadog.jmeter.plugins.aggregation.StatsFactoryByFamily;
 import org.datadog.jmeter.plugins.exceptions.DatadogApiException;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.SampleTagSetCache;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+import org.datadog.jmeter.plugins.metrics.TagSetPool;
+import org.datadog.jmeter.plugins.util.AlignedScheduler;
+import org.datadog.jmeter.plugins.util.BoundedCache;
+import org.datadog.jmeter.plugins.util.CachedRegexFilter;
 import org.datadog.jmeter.plugins.util.CommonUtils;
+import org.datadog.jmeter.plugins.util.LabelNormalizer;
+import org.datadog.jmeter.plugins.util.ResponseCodeTagger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +62,7 @@ import org.slf4j.LoggerFactory;
  * to Datadog.
  */
 @SuppressWarnings("unused")
-public class DatadogBackendClient extends AbstractBackendListenerClient implements Runnable {
+public class DatadogBackendClient extends AbstractBackendListenerClient {
 
     /**
      * The logger. Anything written with it appears on JMeter console tab.
@@ -73,10 +90,16 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
     /**
      * An instance of {@link IntervalAggregator}.
      * Instantiated upon creation of the DatadogBackendClient class. Aggregates metrics, flushes them and resets them at every interval.
-     * Flushing occurs at a fixed schedule rate, @see {@link #timerHandle} and {@link #METRICS_SEND_INTERVAL_SECONDS}.
+     * Flushed by {@link #intervalSchedule} on every wall-clock multiple of {@link #METRICS_SEND_INTERVAL_SECONDS}.
      */
     private IntervalAggregator intervalAggregator;
 
+    /**
+     * Aggregates the sample and assertion metrics by the interval the samples ended in, when the interval time mode
+     * is event. Null otherwise, in which case they go to {@link #intervalAggregator}.
+     */
+    private EventTimeAggregator eventTimeAggregator;
+
     /**
      * Cumulative aggregator for computing cumulative metrics per label and total.
      * These metrics are sent periodically during the test and at the end. The metrics are only reset at the end of the test.
@@ -89,6 +112,53 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
      */
     private List<JSONObject> logsBuffer = new ArrayList<>();
 
+    /**
+     * Rewrites sample labels before they are used as tags. Instantiated during the test set up phase.
+     */
+    private LabelNormalizer labelNormalizer = LabelNormalizer.IDENTITY;
+
+    /**
+     * The interval metrics and tags recorded for every sample result. Instantiated during the test set up phase.
+     */
+    private RecordingPlan recordingPlan = RecordingPlan.ALL;
+
+    /**
+     * Canonical tag sets of the interval and assertion metrics of the current test, cleared when it ends.
+     */
+    private final TagSetPool tagSetPool = new TagSetPool(TAG_SET_POOL_SIZE);
+
+    /**
+     * Canonical tag sets of the interval sample metrics of the current test, by the memoized tags of each sample.
+     * Instantiated during the test set up phase, cleared when the test ends.
+     */
+    private SampleTagSetCache sampleTagSets;
+
+    /**
+     * Memoized response code tags of the interval metrics. Instantiated during the test set up phase.
+     */
+    private ResponseCodeTagger responseCodeTagger;
+
+    /**
+     * Memoized {@link DatadogConfiguration#getSamplersRegex()} decisions, keyed by sample label.
+     */
+    private CachedRegexFilter samplersFilter;
+
+    /**
+     * Memoized {@link DatadogConfiguration#getExcludeLogsResponseCodeRegex()} decisions, keyed by response code.
+     */
+    private CachedRegexFilter excludeLogsFilter;
+
+    /**
+     * Thread group of each JMeter thread, keyed by thread name. Cleared whenever threads finish so that it only holds
+     * the live threads. Bounded by {@link #THREAD_GROUP_CACHE_SIZE} in case thread names aren't reused.
+     */
+    private final BoundedCache<String, ThreadGroupTag> threadGroups = new BoundedCache<>(THREAD_GROUP_CACHE_SIZE);
+
+    /**
+     * Number of finished threads when {@link #threadGroups} was last cleared.
+     */
+    private int lastFinishedThreads = 0;
+
 
     /**
      * How often to send metrics (in seconds). During this interval metrics are aggregated (i.e multiple counts values are added together, gauge
@@ -97,24 +167,67 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
     private static final long METRICS_SEND_INTERVAL_SECONDS = JMeterUtils.getPropDefault("datadog.send_interval", 10);
 
     /**
-     * Used to schedule flushing of metrics every {@link #METRICS_SEND_INTERVAL_SECONDS} seconds.
+     * Runs {@link #intervalSchedule}, which flushes the interval metrics.
      */
     private ScheduledExecutorService scheduler;
 
-    private long testStartTimestamp;
+    /**
+     * Flushes the interval metrics on wall-clock multiples of {@link #METRICS_SEND_INTERVAL_SECONDS}, so that the
+     * intervals of all the runners of a distributed test line up.
+     */
+    private AlignedScheduler intervalSchedule;
 
     /**
-     * The resulting future object after scheduling. Keeping the reference as an instance variable to be able to cancel it.
+     * How often to send cumulative metrics (in seconds). Cumulative statistics change little from one interval to the
+     * next while their percentiles are the most expensive to compute, so they can be sent less often than the interval
+     * metrics. Defaults to {@link #METRICS_SEND_INTERVAL_SECONDS}.
      */
-    private ScheduledFuture<?> timerHandle;
+    private static final long CUMULATIVE_SEND_INTERVAL_SECONDS = JMeterUtils.getPropDefault(
+        "datadog.cumulative_send_interval", (int) METRICS_SEND_INTERVAL_SECONDS);
 
     /**
-     * Calls at a fixed schedule and sends metrics to Datadog.
+     * Runs {@link #cumulativeSchedule}, on its own thread so that building the cumulative metrics never delays the
+     * interval metrics.
      */
-    @Override
-    public void run() {
-        sendMetrics();
-    }
+    private ScheduledExecutorService cumulativeScheduler;
+
+    /**
+     * Sends the cumulative metrics on wall-clock multiples of {@link #CUMULATIVE_SEND_INTERVAL_SECONDS}.
+     */
+    private AlignedScheduler cumulativeSchedule;
+
+    /**
+     * Maximum number of distinct sample labels whose normalized form is memoized.
+     */
+    private static final int LABEL_CACHE_SIZE = JMeterUtils.getPropDefault("datadog.label_cache_size", 10000);
+
+    /**
+     * Maximum number of distinct sample labels and response codes whose filtering decision is memoized.
+     */
+    private static final int FILTER_CACHE_SIZE = JMeterUtils.getPropDefault("datadog.filter_cache_size", 10000);
+
+    /**
+     * Maximum number of thread names whose thread group is memoized.
+     */
+    private static final int THREAD_GROUP_CACHE_SIZE = JMeterUtils.getPropDefault("datadog.thread_group_cache_size", 10000);
+
+    /**
+     * Maximum number of distinct response codes whose tags are memoized.
+     */
+    private static final int RESPONSE_CODE_CACHE_SIZE = JMeterUtils.getPropDefault("datadog.response_code_cache_size", 10000);
+
+    /**
+     * Maximum number of canonical tag sets of the interval metrics, see {@link TagSetPool}.
+     */
+    private static final int TAG_SET_POOL_SIZE = JMeterUtils.getPropDefault("datadog.tag_set_pool_size", 100000);
+
+    /**
+     * Number of consecutive intervals without updates after which the histogram collectors of a context are released.
+     */
+    private static final int CONTEXT_IDLE_INTERVALS = JMeterUtils.getPropDefault(
+        "datadog.context_idle_intervals", IntervalAggregator.DEFAULT_MAX_IDLE_INTERVALS);
+
+    private long testStartTimestamp;
 
     /**
      * Used by JMeter to know the list of parameters to show in the UI.
@@ -143,37 +256,124 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
             throw new DatadogApiException("Invalid apiKey");
         }
 
-        scheduler = Executors.newScheduledThreadPool(1);
-        this.timerHandle = scheduler.scheduleAtFixedRate(this, METRICS_SEND_INTERVAL_SECONDS, METRICS_SEND_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        // Choose StatsCollector implementation based on configuration, for each metric family
+        DDSketchSettingsByFamily sketchSettings = configuration.getDDSketchSettings();
+        StatsFactoryByFamily statsFactories = new StatsFactoryByFamily(
+            statsFactory(configuration.getStatisticsCalculationMode(), DDSketchSettings.DEFAULT),
+            family -> statsFactory(configuration.getStatisticsMode(family), sketchSettings.forFamily(family))
+        );
 
-        // Choose StatsCollector implementation based on configuration
-        Supplier<StatsCollector> statsFactory;
+        // Cumulative metrics only aggregate the response time
+        StatisticsMode cumulativeMode = configuration.getStatisticsMode(MetricFamily.RESPONSE_TIME);
         boolean countSubsamplesAsSingle;
-        switch (configuration.getStatisticsCalculationMode()) {
-            case DDSKETCH:
-                statsFactory = DDSketchStatsCollector::new;
-                countSubsamplesAsSingle = false;
-                break;
+        // Only the dashboard's sliding windows can't be merged into an exact total
+        boolean recordCumulativeTotal;
+        switch (cumulativeMode) {
             case DASHBOARD:
-                statsFactory = DashboardCompatibleStatsCollector::new;
                 countSubsamplesAsSingle = true;
+                recordCumulativeTotal = true;
                 break;
+            case DDSKETCH:
             case AGGREGATE_REPORT:
-                statsFactory = JmeterCompatibleStatsCollector::new;
                 countSubsamplesAsSingle = false;
+                recordCumulativeTotal = false;
                 break;
             default:
-                throw new IllegalStateException("Unknown statistics mode: " + configuration.getStatisticsCalculationMode());
+                throw new IllegalStateException("Unknown statistics mode: " + cumulativeMode);
         }
 
-        this.intervalAggregator = new IntervalAggregator(statsFactory);
-        this.cumulativeAggregator = new CumulativeAggregator(statsFactory, countSubsamplesAsSingle);
+        this.samplersFilter = new CachedRegexFilter(configuration.getSamplersRegex(), false, FILTER_CACHE_SIZE);
+        this.excludeLogsFilter = new CachedRegexFilter(configuration.getExcludeLogsResponseCodeRegex(), true, FILTER_CACHE_SIZE);
+        this.labelNormalizer = new LabelNormalizer(
+            configuration.getLabelRewriteRules(),
+            configuration.shouldTemplateLabelPaths(),
+            configuration.getLabelMaxLength(),
+            LABEL_CACHE_SIZE
+        );
+
+        this.recordingPlan = configuration.getRecordingPlan();
+        this.responseCodeTagger = new ResponseCodeTagger(
+            configuration.getResponseCodeTagging(),
+            configuration.getResponseCodeAllowList(),
+            RESPONSE_CODE_CACHE_SIZE
+        );
+        this.sampleTagSets = new SampleTagSetCache(this.tagSetPool, this.customTagsWithRunner, TAG_SET_POOL_SIZE);
+
+        PercentilesByFamily percentiles = configuration.getHistogramPercentiles();
+        // Every aggregator has its own limit on the number of contexts per interval
+        Supplier<IntervalAggregator> intervalAggregators = () -> new IntervalAggregator(statsFactories,
+            new IntervalAggregator.Settings()
+                .governor(createGovernor())
+                .maxIdleIntervals(CONTEXT_IDLE_INTERVALS)
+                .percentiles(percentiles)
+                .families(recordingPlan.getFamilies()));
+        this.intervalAggregator = intervalAggregators.get();
+        if (configuration.getIntervalTimeMode() == IntervalTimeMode.EVENT) {
+            this.eventTimeAggregator = new EventTimeAggregator(
+                TimeUnit.SECONDS.toMillis(METRICS_SEND_INTERVAL_SECONDS),
+                TimeUnit.SECONDS.toMillis(configuration.getAllowedLatenessSeconds()),
+                this.testStartTimestamp,
+                intervalAggregators
+            );
+        }
+        this.cumulativeAggregator = new CumulativeAggregator(
+            statsFactories.forFamily(MetricFamily.RESPONSE_TIME),
+            countSubsamplesAsSingle,
+            new CumulativeAggregator.Settings()
+                .budget(configuration.getCumulativeMaxLabels(), configuration.getCumulativeMaxMemoryMb() * 1024L * 1024L)
+                .recordTotal(recordCumulativeTotal)
+                .responseTimePercentiles(percentiles.forFamily(MetricFamily.RESPONSE_TIME))
+                .heartbeatIntervals(configuration.getCumulativeHeartbeatIntervals())
+                .throughputLatenessSeconds(configuration.getAllowedLatenessSeconds())
+        );
         
+        scheduler = Executors.newScheduledThreadPool(1);
+        this.intervalSchedule = new AlignedScheduler(scheduler, TimeUnit.SECONDS.toMillis(METRICS_SEND_INTERVAL_SECONDS),
+            System::currentTimeMillis, boundary -> sendMetrics(boundary, false));
+        this.intervalSchedule.start();
+        cumulativeScheduler = Executors.newScheduledThreadPool(1);
+        this.cumulativeSchedule = new AlignedScheduler(cumulativeScheduler, TimeUnit.SECONDS.toMillis(CUMULATIVE_SEND_INTERVAL_SECONDS),
+            System::currentTimeMillis, this::sendCumulativeMetrics);
+        this.cumulativeSchedule.start();
+
         submitIntegrationEvent("JMeter Test Started", "info");
         
         super.setupTest(context);
     }
 
+    /**
+     * @return the limit on the number of contexts of an interval aggregator, or null for unlimited
+     */
+    private CardinalityGovernor createGovernor() {
+        if (configuration.getMaxContextsPerInterval() == 0) {
+            return null;
+        }
+        return new CardinalityGovernor(
+            configuration.getMaxContextsPerInterval(),
+            configuration.getContextOverflowMode(),
+            configuration.getContextOverflowTags(),
+            this.customTagsWithRunner
+        );
+    }
+
+    /**
+     * @param mode the statistics mode
+     * @param sketchSettings the settings of the sketches, in ddsketch mode
+     * @return the factory of the collectors of the given mode
+     */
+    private static Supplier<StatsCollector> statsFactory(StatisticsMode mode, DDSketchSettings sketchSettings) {
+        switch (mode) {
+            case DDSKETCH:
+                return () -> new DDSketchStatsCollector(sketchSettings);
+            case DASHBOARD:
+                return DashboardCompatibleStatsCollector::new;
+            case AGGREGATE_REPORT:
+                return AggregateReportStatsCollector::new;
+            default:
+                throw new IllegalStateException("Unknown statistics mode: " + mode);
+        }
+    }
+
     /**
      * Main entry point, this method is called when new results are computed.
      * @param list The results to parse.
@@ -181,13 +381,32 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
      */
     @Override
     public void handleSampleResults(List<SampleResult> list, BackendListenerContext backendListenerContext) {
+        SampleBatch batch = new SampleBatch();
         for (SampleResult sampleResult : list) {
-            Matcher matcher = configuration.getSamplersRegex().matcher(sampleResult.getSampleLabel());
-            if(!matcher.find()) {
+            if(!samplersFilter.test(sampleResult.getSampleLabel())) {
                 continue;
             }
-            this.extractData(sampleResult);
+            this.extractData(sampleResult, batch);
+        }
+        this.applyBatch(batch);
+    }
+
+    /**
+     * Apply the metrics accumulated for a batch of results to the aggregators, with one lock acquisition per tag set
+     * and interval for interval metrics and one for cumulative metrics.
+     * @param batch the accumulated metrics
+     */
+    private void applyBatch(SampleBatch batch) {
+        for (Map.Entry<Long, Map<TagSet, SampleGroup>> interval : batch.intervalGroups.entrySet()) {
+            for (Map.Entry<TagSet, SampleGroup> entry : interval.getValue().entrySet()) {
+                if (this.eventTimeAggregator != null) {
+                    this.eventTimeAggregator.recordSamples(interval.getKey(), entry.getKey(), entry.getValue());
+                } else {
+                    this.intervalAggregator.recordSamples(entry.getKey(), entry.getValue());
+                }
+            }
         }
+        this.cumulativeAggregator.addSamples(batch.cumulativeSamples, batch.cumulativeLabels);
     }
 
     /**
@@ -197,21 +416,26 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
      */
     @Override
     public void teardownTest(BackendListenerContext context) throws Exception {
-        this.timerHandle.cancel(false);
+        this.intervalSchedule.cancel();
+        this.cumulativeSchedule.cancel();
         this.scheduler.shutdown();
+        this.cumulativeScheduler.shutdown();
         try {
             scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            cumulativeScheduler.awaitTermination(30, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             log.error("Error waiting for end of scheduler");
             Thread.currentThread().interrupt();
         }
 
-        this.sendMetrics();
+        long now = System.currentTimeMillis();
+        this.sendMetrics(now, true);
+        this.sendCumulativeMetrics(now);
 
         submitIntegrationEvent("JMeter Test Ended", "success");
 
         if (this.cumulativeAggregator != null) {
-            List<DatadogMetric> finalMetrics = this.cumulativeAggregator.buildMetrics(
+            List<DatadogMetric> finalMetrics = this.cumulativeAggregator.buildAllMetrics(
                 CommonUtils.combineTags(this.customTagsWithRunner, "final_result:true")
             );
 
@@ -230,10 +454,7 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
                 }
             }
 
-            AtomicInteger counterFinal = new AtomicInteger();
-            finalMetrics.stream().collect(Collectors.groupingBy(it -> counterFinal.getAndIncrement() / configuration.getMetricsMaxBatchSize())).values().forEach(
-                    x -> datadogClient.submitMetrics(x)
-            );
+            submitInBatches(finalMetrics, now);
         }
 
         if (this.logsBuffer.size() > 0) {
@@ -241,9 +462,19 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
             this.logsBuffer.clear();
         }
         this.datadogClient = null;
+        this.sampleTagSets.clear();
+        this.tagSetPool.clear();
+        CommonUtils.clearSanitizedTagPairs();
         super.teardownTest(context);
     }
 
+    /**
+     * @return the number of canonical tag sets of the current test
+     */
+    int internedTagSetCount() {
+        return tagSetPool.size();
+    }
+
     private void initializeRunnerTags() {
         // Use the distributed prefix (thread-group prefix) when available.
         // JMeter sets this in distributed mode as "host:port" (or sometimes host-only).
@@ -269,8 +500,8 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
         addTagIfMissing(customTagsWithRunner, "runner_host_fqdn", JMeterUtils.getLocalHostFullName());
         addTagIfMissing(customTagsWithRunner, "jmeter_version", JMeterUtils.getJMeterVersion());
         
-        // Add statistics mode - determined once at setup and used across all metrics
-        customTagsWithRunner.add("statistics_mode:" + configuration.getStatisticsCalculationMode().getValue());
+        // Add statistics mode - the mode of the response times, which the cumulative metrics also follow
+        customTagsWithRunner.add("statistics_mode:" + configuration.getStatisticsMode(MetricFamily.RESPONSE_TIME).getValue());
     }
 
     /**
@@ -310,19 +541,26 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
     }
 
     /**
-     * Called for each individual result. It calls {@link #extractIntervalMetrics(SampleResult)} and {@link #extractLogs(SampleResult)}.
+     * Called for each individual result. It calls {@link #extractIntervalMetrics(SampleResult, String, ThreadGroupTag, SampleBatch)} and
+     * {@link #extractLogs(SampleResult, ThreadGroupTag)}. Metrics are tagged with the normalized sample label, logs keep the raw one.
      * @param sampleResult the result
+     * @param batch accumulates the metrics of the result, applied to the aggregators once the whole list is processed
      */
-    private void extractData(SampleResult sampleResult) {
+    private void extractData(SampleResult sampleResult, SampleBatch batch) {
         UserMetric userMetrics = this.getUserMetrics();
         userMetrics.add(sampleResult);
 
-        this.cumulativeAggregator.addSample(sampleResult);
+        String label = this.labelNormalizer.normalize(sampleResult.getSampleLabel());
 
-        this.extractIntervalMetrics(sampleResult);
+        batch.cumulativeSamples.add(sampleResult);
+        batch.cumulativeLabels.add(label);
+
+        ThreadGroupTag threadGroup = this.threadGroups.get(sampleResult.getThreadName(), ThreadGroupTag::fromThreadName);
+
+        this.extractIntervalMetrics(sampleResult, label, threadGroup, batch);
 
         if(configuration.shouldSendResultsAsLogs() && !shouldExcludeSampleResultAsLogs(sampleResult)) {
-            this.extractLogs(sampleResult);
+            this.extractLogs(sampleResult, threadGroup);
 
             if (logsBuffer.size() >= configuration.getLogsBatchSize()) {
                 datadogClient.submitLogs(logsBuffer, this.customTagsWithRunner);
@@ -332,7 +570,7 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
 
         if(configuration.shouldIncludeSubResults()) {
             for (SampleResult subResult : sampleResult.getSubResults()) {
-                this.extractData(subResult);
+                this.extractData(subResult, batch);
             }
         }
     }
@@ -342,47 +580,50 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
      * @param sampleResult the result
      */
     private boolean shouldExcludeSampleResultAsLogs(SampleResult sampleResult) {
-        return configuration.getExcludeLogsResponseCodeRegex().matcher(sampleResult.getResponseCode()).matches();
+        return excludeLogsFilter.test(sampleResult.getResponseCode());
     }
 
     /**
      * Called for each individual result. It extracts metrics and give them to the {@link IntervalAggregator} instance for aggregation.
      * @param sampleResult the result
+     * @param label the normalized sample label
+     * @param threadGroup the thread group of the thread that produced the result
+     * @param batch accumulates the metrics of the result
      */
-    private void extractIntervalMetrics(SampleResult sampleResult) {
-        String resultStatus = sampleResult.isSuccessful() ? "ok" : "ko";
-
-        String threadGroup = CommonUtils.parseThreadGroup(sampleResult.getThreadName());
+    private void extractIntervalMetrics(SampleResult sampleResult, String label, ThreadGroupTag threadGroup, SampleBatch batch) {
+        TagSet allTags = sampleTagSets.get(
+            recordingPlan.isTagged(RecordingPlan.Tag.RESPONSE_CODE) ? responseCodeTagger.tags(sampleResult.getResponseCode()) : null,
+            label,
+            recordingPlan.isTagged(RecordingPlan.Tag.THREAD_GROUP) ? threadGroup.tag : null,
+            sampleResult.isSuccessful()
+        );
 
-        List<String> allTags = CommonUtils.combineTags(this.customTagsWithRunner,
-            CommonUtils.sanitizeTagPair("response_code", sampleResult.getResponseCode()),
-            CommonUtils.sanitizeTagPair("sample_label", sampleResult.getSampleLabel()),
-            CommonUtils.sanitizeTagPair("thread_group", threadGroup),
-            "result:" + resultStatus
+        long responses = sampleResult.isSuccessful()
+            ? sampleResult.getSampleCount() - sampleResult.getErrorCount()
+            : sampleResult.getErrorCount();
+
+        // In processing time mode, all the samples of the batch go to the current interval
+        long interval = this.eventTimeAggregator != null ? this.eventTimeAggregator.intervalStart(sampleResult.getEndTime()) : 0;
+        batch.groupsOf(interval).computeIfAbsent(allTags, k -> new SampleGroup(recordingPlan.getFamilies())).add(
+            responses,
+            sampleResult.getTime() / 1000f,
+            sampleResult.getSentBytes(),
+            sampleResult.getBytesAsLong(),
+            sampleResult.getLatency() / 1000f
         );
 
-        if(sampleResult.isSuccessful()) {
-            intervalAggregator.incrementCounter("jmeter.responses_count", allTags, sampleResult.getSampleCount() - sampleResult.getErrorCount());
-        } else {
-            intervalAggregator.incrementCounter("jmeter.responses_count", allTags, sampleResult.getErrorCount());
+        if (recordingPlan.recordsAssertions()) {
+            extractAssertionMetrics(sampleResult, label, threadGroup);
         }
-
-        intervalAggregator.histogram("jmeter.response_time", allTags, sampleResult.getTime() / 1000f);
-        intervalAggregator.histogram("jmeter.bytes_sent", allTags, sampleResult.getSentBytes());
-        intervalAggregator.incrementCounter("jmeter.bytes_sent.total", allTags, sampleResult.getSentBytes());
-        intervalAggregator.histogram("jmeter.bytes_received", allTags, sampleResult.getBytesAsLong());
-        intervalAggregator.incrementCounter("jmeter.bytes_received.total", allTags, sampleResult.getBytesAsLong());
-        intervalAggregator.histogram("jmeter.latency", allTags, sampleResult.getLatency() / 1000f);
-
-        extractAssertionMetrics(sampleResult, threadGroup);
     }
 
     /**
      * Extracts assertion metrics from a sample result and adds them to the interval aggregator.
      * @param sampleResult the sample result containing assertions
-     * @param threadGroup the thread group name
+     * @param label the normalized sample label
+     * @param threadGroup the thread group of the thread that produced the result
      */
-    private void extractAssertionMetrics(SampleResult sampleResult, String threadGroup) {
+    private void extractAssertionMetrics(SampleResult sampleResult, String label, ThreadGroupTag threadGroup) {
         AssertionResult[] assertions = sampleResult.getAssertionResults();
         for (AssertionResult assertion : assertions) {
             String assertionName = assertion.getName();
@@ -390,36 +631,49 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
                 assertionName = "unnamed";
             }
             
-            List<String> assertionTags = CommonUtils.combineTags(this.customTagsWithRunner,
-                CommonUtils.sanitizeTagPair("assertion_name", assertionName),
-                CommonUtils.sanitizeTagPair("sample_label", sampleResult.getSampleLabel()),
-                CommonUtils.sanitizeTagPair("thread_group", threadGroup)
-            );
+            List<String> tags = new ArrayList<>(3 + this.customTagsWithRunner.size());
+            if (recordingPlan.isTagged(RecordingPlan.Tag.ASSERTION_NAME)) {
+                tags.add(CommonUtils.sanitizeTagPair("assertion_name", assertionName));
+            }
+            tags.add(CommonUtils.sanitizeTagPair("sample_label", label));
+            if (recordingPlan.isTagged(RecordingPlan.Tag.THREAD_GROUP)) {
+                tags.add(threadGroup.tag);
+            }
+            tags.addAll(this.customTagsWithRunner);
+            TagSet assertionTags = tagSetPool.intern(tags);
 
-            intervalAggregator.incrementCounter("jmeter.assertions.count", assertionTags, 1);
+            incrementAssertionCounter(sampleResult, "jmeter.assertions.count", assertionTags);
             if (assertion.isFailure()) {
-                intervalAggregator.incrementCounter("jmeter.assertions.failed", assertionTags, 1);
+                incrementAssertionCounter(sampleResult, "jmeter.assertions.failed", assertionTags);
             } else if (assertion.isError()) {
-                intervalAggregator.incrementCounter("jmeter.assertions.error", assertionTags, 1);
+                incrementAssertionCounter(sampleResult, "jmeter.assertions.error", assertionTags);
             }
         }
     }
 
+    private void incrementAssertionCounter(SampleResult sampleResult, String name, TagSet tags) {
+        if (this.eventTimeAggregator != null) {
+            this.eventTimeAggregator.incrementCounter(sampleResult.getEndTime(), name, tags, 1);
+        } else {
+            this.intervalAggregator.incrementCounter(name, tags, 1);
+        }
+    }
+
     /**
      * Called for each individual result. It extracts logs and append them to the {@link #logsBuffer} buffer.
      * @param sampleResult the result
+     * @param threadGroup the thread group of the thread that produced the result
      */
-    private void extractLogs(SampleResult sampleResult) {
+    private void extractLogs(SampleResult sampleResult, ThreadGroupTag threadGroup) {
         JSONObject payload = new JSONObject();
 
         String threadName = sampleResult.getThreadName();
-        String threadGroup = CommonUtils.parseThreadGroup(threadName);
 
         if(sampleResult instanceof HTTPSampleResult) {
             payload.put("http_method", ((HTTPSampleResult) sampleResult).getHTTPMethod());
         }
         payload.put("thread_name", threadName);
-        payload.put("thread_group", threadGroup);
+        payload.put("thread_group", threadGroup.name);
         payload.put("sample_start_time", (double) sampleResult.getStartTime());
         payload.put("sample_end_time", (double) sampleResult.getEndTime());
         payload.put("load_time", (double) sampleResult.getTime());
@@ -463,27 +717,75 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
     }
 
     /**
-     * Called on a fixed schedule. Resets the aggregator, and sends all metrics to Datadog in batches.
+     * Called on every interval boundary. Resets the interval aggregator, and sends its metrics to Datadog in batches.
+     * The metrics aggregate the interval that ends at the boundary and are timestamped with its start, so that they
+     * land in the same rollup bucket for every runner.
+     *
+     * In event time mode, the sample metrics of the intervals that ended before the allowed lateness are sent as well,
+     * each timestamped with the start of its interval, and the number of late samples, if any, is counted.
+     * @param boundaryMillis the end of the interval, or the current time when the test ends in the middle of one
+     * @param lastFlush whether the test ended, in which case all the intervals are sent without waiting for late samples
      */
-    private void sendMetrics() {
+    private void sendMetrics(long boundaryMillis, boolean lastFlush) {
         this.addGlobalMetrics();
+        this.evictFinishedThreads();
+
+        if (this.eventTimeAggregator != null) {
+            SortedMap<Long, List<DatadogMetric>> intervals = lastFlush
+                ? this.eventTimeAggregator.flushAllMetrics()
+                : this.eventTimeAggregator.flushMetrics(boundaryMillis);
+            for (Map.Entry<Long, List<DatadogMetric>> interval : intervals.entrySet()) {
+                submitInBatches(interval.getValue(), interval.getKey());
+            }
+            long lateSamples = this.eventTimeAggregator.drainLateSamples();
+            // Without late samples, don't create a context that would only send zeros
+            if (lateSamples > 0) {
+                intervalAggregator.incrementCounter("jmeter.samples.late", this.customTagsWithRunner, lateSamples);
+            }
+        }
 
-        List<DatadogMetric> metrics = intervalAggregator.flushMetrics();
+        long intervalMillis = TimeUnit.SECONDS.toMillis(METRICS_SEND_INTERVAL_SECONDS);
+        long intervalStart = AlignedScheduler.previousBoundary(boundaryMillis - 1, intervalMillis);
+        submitInBatches(intervalAggregator.flushMetrics(), intervalStart);
+    }
 
-        // Add cumulative metrics (cumulative, without reset)
+    /**
+     * Called on every cumulative interval boundary, separately from {@link #sendMetrics(long, boolean)}. Sends the cumulative
+     * metrics, without reset, timestamped with the boundary.
+     * @param boundaryMillis the boundary, or the current time when the test ends
+     */
+    private void sendCumulativeMetrics(long boundaryMillis) {
         if (this.cumulativeAggregator != null) {
-            List<DatadogMetric> cumulativeMetrics = this.cumulativeAggregator.buildMetrics(
+            submitInBatches(this.cumulativeAggregator.buildMetrics(
                 CommonUtils.combineTags(this.customTagsWithRunner, "final_result:false")
-            );
-            metrics.addAll(cumulativeMetrics);
+            ), boundaryMillis);
         }
+    }
 
+    /**
+     * Send metrics to Datadog in batches of {@link DatadogConfiguration#getMetricsMaxBatchSize()}.
+     * @param timestampMillis the timestamp of every point
+     */
+    private void submitInBatches(List<DatadogMetric> metrics, long timestampMillis) {
+        long timestamp = TimeUnit.MILLISECONDS.toSeconds(timestampMillis);
         AtomicInteger counter = new AtomicInteger();
         metrics.stream().collect(Collectors.groupingBy(it -> counter.getAndIncrement() / configuration.getMetricsMaxBatchSize())).values().forEach(
-                x -> datadogClient.submitMetrics(x)
+                x -> datadogClient.submitMetrics(x, timestamp)
         );
     }
 
+    /**
+     * Clear the thread group cache when threads finished since the last call, so that it doesn't keep the names of
+     * threads that are gone during long runs with ramping thread groups. Live threads are cached again on their next sample.
+     */
+    private void evictFinishedThreads() {
+        int finishedThreads = getUserMetrics().getFinishedThreads();
+        if (finishedThreads != this.lastFinishedThreads) {
+            this.lastFinishedThreads = finishedThreads;
+            this.threadGroups.clear();
+        }
+    }
+
     private void submitIntegrationEvent(String title, String alertType) {
         String alertString = alertType.equals("info") ? "info" : "success";
         String text = "JMeter test plan " + alertString + " on " + JMeterUtils.getLocalHostName();
@@ -496,4 +798,47 @@ public class DatadogBackendClient extends AbstractBackendListenerClient implemen
             "JMeter"
         );
     }
+
+    /**
+     * The thread group of a JMeter thread, parsed from the thread name, and its tag.
+     */
+    private static final class ThreadGroupTag {
+        private final String name;
+        private final String tag;
+
+        private ThreadGroupTag(String name) {
+            this.name = name;
+            this.tag = CommonUtils.sanitizeTagPair("thread_group", name);
+        }
+
+        private static ThreadGroupTag fromThreadName(String threadName) {
+            return new ThreadGroupTag(CommonUtils.parseThreadGroup(threadName));
+        }
+    }
+
+    /**
+     * Metrics of a list of results being processed, grouped so that they are applied to the aggregators in bulk.
+     * Groups are kept in the order they were first seen, and values in the order of the results.
+     */
+    private static final class SampleBatch {
+        /**
+         * The interval metrics by interval start, then by tags.
+         */
+        private final Map<Long, Map<TagSet, SampleGroup>> intervalGroups = new LinkedHashMap<>();
+        private final List<SampleResult> cumulativeSamples = new ArrayList<>();
+        private final List<String> cumulativeLabels = new ArrayList<>();
+        /**
+         * The results of a batch are mostly in the same interval.
+         */
+        private long lastInterval;
+        private Map<TagSet, SampleGroup> lastGroups;
+
+        private Map<TagSet, SampleGroup> groupsOf(long interval) {
+            if (lastGroups == null || lastInterval != interval) {
+                lastInterval = interval;
+                lastGroups = intervalGroups.computeIfAbsent(interval, k -> new LinkedHashMap<>());
+            }
+            return lastGroups;
+        }
+    }
 }
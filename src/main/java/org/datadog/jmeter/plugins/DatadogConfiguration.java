@@ -8,10 +8,18 @@ package org.datadog.jmeter.plugins;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.datadog.jmeter.plugins.aggregation.ContextOverflowMode;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettingsByFamily;
+import org.datadog.jmeter.plugins.aggregation.MetricFamily;
+import org.datadog.jmeter.plugins.aggregation.PercentilesByFamily;
 import org.datadog.jmeter.plugins.exceptions.DatadogConfigurationException;
+import org.datadog.jmeter.plugins.util.LabelNormalizer;
+import org.datadog.jmeter.plugins.util.ResponseCodeTagger;
 
 
 public class DatadogConfiguration {
@@ -77,6 +85,98 @@ public class DatadogConfiguration {
      */
     private StatisticsMode statisticsCalculationMode;
 
+    /**
+     * User configurable. Statistics modes of the sample metric families that don't use statisticsCalculationMode.
+     */
+    private Map<MetricFamily, StatisticsMode> familyStatisticsModes;
+
+    /**
+     * User configurable. Maximum number of sample labels tracked individually by cumulative metrics.
+     * Least recently updated labels beyond that number are folded into a single bucket. 0 means unlimited.
+     */
+    private int cumulativeMaxLabels;
+
+    /**
+     * User configurable. Approximate memory budget, in megabytes, for cumulative per-label statistics.
+     * Least recently updated labels are folded into a single bucket until the budget is met. 0 means unlimited.
+     */
+    private int cumulativeMaxMemoryMb;
+
+    /**
+     * User configurable. Number of cumulative send intervals after which the cumulative metrics of a label without new
+     * samples are sent again. 1, the default, sends every label at every interval.
+     */
+    private int cumulativeHeartbeatIntervals;
+
+    /**
+     * User configurable. Maximum number of distinct interval metric contexts (metric name and tags) per interval.
+     * 0 means unlimited.
+     */
+    private int maxContextsPerInterval;
+
+    /**
+     * User configurable. What to do with new interval metric contexts once {@link #maxContextsPerInterval} is reached.
+     */
+    private ContextOverflowMode contextOverflowMode;
+
+    /**
+     * User configurable. Keys of the tags collapsed to a single value when {@link #contextOverflowMode} is collapse.
+     */
+    private List<String> contextOverflowTags;
+
+    /**
+     * User configurable. Regex rewrite rules applied to sample labels before they are used as tags.
+     */
+    private List<LabelNormalizer.RewriteRule> labelRewriteRules;
+
+    /**
+     * User configurable. Whether to replace numeric, UUID and long hexadecimal segments of sample labels with a placeholder.
+     */
+    private boolean labelPathTemplating;
+
+    /**
+     * User configurable. Maximum length of sample labels after rewriting, 0 meaning unlimited.
+     */
+    private int labelMaxLength;
+
+    /**
+     * User configurable. Percentiles emitted for the histograms of each sample metric family.
+     */
+    private PercentilesByFamily histogramPercentiles;
+
+    /**
+     * User configurable. Accuracy, mapping and store of the sketches of each sample metric family, in ddsketch mode.
+     */
+    private DDSketchSettingsByFamily ddsketchSettings;
+
+    /**
+     * User configurable. Interval metrics and tags recorded for every sample result.
+     */
+    private RecordingPlan recordingPlan;
+
+    /**
+     * User configurable. Whether response codes are tagged as is or bucketed into classes.
+     */
+    private ResponseCodeTagger.Mode responseCodeTagging;
+
+    /**
+     * User configurable. Response codes that keep their tag when {@link #responseCodeTagging} is class.
+     */
+    private Set<String> responseCodeAllowList;
+
+    /**
+     * User configurable. Whether interval metrics are attributed to the interval the samples are processed in or the
+     * one they ended in.
+     */
+    private IntervalTimeMode intervalTimeMode;
+
+    /**
+     * User configurable. How long after the end of an interval its samples are still accepted when
+     * {@link #intervalTimeMode} is event, and how long before the newest sample seconds are kept out of the
+     * per-second throughput statistics, in seconds.
+     */
+    private int allowedLatenessSeconds;
+
     /* The names of configuration options that are shown in JMeter UI */
     private static final String API_URL_PARAM = "datadogUrl";
     private static final String LOG_INTAKE_URL_PARAM = "logIntakeUrl";
@@ -90,6 +190,24 @@ public class DatadogConfiguration {
     private static final String CUSTOM_TAGS = "customTags";
     private static final String STATISTICS_CALCULATION_MODE = "statisticsCalculationMode";
     private static final StatisticsMode DEFAULT_STATISTICS_CALCULATION_MODE = StatisticsMode.DDSKETCH;
+    private static final String CUMULATIVE_MAX_LABELS = "cumulativeMaxLabels";
+    private static final String CUMULATIVE_MAX_MEMORY_MB = "cumulativeMaxMemoryMb";
+    private static final String CUMULATIVE_HEARTBEAT_INTERVALS = "cumulativeHeartbeatIntervals";
+    private static final String MAX_CONTEXTS_PER_INTERVAL = "maxContextsPerInterval";
+    private static final String CONTEXT_OVERFLOW_MODE = "contextOverflowMode";
+    private static final String CONTEXT_OVERFLOW_TAGS = "contextOverflowTags";
+    private static final String LABEL_REWRITE_RULES = "labelRewriteRules";
+    private static final String LABEL_PATH_TEMPLATING = "labelPathTemplating";
+    private static final String LABEL_MAX_LENGTH = "labelMaxLength";
+    private static final String HISTOGRAM_PERCENTILES = "histogramPercentiles";
+    private static final String DDSKETCH_SETTINGS = "ddsketchSettings";
+    private static final String FAMILY_STATISTICS_MODES = "familyStatisticsModes";
+    private static final String DISABLED_METRICS = "disabledMetrics";
+    private static final String DISABLED_TAGS = "disabledTags";
+    private static final String RESPONSE_CODE_TAGGING = "responseCodeTagging";
+    private static final String RESPONSE_CODE_ALLOW_LIST = "responseCodeAllowList";
+    private static final String INTERVAL_TIME_MODE = "intervalTimeMode";
+    private static final String ALLOWED_LATENESS_SECONDS = "allowedLatenessSeconds";
 
     /* The default values for all configuration options */
     private static final String DEFAULT_API_URL = "https://api.datadoghq.com/api/";
@@ -101,6 +219,24 @@ public class DatadogConfiguration {
     private static final String DEFAULT_EXCLUDE_LOGS_RESPONSE_CODE_REGEX = "";
     private static final String DEFAULT_SAMPLERS_REGEX = "";
     private static final String DEFAULT_CUSTOM_TAGS = "";
+    private static final int DEFAULT_CUMULATIVE_MAX_LABELS = 0;
+    private static final int DEFAULT_CUMULATIVE_MAX_MEMORY_MB = 0;
+    private static final int DEFAULT_CUMULATIVE_HEARTBEAT_INTERVALS = 1;
+    private static final int DEFAULT_MAX_CONTEXTS_PER_INTERVAL = 0;
+    private static final ContextOverflowMode DEFAULT_CONTEXT_OVERFLOW_MODE = ContextOverflowMode.COLLAPSE;
+    private static final String DEFAULT_CONTEXT_OVERFLOW_TAGS = "response_code";
+    private static final String DEFAULT_LABEL_REWRITE_RULES = "";
+    private static final boolean DEFAULT_LABEL_PATH_TEMPLATING = false;
+    private static final int DEFAULT_LABEL_MAX_LENGTH = 0;
+    private static final String DEFAULT_HISTOGRAM_PERCENTILES = "";
+    private static final String DEFAULT_DDSKETCH_SETTINGS = "";
+    private static final String DEFAULT_FAMILY_STATISTICS_MODES = "";
+    private static final String DEFAULT_DISABLED_METRICS = "";
+    private static final String DEFAULT_DISABLED_TAGS = "";
+    private static final ResponseCodeTagger.Mode DEFAULT_RESPONSE_CODE_TAGGING = ResponseCodeTagger.Mode.EXACT;
+    private static final String DEFAULT_RESPONSE_CODE_ALLOW_LIST = "";
+    private static final IntervalTimeMode DEFAULT_INTERVAL_TIME_MODE = IntervalTimeMode.PROCESSING;
+    private static final int DEFAULT_ALLOWED_LATENESS_SECONDS = 5;
 
     private DatadogConfiguration(){}
 
@@ -117,6 +253,24 @@ public class DatadogConfiguration {
         arguments.addArgument(SAMPLERS_REGEX, DEFAULT_SAMPLERS_REGEX);
         arguments.addArgument(CUSTOM_TAGS, DEFAULT_CUSTOM_TAGS);
         arguments.addArgument(STATISTICS_CALCULATION_MODE, DEFAULT_STATISTICS_CALCULATION_MODE.getValue());
+        arguments.addArgument(CUMULATIVE_MAX_LABELS, String.valueOf(DEFAULT_CUMULATIVE_MAX_LABELS));
+        arguments.addArgument(CUMULATIVE_MAX_MEMORY_MB, String.valueOf(DEFAULT_CUMULATIVE_MAX_MEMORY_MB));
+        arguments.addArgument(CUMULATIVE_HEARTBEAT_INTERVALS, String.valueOf(DEFAULT_CUMULATIVE_HEARTBEAT_INTERVALS));
+        arguments.addArgument(MAX_CONTEXTS_PER_INTERVAL, String.valueOf(DEFAULT_MAX_CONTEXTS_PER_INTERVAL));
+        arguments.addArgument(CONTEXT_OVERFLOW_MODE, DEFAULT_CONTEXT_OVERFLOW_MODE.getValue());
+        arguments.addArgument(CONTEXT_OVERFLOW_TAGS, DEFAULT_CONTEXT_OVERFLOW_TAGS);
+        arguments.addArgument(LABEL_REWRITE_RULES, DEFAULT_LABEL_REWRITE_RULES);
+        arguments.addArgument(LABEL_PATH_TEMPLATING, String.valueOf(DEFAULT_LABEL_PATH_TEMPLATING));
+        arguments.addArgument(LABEL_MAX_LENGTH, String.valueOf(DEFAULT_LABEL_MAX_LENGTH));
+        arguments.addArgument(HISTOGRAM_PERCENTILES, DEFAULT_HISTOGRAM_PERCENTILES);
+        arguments.addArgument(DDSKETCH_SETTINGS, DEFAULT_DDSKETCH_SETTINGS);
+        arguments.addArgument(FAMILY_STATISTICS_MODES, DEFAULT_FAMILY_STATISTICS_MODES);
+        arguments.addArgument(DISABLED_METRICS, DEFAULT_DISABLED_METRICS);
+        arguments.addArgument(DISABLED_TAGS, DEFAULT_DISABLED_TAGS);
+        arguments.addArgument(RESPONSE_CODE_TAGGING, DEFAULT_RESPONSE_CODE_TAGGING.getValue());
+        arguments.addArgument(RESPONSE_CODE_ALLOW_LIST, DEFAULT_RESPONSE_CODE_ALLOW_LIST);
+        arguments.addArgument(INTERVAL_TIME_MODE, DEFAULT_INTERVAL_TIME_MODE.getValue());
+        arguments.addArgument(ALLOWED_LATENESS_SECONDS, String.valueOf(DEFAULT_ALLOWED_LATENESS_SECONDS));
         return arguments;
     }
 
@@ -177,6 +331,126 @@ public class DatadogConfiguration {
 
         configuration.statisticsCalculationMode = parseStatisticsCalculationMode(context);
 
+        try {
+            configuration.familyStatisticsModes = MetricFamily.parseEntries(
+                context.getParameter(FAMILY_STATISTICS_MODES, DEFAULT_FAMILY_STATISTICS_MODES), "family=mode", StatisticsMode::fromStringValue);
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + FAMILY_STATISTICS_MODES + "': " + e.getMessage());
+        }
+
+        String cumulativeMaxLabels = context.getParameter(CUMULATIVE_MAX_LABELS, String.valueOf(DEFAULT_CUMULATIVE_MAX_LABELS));
+        try {
+            configuration.cumulativeMaxLabels = Integer.parseUnsignedInt(cumulativeMaxLabels);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + CUMULATIVE_MAX_LABELS + "'. Value '" + cumulativeMaxLabels + "' is not an integer.");
+        }
+
+        String cumulativeMaxMemoryMb = context.getParameter(CUMULATIVE_MAX_MEMORY_MB, String.valueOf(DEFAULT_CUMULATIVE_MAX_MEMORY_MB));
+        try {
+            configuration.cumulativeMaxMemoryMb = Integer.parseUnsignedInt(cumulativeMaxMemoryMb);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + CUMULATIVE_MAX_MEMORY_MB + "'. Value '" + cumulativeMaxMemoryMb + "' is not an integer.");
+        }
+
+        String cumulativeHeartbeatIntervals = context.getParameter(CUMULATIVE_HEARTBEAT_INTERVALS, String.valueOf(DEFAULT_CUMULATIVE_HEARTBEAT_INTERVALS));
+        try {
+            configuration.cumulativeHeartbeatIntervals = Integer.parseUnsignedInt(cumulativeHeartbeatIntervals);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + CUMULATIVE_HEARTBEAT_INTERVALS + "'. Value '" + cumulativeHeartbeatIntervals + "' is not an integer.");
+        }
+        if (configuration.cumulativeHeartbeatIntervals < 1) {
+            throw new DatadogConfigurationException("Invalid '" + CUMULATIVE_HEARTBEAT_INTERVALS + "'. Value must be at least 1.");
+        }
+
+        String maxContextsPerInterval = context.getParameter(MAX_CONTEXTS_PER_INTERVAL, String.valueOf(DEFAULT_MAX_CONTEXTS_PER_INTERVAL));
+        try {
+            configuration.maxContextsPerInterval = Integer.parseUnsignedInt(maxContextsPerInterval);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + MAX_CONTEXTS_PER_INTERVAL + "'. Value '" + maxContextsPerInterval + "' is not an integer.");
+        }
+
+        String contextOverflowMode = context.getParameter(CONTEXT_OVERFLOW_MODE, DEFAULT_CONTEXT_OVERFLOW_MODE.getValue());
+        try {
+            configuration.contextOverflowMode = ContextOverflowMode.fromStringValue(contextOverflowMode);
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + CONTEXT_OVERFLOW_MODE + "': " + e.getMessage());
+        }
+
+        List<String> contextOverflowTags = new ArrayList<>();
+        for (String key : context.getParameter(CONTEXT_OVERFLOW_TAGS, DEFAULT_CONTEXT_OVERFLOW_TAGS).split(",")) {
+            if (!key.trim().isEmpty()) {
+                contextOverflowTags.add(key.trim());
+            }
+        }
+        configuration.contextOverflowTags = contextOverflowTags;
+
+        try {
+            configuration.labelRewriteRules = LabelNormalizer.parseRules(context.getParameter(LABEL_REWRITE_RULES, DEFAULT_LABEL_REWRITE_RULES));
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + LABEL_REWRITE_RULES + "': " + e.getMessage());
+        }
+
+        String labelPathTemplating = context.getParameter(LABEL_PATH_TEMPLATING, String.valueOf(DEFAULT_LABEL_PATH_TEMPLATING));
+        if(!labelPathTemplating.toLowerCase().equals("false") && !labelPathTemplating.toLowerCase().equals("true")) {
+            throw new DatadogConfigurationException("Invalid '" + LABEL_PATH_TEMPLATING + "'. Value '" + labelPathTemplating + "' is not a boolean.");
+        }
+        configuration.labelPathTemplating = Boolean.parseBoolean(labelPathTemplating);
+
+        String labelMaxLength = context.getParameter(LABEL_MAX_LENGTH, String.valueOf(DEFAULT_LABEL_MAX_LENGTH));
+        try {
+            configuration.labelMaxLength = Integer.parseUnsignedInt(labelMaxLength);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + LABEL_MAX_LENGTH + "'. Value '" + labelMaxLength + "' is not an integer.");
+        }
+
+        try {
+            configuration.histogramPercentiles = PercentilesByFamily.parse(context.getParameter(HISTOGRAM_PERCENTILES, DEFAULT_HISTOGRAM_PERCENTILES));
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + HISTOGRAM_PERCENTILES + "': " + e.getMessage());
+        }
+
+        try {
+            configuration.ddsketchSettings = DDSketchSettingsByFamily.parse(context.getParameter(DDSKETCH_SETTINGS, DEFAULT_DDSKETCH_SETTINGS));
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + DDSKETCH_SETTINGS + "': " + e.getMessage());
+        }
+
+        RecordingPlan recordingPlan;
+        try {
+            recordingPlan = RecordingPlan.ALL.withoutMetrics(context.getParameter(DISABLED_METRICS, DEFAULT_DISABLED_METRICS));
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + DISABLED_METRICS + "': " + e.getMessage());
+        }
+        try {
+            configuration.recordingPlan = recordingPlan.withoutTags(context.getParameter(DISABLED_TAGS, DEFAULT_DISABLED_TAGS));
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + DISABLED_TAGS + "': " + e.getMessage());
+        }
+
+        String responseCodeTagging = context.getParameter(RESPONSE_CODE_TAGGING, DEFAULT_RESPONSE_CODE_TAGGING.getValue());
+        try {
+            configuration.responseCodeTagging = ResponseCodeTagger.Mode.fromStringValue(responseCodeTagging);
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + RESPONSE_CODE_TAGGING + "': " + e.getMessage());
+        }
+
+        configuration.responseCodeAllowList = ResponseCodeTagger.parseAllowList(
+            context.getParameter(RESPONSE_CODE_ALLOW_LIST, DEFAULT_RESPONSE_CODE_ALLOW_LIST));
+
+        String intervalTimeMode = context.getParameter(INTERVAL_TIME_MODE, DEFAULT_INTERVAL_TIME_MODE.getValue());
+        try {
+            configuration.intervalTimeMode = IntervalTimeMode.fromStringValue(intervalTimeMode);
+        } catch (IllegalArgumentException e) {
+            throw new DatadogConfigurationException("Invalid '" + INTERVAL_TIME_MODE + "': " + e.getMessage());
+        }
+
+        String allowedLatenessSeconds = context.getParameter(ALLOWED_LATENESS_SECONDS, String.valueOf(DEFAULT_ALLOWED_LATENESS_SECONDS));
+        try {
+            configuration.allowedLatenessSeconds = Integer.parseUnsignedInt(allowedLatenessSeconds);
+        } catch (NumberFormatException e) {
+            throw new DatadogConfigurationException("Invalid '" + ALLOWED_LATENESS_SECONDS + "'. Value '" + allowedLatenessSeconds + "' is not an integer.");
+        }
+
         return configuration;
     }
 
@@ -232,4 +506,76 @@ public class DatadogConfiguration {
     public StatisticsMode getStatisticsCalculationMode() {
         return statisticsCalculationMode;
     }
+
+    /**
+     * @return the statistics mode of the given sample metric family, {@link #getStatisticsCalculationMode()} unless
+     *         the family was configured otherwise
+     */
+    public StatisticsMode getStatisticsMode(MetricFamily family) {
+        return familyStatisticsModes.getOrDefault(family, statisticsCalculationMode);
+    }
+
+    public int getCumulativeMaxLabels() {
+        return cumulativeMaxLabels;
+    }
+
+    public int getCumulativeMaxMemoryMb() {
+        return cumulativeMaxMemoryMb;
+    }
+
+    public int getCumulativeHeartbeatIntervals() {
+        return cumulativeHeartbeatIntervals;
+    }
+
+    public int getMaxContextsPerInterval() {
+        return maxContextsPerInterval;
+    }
+
+    public ContextOverflowMode getContextOverflowMode() {
+        return contextOverflowMode;
+    }
+
+    public List<String> getContextOverflowTags() {
+        return Collections.unmodifiableList(contextOverflowTags);
+    }
+
+    public List<LabelNormalizer.RewriteRule> getLabelRewriteRules() {
+        return Collections.unmodifiableList(labelRewriteRules);
+    }
+
+    public boolean shouldTemplateLabelPaths() {
+        return labelPathTemplating;
+    }
+
+    public int getLabelMaxLength() {
+        return labelMaxLength;
+    }
+
+    public PercentilesByFamily getHistogramPercentiles() {
+        return histogramPercentiles;
+    }
+
+    public DDSketchSettingsByFamily getDDSketchSettings() {
+        return ddsketchSettings;
+    }
+
+    public RecordingPlan getRecordingPlan() {
+        return recordingPlan;
+    }
+
+    public ResponseCodeTagger.Mode getResponseCodeTagging() {
+        return responseCodeTagging;
+    }
+
+    public Set<String> getResponseCodeAllowList() {
+        return Collections.unmodifiableSet(responseCodeAllowList);
+    }
+
+    public IntervalTimeMode getIntervalTimeMode() {
+        return intervalTimeMode;
+    }
+
+    public int getAllowedLatenessSeconds() {
+        return allowedLatenessSeconds;
+    }
 }
@@ -84,11 +84,21 @@ public class DatadogHttpClient {
     }
 
     /**
-     * Submit metrics boolean.
+     * Submit metrics boolean, timestamped with the current time.
      *
      * @param datadogMetrics the datadog metrics
      */
     public void submitMetrics(List<DatadogMetric> datadogMetrics) {
+        submitMetrics(datadogMetrics, System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * Submit metrics boolean.
+     *
+     * @param datadogMetrics the datadog metrics
+     * @param timestamp the timestamp of every point, in seconds since the epoch
+     */
+    public void submitMetrics(List<DatadogMetric> datadogMetrics, long timestamp) {
 
         // Place metric as item of series list
         JSONArray series = new JSONArray();
@@ -96,7 +106,7 @@ public class DatadogHttpClient {
         for (DatadogMetric datadogMetric : datadogMetrics) {
             JSONArray points = new JSONArray();
             JSONArray point = new JSONArray();
-            point.add(System.currentTimeMillis() / 1000);
+            point.add(timestamp);
             point.add(datadogMetric.getValue());
             points.add(point);
 
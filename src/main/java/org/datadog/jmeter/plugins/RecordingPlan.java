@@ -0,0 +1,164 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.datadog.jmeter.plugins.aggregation.MetricFamily;
+
+/**
+ * The interval metrics recorded for every sample result, and the optional tags they carry. Built once when the test
+ * is set up, so that the sample results are not read, tagged nor aggregated for metrics and tags nobody charts.
+ *
+ * The responses count, the sample_label and result tags are always recorded.
+ */
+public final class RecordingPlan {
+
+    /**
+     * Value of the disabled metrics that turns off the assertion counters.
+     */
+    public static final String ASSERTIONS = "assertions";
+
+    /**
+     * Every metric and every tag.
+     */
+    public static final RecordingPlan ALL = new RecordingPlan(EnumSet.allOf(MetricFamily.class), true, EnumSet.allOf(Tag.class));
+
+    /**
+     * The optional tag dimensions of the interval metrics.
+     */
+    public enum Tag {
+        RESPONSE_CODE("response_code"),
+        THREAD_GROUP("thread_group"),
+        ASSERTION_NAME("assertion_name");
+
+        private final String value;
+
+        Tag(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Parse a string value to a Tag enum.
+         * @param value the string value (case-insensitive)
+         * @return the corresponding Tag
+         * @throws IllegalArgumentException if the value is not valid
+         */
+        public static Tag fromStringValue(String value) {
+            String normalized = value.trim().toLowerCase();
+            return Arrays.stream(values())
+                .filter(tag -> tag.value.equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                    "Invalid tag: '" + value + "'. Valid options: " + getValidTags()));
+        }
+
+        /**
+         * Get a comma-separated list of all valid tag values.
+         */
+        public static String getValidTags() {
+            return Arrays.stream(values())
+                .map(tag -> tag.value)
+                .collect(Collectors.joining(", "));
+        }
+    }
+
+    private final Set<MetricFamily> families;
+    private final boolean assertions;
+    private final Set<Tag> tags;
+    /**
+     * Whether each tag is recorded, indexed by ordinal.
+     */
+    private final boolean[] tagged = new boolean[Tag.values().length];
+
+    private RecordingPlan(Set<MetricFamily> families, boolean assertions, Set<Tag> tags) {
+        this.families = Collections.unmodifiableSet(families);
+        this.assertions = assertions;
+        this.tags = Collections.unmodifiableSet(tags);
+        for (Tag tag : tags) {
+            this.tagged[tag.ordinal()] = true;
+        }
+    }
+
+    /**
+     * @param spec comma-separated metric families, or {@value #ASSERTIONS} for the assertion counters, e.g.
+     *             {@code latency,bytes_sent}. Empty to keep every metric.
+     * @return a plan that doesn't record the listed metrics
+     * @throws IllegalArgumentException if the spec lists an unknown metric
+     */
+    public RecordingPlan withoutMetrics(String spec) {
+        Set<MetricFamily> families = copy(this.families, MetricFamily.class);
+        boolean assertions = this.assertions;
+        for (String item : spec.split(",")) {
+            if (item.trim().isEmpty()) {
+                continue;
+            }
+            if (item.trim().toLowerCase().equals(ASSERTIONS)) {
+                assertions = false;
+                continue;
+            }
+            try {
+                families.remove(MetricFamily.fromStringValue(item));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid metric: '" + item + "'. Valid options: "
+                    + MetricFamily.getValidFamilies() + ", " + ASSERTIONS);
+            }
+        }
+        return new RecordingPlan(families, assertions, this.tags);
+    }
+
+    /**
+     * @param spec comma-separated tags, e.g. {@code response_code,thread_group}. Empty to keep every tag.
+     * @return a plan that doesn't tag the metrics with the listed tags
+     * @throws IllegalArgumentException if the spec lists an unknown tag
+     */
+    public RecordingPlan withoutTags(String spec) {
+        Set<Tag> tags = copy(this.tags, Tag.class);
+        for (String item : spec.split(",")) {
+            if (!item.trim().isEmpty()) {
+                tags.remove(Tag.fromStringValue(item));
+            }
+        }
+        return new RecordingPlan(this.families, this.assertions, tags);
+    }
+
+    private static <E extends Enum<E>> Set<E> copy(Set<E> set, Class<E> type) {
+        return set.isEmpty() ? EnumSet.noneOf(type) : EnumSet.copyOf(set);
+    }
+
+    /**
+     * @return the sample metric families whose histograms and counters are recorded
+     */
+    public Set<MetricFamily> getFamilies() {
+        return families;
+    }
+
+    /**
+     * @return whether the assertion counters are recorded
+     */
+    public boolean recordsAssertions() {
+        return assertions;
+    }
+
+    /**
+     * @return whether the metrics are tagged with the given tag
+     */
+    public boolean isTagged(Tag tag) {
+        return tagged[tag.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return "RecordingPlan{families=" + families + ", assertions=" + assertions + ", tags=" + tags + "}";
+    }
+}
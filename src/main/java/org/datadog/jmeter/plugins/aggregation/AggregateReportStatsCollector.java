@@ -0,0 +1,288 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * StatsCollector with the exact semantics of {@link JmeterCompatibleStatsCollector}, without its boxed tree of values.
+ *
+ * Values are rounded to whole milliseconds, like JMeter's {@code StatCalculatorLong}. Milliseconds below a limit are
+ * counted in a primitive array indexed by value, grown up to the largest value seen. The others, including the
+ * negative ones, are counted in a sorted map, which is expected to stay small for response times.
+ *
+ * {@link #reset()} keeps the array for the next interval, unless the interval that ends didn't use its top half: a
+ * reused interval collector doesn't keep the footprint of a single slow interval for the rest of the test.
+ */
+public class AggregateReportStatsCollector implements StatsCollector {
+
+    /**
+     * Default number of milliseconds counted in the array, so at most 128 KiB per collector.
+     */
+    public static final int DEFAULT_DENSE_LIMIT_MS = 1 << 14;
+
+    private static final int MIN_DENSE_LENGTH = 64;
+
+    /**
+     * Approximate cost of one value of the sorted map: a TreeMap entry, a boxed Long key and a long[1] counter.
+     */
+    private static final long BYTES_PER_SPARSE_VALUE = 80;
+
+    /**
+     * Approximate fixed cost of the collector.
+     */
+    private static final long OBJECT_OVERHEAD_BYTES = 64;
+
+    private final int denseLimitMs;
+    /**
+     * Count of each millisecond value below {@link #denseLimitMs}, indexed by value.
+     */
+    private long[] denseCounts = new long[0];
+    /**
+     * Count of each other millisecond value, created on first use.
+     */
+    private TreeMap<Long, long[]> sparseCounts = null;
+    private long count = 0;
+    /**
+     * Accumulated the same way as StatCalculatorLong, so that the mean is identical.
+     */
+    private double sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public AggregateReportStatsCollector() {
+        this(DEFAULT_DENSE_LIMIT_MS);
+    }
+
+    /**
+     * @param denseLimitMs number of milliseconds, starting from 0, counted in the array rather than the sorted map. 0 counts
+     *                     every value in the sorted map.
+     */
+    public AggregateReportStatsCollector(int denseLimitMs) {
+        if (denseLimitMs < 0) {
+            throw new IllegalArgumentException("denseLimitMs must not be negative, got " + denseLimitMs);
+        }
+        this.denseLimitMs = denseLimitMs;
+    }
+
+    @Override
+    public void addValue(double valueSeconds) {
+        add(toMs(valueSeconds), 1);
+    }
+
+    @Override
+    public void addValues(double[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            add(toMs(values[i]), 1);
+        }
+    }
+
+    private void add(long ms, long n) {
+        count += n;
+        sum += ms * (double) n;
+        if (ms < min) {
+            min = ms;
+        }
+        if (ms > max) {
+            max = ms;
+        }
+        if (ms >= 0 && ms < denseLimitMs) {
+            if (ms >= denseCounts.length) {
+                growDense((int) ms);
+            }
+            denseCounts[(int) ms] += n;
+        } else {
+            if (sparseCounts == null) {
+                sparseCounts = new TreeMap<>();
+            }
+            long[] counter = sparseCounts.get(ms);
+            if (counter == null) {
+                sparseCounts.put(ms, new long[] { n });
+            } else {
+                counter[0] += n;
+            }
+        }
+    }
+
+    private void growDense(int ms) {
+        denseCounts = Arrays.copyOf(denseCounts, denseLengthFor(ms));
+    }
+
+    /**
+     * @return the length of the array that counts the given millisecond value, below {@link #denseLimitMs}
+     */
+    private int denseLengthFor(int ms) {
+        return Math.min(denseLimitMs, Math.max(MIN_DENSE_LENGTH, Integer.highestOneBit(ms) << 1));
+    }
+
+    @Override
+    public Optional<AggregationSnapshot> getSnapshot(Percentiles percentiles) {
+        if (count == 0) {
+            return Optional.empty();
+        }
+
+        // Match JMeter's Aggregate Report behavior, which truncates the mean to a long.
+        // Reference: https://github.com/apache/jmeter/blob/34a2785748e9e0b14702595e8682c387869deda3/src/core/src/main/java/org/apache/jmeter/visualizers/SamplingStatCalculator.java#L198-L200
+        double meanSeconds = toSeconds(Math.floor(sum / count));
+
+        return Optional.of(new AggregationSnapshot(toSeconds(min), toSeconds(max), meanSeconds, percentiles,
+            getValuesAtQuantiles(percentiles.quantileArray())));
+    }
+
+    /**
+     * Same values as {@code StatCalculatorLong.getPercentPoint(double)}: the smallest value whose rank reaches
+     * {@code round(count * quantile)}, or the max for a quantile of 1. The values are walked once for all quantiles.
+     */
+    @Override
+    public double[] getValuesAtQuantiles(double[] quantiles) {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        RankWalk walk = new RankWalk(quantiles);
+        if (walk.isDone()) {
+            return walk.values;
+        }
+        if (sparseCounts != null) {
+            for (Map.Entry<Long, long[]> entry : sparseCounts.headMap(0L).entrySet()) {
+                if (walk.accept(entry.getKey(), entry.getValue()[0])) {
+                    return walk.values;
+                }
+            }
+        }
+        for (int ms = 0; ms < denseCounts.length; ms++) {
+            if (denseCounts[ms] != 0 && walk.accept(ms, denseCounts[ms])) {
+                return walk.values;
+            }
+        }
+        if (sparseCounts != null) {
+            for (Map.Entry<Long, long[]> entry : sparseCounts.tailMap(0L).entrySet()) {
+                if (walk.accept(entry.getKey(), entry.getValue()[0])) {
+                    return walk.values;
+                }
+            }
+        }
+        // Unreachable, the target ranks are at most the count
+        return walk.values;
+    }
+
+    private final class RankWalk {
+        private final double[] values;
+        private final long[] targets;
+        private int next = 0;
+        /**
+         * Quantiles from this one are 1 and take the max, without walking.
+         */
+        private final int end;
+        private long rank = 0;
+
+        RankWalk(double[] quantiles) {
+            this.values = new double[quantiles.length];
+            this.targets = new long[quantiles.length];
+            int end = quantiles.length;
+            for (int i = 0; i < quantiles.length; i++) {
+                double quantile = quantiles[i];
+                if (quantile < 0 || quantile > 1) {
+                    throw new IllegalArgumentException("The quantile must be between 0 and 1.");
+                }
+                if (i > 0 && quantile < quantiles[i - 1]) {
+                    throw new IllegalArgumentException("The quantiles must be in ascending order.");
+                }
+                if (quantile >= 1.0) {
+                    values[i] = toSeconds(max);
+                    end = Math.min(end, i);
+                } else {
+                    // Same rounding as StatCalculatorLong
+                    targets[i] = Math.round(count * quantile);
+                }
+            }
+            this.end = end;
+        }
+
+        /**
+         * @return whether every quantile was resolved
+         */
+        boolean accept(long ms, long binCount) {
+            rank += binCount;
+            while (next < end && targets[next] <= rank) {
+                values[next++] = toSeconds(ms);
+            }
+            return isDone();
+        }
+
+        boolean isDone() {
+            return next == end;
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds each distinct value of the other collector with its count, in ascending order, like
+     * {@code StatCalculatorLong.addAll}.
+     */
+    @Override
+    public void merge(StatsCollector other) {
+        if (!(other instanceof AggregateReportStatsCollector)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into an AggregateReportStatsCollector");
+        }
+        AggregateReportStatsCollector o = (AggregateReportStatsCollector) other;
+        if (o.sparseCounts != null) {
+            for (Map.Entry<Long, long[]> entry : o.sparseCounts.headMap(0L).entrySet()) {
+                add(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+        for (int ms = 0; ms < o.denseCounts.length; ms++) {
+            if (o.denseCounts[ms] != 0) {
+                add(ms, o.denseCounts[ms]);
+            }
+        }
+        if (o.sparseCounts != null) {
+            for (Map.Entry<Long, long[]> entry : o.sparseCounts.tailMap(0L).entrySet()) {
+                add(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        int used = count == 0 || max < 0 ? 0 : denseLengthFor((int) Math.min(max, denseLimitMs - 1));
+        if (used <= denseCounts.length / 2) {
+            denseCounts = new long[used];
+        } else {
+            Arrays.fill(denseCounts, 0);
+        }
+        sparseCounts = null;
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        long sparse = sparseCounts != null ? sparseCounts.size() * BYTES_PER_SPARSE_VALUE : 0;
+        return OBJECT_OVERHEAD_BYTES + denseCounts.length * 8L + sparse;
+    }
+
+    private static long toMs(double seconds) {
+        return Math.round(seconds * 1000.0);
+    }
+
+    private static double toSeconds(long ms) {
+        return ms / 1000.0;
+    }
+
+    private static double toSeconds(double ms) {
+        return ms / 1000.0;
+    }
+}
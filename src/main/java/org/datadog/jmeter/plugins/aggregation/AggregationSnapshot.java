@@ -6,54 +6,100 @@
 package org.datadog.jmeter.plugins.aggregation;
 
 /**
- * Snapshot of aggregated statistics. Getter names match metric suffixes.
+ * Snapshot of aggregated statistics: min, max, avg and the value at each of a list of {@link Percentiles}, stored by
+ * position. Field names match metric suffixes.
  */
 public class AggregationSnapshot {
 
+    private static final int MIN = 0;
+    private static final int MAX = 1;
+    private static final int AVG = 2;
+    private static final int FIRST_PERCENTILE = 3;
 
-    private final double min;
-    private final double max;
-    private final double avg;
-    private final double median;
-    private final double p90;
-    private final double p95;
-    private final double p99;
+    private final Percentiles percentiles;
+    /**
+     * min, max, avg, then the value of each percentile.
+     */
+    private final double[] values;
+
+    /**
+     * @param percentileValues the value at each of the percentiles, in the same order
+     */
+    public AggregationSnapshot(double min, double max, double avg, Percentiles percentiles, double[] percentileValues) {
+        if (percentileValues.length != percentiles.size()) {
+            throw new IllegalArgumentException("Expected " + percentiles.size() + " percentile values, got "
+                + percentileValues.length);
+        }
+        this.percentiles = percentiles;
+        this.values = new double[FIRST_PERCENTILE + percentileValues.length];
+        this.values[MIN] = min;
+        this.values[MAX] = max;
+        this.values[AVG] = avg;
+        System.arraycopy(percentileValues, 0, this.values, FIRST_PERCENTILE, percentileValues.length);
+    }
 
+    /**
+     * Snapshot of the {@link Percentiles#DEFAULT} percentiles.
+     */
     public AggregationSnapshot(double min, double max, double avg, double median, double p90, double p95, double p99) {
-        this.min = min;
-        this.max = max;
-        this.avg = avg;
-        this.median = median;
-        this.p90 = p90;
-        this.p95 = p95;
-        this.p99 = p99;
+        this(min, max, avg, Percentiles.DEFAULT, new double[] { median, p90, p95, p99 });
     }
 
+    /**
+     * Fields of a snapshot of the {@link Percentiles#DEFAULT} percentiles.
+     */
     public static final String[] FIELDS = { "min", "max", "avg", "median", "p90", "p95", "p99" };
-    
+
+    /**
+     * @return the number of fields, min, max and avg included
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the name of the field at the given position, which is the metric suffix
+     */
+    public String getField(int index) {
+        switch (index) {
+            case MIN: return "min";
+            case MAX: return "max";
+            case AVG: return "avg";
+            default:  return percentiles.getSuffix(index - FIRST_PERCENTILE);
+        }
+    }
+
+    /**
+     * @return the value of the field at the given position
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
     /**
      * Get field value by suffix string.
      * @throws IllegalArgumentException if suffix is unknown
      */
     public double get(String suffix) {
         switch (suffix) {
-            case "min":    return min;
-            case "max":    return max;
-            case "avg":    return avg;
-            case "median": return median;
-            case "p90":    return p90;
-            case "p95":    return p95;
-            case "p99":    return p99;
+            case "min": return values[MIN];
+            case "max": return values[MAX];
+            case "avg": return values[AVG];
             default:
-                throw new IllegalArgumentException("Unknown field: " + suffix);
+                int index = percentiles.indexOf(suffix);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Unknown field: " + suffix);
+                }
+                return values[FIRST_PERCENTILE + index];
         }
     }
 
-    public double getMin() { return min; }
-    public double getMax() { return max; }
-    public double getAvg() { return avg; }
-    public double getMedian() { return median; }
-    public double getP90() { return p90; }
-    public double getP95() { return p95; }
-    public double getP99() { return p99; }
+    public Percentiles getPercentiles() { return percentiles; }
+    public double getMin() { return values[MIN]; }
+    public double getMax() { return values[MAX]; }
+    public double getAvg() { return values[AVG]; }
+    public double getMedian() { return get("median"); }
+    public double getP90() { return get("p90"); }
+    public double getP95() { return get("p95"); }
+    public double getP99() { return get("p99"); }
 }
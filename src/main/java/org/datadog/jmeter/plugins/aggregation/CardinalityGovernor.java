@@ -0,0 +1,129 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+
+/**
+ * Limits the number of distinct contexts an {@link IntervalAggregator} creates during a single interval.
+ *
+ * Once the limit is reached, updates to contexts that don't exist yet are either dropped or collapsed, depending on
+ * the {@link ContextOverflowMode}. Collapsed contexts are always admitted: their number is bounded by the combinations
+ * of the tags that are not collapsed.
+ *
+ * Not thread-safe, the owning aggregator calls it with its lock held.
+ */
+public class CardinalityGovernor {
+
+    /**
+     * Value given to collapsed tags. It is not a valid sanitized value (sanitization collapses consecutive underscores),
+     * so it can't collide with a real one.
+     */
+    public static final String OVERFLOW_TAG_VALUE = "__overflow__";
+
+    private final int maxContexts;
+    private final ContextOverflowMode overflowMode;
+    private final Set<String> overflowTagPrefixes = new HashSet<>();
+    private final List<String> reportTags;
+
+    private int contextCount = 0;
+    private long droppedUpdates = 0;
+    private long collapsedUpdates = 0;
+
+    /**
+     * @param maxContexts maximum number of contexts per interval
+     * @param overflowMode what to do with updates to new contexts once the limit is reached
+     * @param overflowTagKeys keys of the tags collapsed to {@link #OVERFLOW_TAG_VALUE} in {@link ContextOverflowMode#COLLAPSE} mode
+     * @param reportTags tags of the metrics reporting what the governor did
+     */
+    public CardinalityGovernor(int maxContexts, ContextOverflowMode overflowMode, Collection<String> overflowTagKeys, List<String> reportTags) {
+        this.maxContexts = maxContexts;
+        this.overflowMode = overflowMode;
+        for (String key : overflowTagKeys) {
+            overflowTagPrefixes.add(key + ":");
+        }
+        this.reportTags = new ArrayList<>(reportTags);
+    }
+
+    /**
+     * Decide where an update to a context that has no value yet in the current interval goes.
+     * @param context the context being updated
+     * @return the context to record the update into, or null if the update must be dropped
+     */
+    DatadogMetricContext admit(DatadogMetricContext context) {
+        TagSet tags = admit(context.getTagSet(), 1, 1);
+        if (tags == null) {
+            return null;
+        }
+        return tags == context.getTagSet() ? context : new DatadogMetricContext(context.getName(), tags);
+    }
+
+    /**
+     * Decide where updates to a {@link SampleBundle} that has no value yet in the current interval go. The bundle
+     * counts as the given number of contexts, and each sample as that many updates when dropped or collapsed.
+     * @param tags the tags of the bundle being updated
+     * @param contexts the number of contexts of the bundle, see {@link SampleBundle#contextCount}
+     * @param samples the number of samples being recorded
+     * @return the tags to record the samples under, or null if they must be dropped
+     */
+    TagSet admitBundle(TagSet tags, int contexts, int samples) {
+        return admit(tags, contexts, (long) contexts * samples);
+    }
+
+    private TagSet admit(TagSet tags, int contexts, long updates) {
+        if (contextCount + contexts <= maxContexts) {
+            contextCount += contexts;
+            return tags;
+        }
+        if (overflowMode == ContextOverflowMode.COLLAPSE) {
+            TagSet collapsed = collapse(tags);
+            if (collapsed != null) {
+                collapsedUpdates += updates;
+                return collapsed;
+            }
+        }
+        droppedUpdates += updates;
+        return null;
+    }
+
+    /**
+     * @return the tags with the overflow tags collapsed, or null if there are none of them. Not interned, the
+     * aggregator compares them by value.
+     */
+    private TagSet collapse(TagSet tagSet) {
+        List<String> tags = new ArrayList<>(tagSet.asList());
+        boolean changed = false;
+        for (int i = 0; i < tags.size(); i++) {
+            String tag = tags.get(i);
+            int colon = tag.indexOf(':');
+            if (colon >= 0 && overflowTagPrefixes.contains(tag.substring(0, colon + 1))) {
+                tags.set(i, tag.substring(0, colon + 1) + OVERFLOW_TAG_VALUE);
+                changed = true;
+            }
+        }
+        return changed ? TagSet.of(tags) : null;
+    }
+
+    /**
+     * Append the metrics describing the current interval, and start a new one.
+     * @param metrics the list to add the metrics to
+     */
+    void flush(List<DatadogMetric> metrics) {
+        metrics.add(new DatadogMetric("jmeter.contexts.active", "gauge", contextCount, reportTags));
+        metrics.add(new DatadogMetric("jmeter.contexts.dropped", "count", droppedUpdates, reportTags));
+        metrics.add(new DatadogMetric("jmeter.contexts.collapsed", "count", collapsedUpdates, reportTags));
+        contextCount = 0;
+        droppedUpdates = 0;
+        collapsedUpdates = 0;
+    }
+}
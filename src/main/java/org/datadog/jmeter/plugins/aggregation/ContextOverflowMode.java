@@ -0,0 +1,57 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * What {@link CardinalityGovernor} does with updates to new contexts once the per-interval limit is reached.
+ */
+public enum ContextOverflowMode {
+    /**
+     * Discard the update.
+     */
+    DROP("drop"),
+    /**
+     * Replace the value of the overflow tags with {@link CardinalityGovernor#OVERFLOW_TAG_VALUE} and record the update there.
+     */
+    COLLAPSE("collapse");
+
+    private final String value;
+
+    ContextOverflowMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Parse a string value to a ContextOverflowMode enum.
+     * @param value the string value (case-insensitive)
+     * @return the corresponding ContextOverflowMode
+     * @throws IllegalArgumentException if the value is not valid
+     */
+    public static ContextOverflowMode fromStringValue(String value) {
+        String normalized = value.trim().toLowerCase();
+        return Arrays.stream(values())
+            .filter(mode -> mode.value.equals(normalized))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException(
+                "Invalid context overflow mode: '" + value + "'. Valid options: " + getValidModes()));
+    }
+
+    /**
+     * Get a comma-separated list of all valid mode values.
+     */
+    public static String getValidModes() {
+        return Arrays.stream(values())
+            .map(mode -> mode.value)
+            .collect(Collectors.joining(", "));
+    }
+}
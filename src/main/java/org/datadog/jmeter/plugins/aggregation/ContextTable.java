@@ -0,0 +1,139 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Arrays;
+import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+
+/**
+ * Open-addressing table from metric contexts to primitive values, so that updating a counter or a gauge doesn't
+ * allocate. Values are stored as {@code long}: counters use them as is, gauges store the bits of a {@code double}.
+ *
+ * Meant to be cleared and reused across intervals. Not thread-safe, the owning {@link IntervalAggregator} calls it
+ * with its lock held.
+ */
+final class ContextTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private DatadogMetricContext[] keys;
+    private long[] values;
+    private int size = 0;
+
+    ContextTable() {
+        this.keys = new DatadogMetricContext[INITIAL_CAPACITY];
+        this.values = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the slot of the context, or -1 if it has no value
+     */
+    int find(DatadogMetricContext context) {
+        int mask = keys.length - 1;
+        for (int i = indexFor(context, mask); ; i = (i + 1) & mask) {
+            DatadogMetricContext key = keys[i];
+            if (key == null) {
+                return -1;
+            }
+            if (key.equals(context)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the context, inserted with a value of 0 if it had none
+     */
+    int findOrInsert(DatadogMetricContext context) {
+        // Keep the load factor at or below 1/2, probes stay short
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int i = indexFor(context, mask); ; i = (i + 1) & mask) {
+            DatadogMetricContext key = keys[i];
+            if (key == null) {
+                keys[i] = context;
+                values[i] = 0;
+                size++;
+                return i;
+            }
+            if (key.equals(context)) {
+                return i;
+            }
+        }
+    }
+
+    void add(int slot, long delta) {
+        values[slot] += delta;
+    }
+
+    void setDouble(int slot, double value) {
+        values[slot] = Double.doubleToRawLongBits(value);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots, iterate over {@link #keyAt(int)} up to it and skip nulls
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    DatadogMetricContext keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long longAt(int slot) {
+        return values[slot];
+    }
+
+    double doubleAt(int slot) {
+        return Double.longBitsToDouble(values[slot]);
+    }
+
+    /**
+     * Remove all the values, keeping the storage unless it's mostly unused.
+     */
+    void clear() {
+        if (keys.length > INITIAL_CAPACITY && size * 8 < keys.length) {
+            // A spike of contexts shouldn't make every later interval pay for clearing a large table
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size, 1) * 4));
+            this.keys = new DatadogMetricContext[capacity];
+            this.values = new long[capacity];
+        } else {
+            Arrays.fill(keys, null);
+        }
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        DatadogMetricContext[] oldKeys = keys;
+        long[] oldValues = values;
+        this.keys = new DatadogMetricContext[capacity];
+        this.values = new long[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            DatadogMetricContext key = oldKeys[j];
+            if (key == null) {
+                continue;
+            }
+            int i = indexFor(key, mask);
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int indexFor(DatadogMetricContext context, int mask) {
+        int h = context.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
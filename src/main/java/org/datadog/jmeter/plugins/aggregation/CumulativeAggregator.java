@@ -6,7 +6,8 @@
 package org.datadog.jmeter.plugins.aggregation;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
@@ -14,6 +15,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import org.apache.jmeter.samplers.SampleResult;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.TagSet;
 import org.datadog.jmeter.plugins.util.CommonUtils;
 
 /**
@@ -36,25 +38,70 @@ public class CumulativeAggregator {
      */
     private static final String ESCAPED_TOTAL_LABEL_TAG = CommonUtils.sanitizeTagPair(SAMPLE_LABEL_KEY, "_escaped_total");
 
+    /**
+     * Tag of the bucket that evicted labels are folded into. It is not sanitized on purpose: sanitization collapses
+     * consecutive underscores, so no sampler label can ever produce this tag.
+     */
+    static final String OTHER_LABEL_TAG = SAMPLE_LABEL_KEY + ":__other__";
+
+    /**
+     * Approximate fixed cost of a tracked label on top of its StatsCollector: the map entry, the LabelStats object
+     * and the tag string header.
+     */
+    private static final long LABEL_OVERHEAD_BYTES = 160;
+
+    /**
+     * Whether the statistics of a label changed since its metrics were last built by {@link #buildMetrics}, and for
+     * how many builds they were skipped.
+     */
+    private static final class ChangeTracker {
+        boolean changed = true;
+        int skippedBuilds = 0;
+
+        void markChanged() {
+            changed = true;
+        }
+
+        /**
+         * Called once per build.
+         * @return whether the metrics must be built: the statistics changed, or they were skipped for
+         *         {@code heartbeatIntervals - 1} builds in a row
+         */
+        boolean shouldBuild(int heartbeatIntervals) {
+            if (changed || ++skippedBuilds >= heartbeatIntervals) {
+                changed = false;
+                skippedBuilds = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+
     /**
      * Per-label statistics container.
      */
     private static class LabelStats {
         final StatsCollector responseTimeStats;
+        /**
+         * The per-second throughput of the label, or null for the statistics merged from other labels, which can't be
+         * merged per second once rolled up.
+         */
+        final ThroughputTimeline timeline;
         long sampleCount = 0;
         long errorCount = 0;
         long firstStartTimeMs = Long.MAX_VALUE;
         long lastEndTimeMs = Long.MIN_VALUE;
         long totalBytesReceived = 0;
         long totalBytesSent = 0;
+        final ChangeTracker changes = new ChangeTracker();
 
-        LabelStats(StatsCollector responseTimeStats) {
+        LabelStats(StatsCollector responseTimeStats, ThroughputTimeline timeline) {
             this.responseTimeStats = responseTimeStats;
+            this.timeline = timeline;
         }
 
         void addSample(SampleResult sampleResult, boolean countSubsamplesAsSingle) {
             long count = sampleResult.getSampleCount();
-            long errors = sampleResult.getErrorCount();
             if (count > 0) {
                 if (countSubsamplesAsSingle) {
                     responseTimeStats.addValue(sampleResult.getTime() / 1000.0);
@@ -66,18 +113,38 @@ public class CumulativeAggregator {
                 }
             }
 
-            if (countSubsamplesAsSingle) {
-                sampleCount += 1;
-                errorCount += sampleResult.isSuccessful() ? 0 : 1;
-            } else {
-                sampleCount += count;
-                errorCount += errors;
+            long samples = countedSamples(sampleResult, countSubsamplesAsSingle);
+            long errors = countedErrors(sampleResult, countSubsamplesAsSingle);
+            sampleCount += samples;
+            errorCount += errors;
+            if (timeline != null) {
+                timeline.record(sampleResult.getEndTime(), samples, errors, sampleResult.getBytesAsLong());
             }
 
             firstStartTimeMs = Math.min(firstStartTimeMs, sampleResult.getStartTime());
             lastEndTimeMs = Math.max(lastEndTimeMs, sampleResult.getEndTime());
             totalBytesReceived += sampleResult.getBytesAsLong();
             totalBytesSent += sampleResult.getSentBytes();
+            changes.markChanged();
+        }
+
+        /**
+         * Fold the statistics of another label into this one.
+         */
+        void merge(LabelStats other) {
+            responseTimeStats.merge(other.responseTimeStats);
+            sampleCount += other.sampleCount;
+            errorCount += other.errorCount;
+            firstStartTimeMs = Math.min(firstStartTimeMs, other.firstStartTimeMs);
+            lastEndTimeMs = Math.max(lastEndTimeMs, other.lastEndTimeMs);
+            totalBytesReceived += other.totalBytesReceived;
+            totalBytesSent += other.totalBytesSent;
+            changes.markChanged();
+        }
+
+        long estimateMemoryBytes(String labelTag) {
+            return LABEL_OVERHEAD_BYTES + labelTag.length() * (long) Character.BYTES + responseTimeStats.estimateMemoryBytes()
+                + (timeline != null ? ThroughputTimeline.MEMORY_BYTES : 0);
         }
 
         /**
@@ -111,26 +178,168 @@ public class CumulativeAggregator {
     private final boolean countSubsamplesAsSingle;
     /**
      * Map keyed by the full sanitized tag pair (e.g., "sample_label:my_request").
+     * Kept in access order so that the first entry is always the least recently updated label.
      */
-    private final Map<String, LabelStats> labelTagToStats = new HashMap<>();
+    private final Map<String, LabelStats> labelTagToStats = new LinkedHashMap<>(16, 0.75f, true);
     
     /**
-     * Separate TOTAL tracker that receives all samples directly.
+     * Separate TOTAL tracker that receives all samples directly, or null if the total is merged from the labels when
+     * metrics are built.
      */
     private final LabelStats totalStats;
 
-    
     /**
-     * Create a new CumulativeAggregator.
+     * Changes of the total, which are tracked even when it's merged from the labels.
+     */
+    private final ChangeTracker totalChanges = new ChangeTracker();
+
+    /**
+     * Per-second throughput of the total, which is recorded even when the total is merged from the labels.
+     */
+    private final ThroughputTimeline totalTimeline = new ThroughputTimeline();
+
+    /**
+     * End time of the newest sample, in milliseconds since the epoch.
+     */
+    private long newestEndTimeMs = Long.MIN_VALUE;
+
+    /**
+     * Bucket holding the statistics of evicted labels. Created on first eviction.
+     */
+    private LabelStats otherStats = null;
+
+    /**
+     * Maximum number of labels tracked individually, 0 meaning unlimited.
+     */
+    private final int maxLabels;
+
+    /**
+     * Approximate memory budget for all tracked labels, 0 meaning unlimited.
+     */
+    private final long maxMemoryBytes;
+
+    /**
+     * Percentiles emitted for the response time of every label.
+     */
+    private final Percentiles responseTimePercentiles;
+
+    /**
+     * Number of {@link #buildMetrics} calls after which the metrics of a label that didn't change are built again.
+     * 1 builds every label at every call.
+     */
+    private final int heartbeatIntervals;
+
+    /**
+     * Seconds before the newest sample that are not rolled up into the per-second throughput statistics until the
+     * final metrics, because samples that end in them may still be added.
+     */
+    private final long throughputLatenessSeconds;
+
+    /**
+     * Number of labels folded into {@link #OTHER_LABEL_TAG} since the beginning of the test.
+     */
+    private long evictedLabels = 0;
+
+    /**
+     * Optional settings of a {@link CumulativeAggregator}, the defaults being those of
+     * {@link #CumulativeAggregator(Supplier, boolean)}.
+     */
+    public static final class Settings {
+        private int maxLabels = 0;
+        private long maxMemoryBytes = 0;
+        private boolean recordTotal = true;
+        private Percentiles responseTimePercentiles = Percentiles.DEFAULT;
+        private int heartbeatIntervals = 1;
+        private long throughputLatenessSeconds = 5;
+
+        /**
+         * When a budget is exceeded, the least recently updated labels are folded into a single
+         * {@code sample_label:__other__} bucket. The total is not affected by evictions.
+         * @param maxLabels maximum number of labels tracked individually, 0 for unlimited. Enforced whenever a new
+         *                  label is seen.
+         * @param maxMemoryBytes approximate memory budget for all labels, 0 for unlimited. Enforced whenever metrics
+         *                       are built.
+         */
+        public Settings budget(int maxLabels, long maxMemoryBytes) {
+            this.maxLabels = maxLabels;
+            this.maxMemoryBytes = maxMemoryBytes;
+            return this;
+        }
+
+        /**
+         * @param recordTotal If true, every sample is also recorded into the total when added, which doubles the work
+         *                    per sample. Required when the collectors can't be merged exactly, like the sliding window
+         *                    of {@link DashboardCompatibleStatsCollector}. If false, the total is merged from the
+         *                    labels whenever its metrics are built.
+         */
+        public Settings recordTotal(boolean recordTotal) {
+            this.recordTotal = recordTotal;
+            return this;
+        }
+
+        /**
+         * @param responseTimePercentiles the percentiles emitted for the response time of every label
+         */
+        public Settings responseTimePercentiles(Percentiles responseTimePercentiles) {
+            this.responseTimePercentiles = responseTimePercentiles;
+            return this;
+        }
+
+        /**
+         * @param heartbeatIntervals number of {@link #buildMetrics} calls after which the metrics of an unchanged
+         *                           label are built again, 1 to build every label every time. Final metrics always
+         *                           include every label.
+         */
+        public Settings heartbeatIntervals(int heartbeatIntervals) {
+            this.heartbeatIntervals = heartbeatIntervals;
+            return this;
+        }
+
+        /**
+         * @param throughputLatenessSeconds seconds before the end of the newest sample, of any label, that are not
+         *                                  rolled up into the per-second throughput until the final metrics. Samples
+         *                                  ending before that once their second is rolled up are counted as late.
+         */
+        public Settings throughputLatenessSeconds(long throughputLatenessSeconds) {
+            this.throughputLatenessSeconds = throughputLatenessSeconds;
+            return this;
+        }
+    }
+
+    /**
+     * Create a new CumulativeAggregator without label or memory budget.
      * 
      * @param statsFactory factory for creating StatsCollector instances
      * @param countSubsamplesAsSingle If true, each SampleResult is treated as a single data point (for HTML Dashboard compatibility).
      *                                  If false, the total time is averaged across the sample count (for Aggregate Report compatibility).
      */
     public CumulativeAggregator(Supplier<StatsCollector> statsFactory, boolean countSubsamplesAsSingle) {
+        this(statsFactory, countSubsamplesAsSingle, new Settings());
+    }
+
+    /**
+     * Create a new CumulativeAggregator.
+     *
+     * @param statsFactory factory for creating StatsCollector instances
+     * @param countSubsamplesAsSingle If true, each SampleResult is treated as a single data point (for HTML Dashboard compatibility).
+     *                                  If false, the total time is averaged across the sample count (for Aggregate Report compatibility).
+     * @param settings the budgets, percentiles and build options, read once
+     */
+    public CumulativeAggregator(Supplier<StatsCollector> statsFactory, boolean countSubsamplesAsSingle, Settings settings) {
+        if (settings.heartbeatIntervals < 1) {
+            throw new IllegalArgumentException("The heartbeat must be at least 1 interval, got " + settings.heartbeatIntervals + ".");
+        }
+        if (settings.throughputLatenessSeconds < 0) {
+            throw new IllegalArgumentException("The throughput lateness must not be negative, got " + settings.throughputLatenessSeconds + ".");
+        }
         this.statsFactory = statsFactory;
         this.countSubsamplesAsSingle = countSubsamplesAsSingle;
-        this.totalStats = new LabelStats(statsFactory.get());
+        this.totalStats = settings.recordTotal ? new LabelStats(statsFactory.get(), null) : null;
+        this.maxLabels = settings.maxLabels;
+        this.maxMemoryBytes = settings.maxMemoryBytes;
+        this.responseTimePercentiles = settings.responseTimePercentiles;
+        this.heartbeatIntervals = settings.heartbeatIntervals;
+        this.throughputLatenessSeconds = settings.throughputLatenessSeconds;
     }
 
     /**
@@ -139,38 +348,122 @@ public class CumulativeAggregator {
      * @param sampleResult the JMeter sample result
      */
     public void addSample(SampleResult sampleResult) {
-        String labelTag = CommonUtils.sanitizeTagPair(SAMPLE_LABEL_KEY, sampleResult.getSampleLabel());
+        addSample(sampleResult, sampleResult.getSampleLabel());
+    }
+
+    /**
+     * Add a sample result to the tracker under the given label instead of its own.
+     *
+     * @param sampleResult the JMeter sample result
+     * @param label the label to aggregate the sample under, typically the normalized sample label
+     */
+    public void addSample(SampleResult sampleResult, String label) {
+        String labelTag = toLabelTag(label);
+
+        lock.lock();
+        try {
+            addSampleLocked(sampleResult, labelTag);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add several sample results with a single lock acquisition. Same as calling {@link #addSample(SampleResult, String)}
+     * for each of them, in order.
+     *
+     * @param sampleResults the JMeter sample results
+     * @param labels the label of each sample result, typically the normalized sample labels
+     */
+    public void addSamples(List<SampleResult> sampleResults, List<String> labels) {
+        String[] labelTags = new String[labels.size()];
+        for (int i = 0; i < labelTags.length; i++) {
+            labelTags[i] = toLabelTag(labels.get(i));
+        }
+
+        lock.lock();
+        try {
+            for (int i = 0; i < labelTags.length; i++) {
+                addSampleLocked(sampleResults.get(i), labelTags[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of samples of a result, as counted in the statistics
+     */
+    private static long countedSamples(SampleResult sampleResult, boolean countSubsamplesAsSingle) {
+        return countSubsamplesAsSingle ? 1 : sampleResult.getSampleCount();
+    }
+
+    /**
+     * @return the number of errors of a result, as counted in the statistics
+     */
+    private static long countedErrors(SampleResult sampleResult, boolean countSubsamplesAsSingle) {
+        if (countSubsamplesAsSingle) {
+            return sampleResult.isSuccessful() ? 0 : 1;
+        }
+        return sampleResult.getErrorCount();
+    }
+
+    private static String toLabelTag(String label) {
+        String labelTag = CommonUtils.sanitizeTagPair(SAMPLE_LABEL_KEY, label);
 
         // Escape if the sanitized tag matches our reserved TOTAL tag
         if (TOTAL_LABEL_TAG.equals(labelTag)) {
             labelTag = ESCAPED_TOTAL_LABEL_TAG;
         }
+        return labelTag;
+    }
 
-        lock.lock();
-        try {
-            // Add to per-label stats
-            LabelStats stats = labelTagToStats.get(labelTag);
-            if (stats == null) {
-                stats = new LabelStats(statsFactory.get());
-                labelTagToStats.put(labelTag, stats);
+    /**
+     * Must be called with the lock held.
+     */
+    private void addSampleLocked(SampleResult sampleResult, String labelTag) {
+        // Add to per-label stats
+        LabelStats stats = labelTagToStats.get(labelTag);
+        if (stats == null) {
+            if (maxLabels > 0 && labelTagToStats.size() >= maxLabels) {
+                evictLeastRecentlyUpdated();
             }
-            stats.addSample(sampleResult, countSubsamplesAsSingle);
+            stats = new LabelStats(statsFactory.get(), new ThroughputTimeline());
+            labelTagToStats.put(labelTag, stats);
+        }
+        stats.addSample(sampleResult, countSubsamplesAsSingle);
 
-            // Also add to TOTAL
+        // Also add to TOTAL, unless it's merged from the labels
+        if (totalStats != null) {
             totalStats.addSample(sampleResult, countSubsamplesAsSingle);
-        } finally {
-            lock.unlock();
         }
+        totalTimeline.record(sampleResult.getEndTime(), countedSamples(sampleResult, countSubsamplesAsSingle),
+            countedErrors(sampleResult, countSubsamplesAsSingle), sampleResult.getBytesAsLong());
+        newestEndTimeMs = Math.max(newestEndTimeMs, sampleResult.getEndTime());
+        totalChanges.markChanged();
     }
 
     /**
-     * Build aggregate metrics for all labels and the total.
+     * Build aggregate metrics for the labels and the total that changed since the last call, and for those that were
+     * skipped by the last {@code heartbeatIntervals - 1} calls.
      *
      * @param baseTags base tags to include on all metrics (statistics_mode, final, custom tags)
      * @return list of aggregate metrics
      */
     public List<DatadogMetric> buildMetrics(List<String> baseTags) {
-        return buildMetricsWithPrefix(baseTags, "jmeter.cumulative.");
+        return buildMetricsWithPrefix(baseTags, "jmeter.cumulative.", true);
+    }
+
+    /**
+     * Build aggregate metrics for all labels and the total, whether they changed or not. Doesn't count as a build for
+     * {@link #buildMetrics}. Like the final metrics, the per-second throughput includes every second, so samples
+     * added afterwards are not counted in it anymore.
+     *
+     * @param baseTags base tags to include on all metrics (statistics_mode, final, custom tags)
+     * @return list of aggregate metrics
+     */
+    public List<DatadogMetric> buildAllMetrics(List<String> baseTags) {
+        return buildMetricsWithPrefix(baseTags, "jmeter.cumulative.", false);
     }
 
     /**
@@ -181,7 +474,7 @@ public class CumulativeAggregator {
      * @return list of final result metrics
      */
     public List<DatadogMetric> buildFinalMetrics(List<String> baseTags) {
-        return buildMetricsWithPrefix(baseTags, "jmeter.final_result.");
+        return buildMetricsWithPrefix(baseTags, "jmeter.final_result.", false);
     }
 
     /**
@@ -189,20 +482,43 @@ public class CumulativeAggregator {
      *
      * @param baseTags base tags to include on all metrics
      * @param metricPrefix the metric name prefix (e.g., "jmeter.cumulative." or "jmeter.final_result.")
+     * @param changedOnly whether to skip the labels that didn't change since the last build, until their heartbeat.
+     *                    Otherwise, every second is rolled up into the per-second throughput.
      * @return list of metrics
      */
-    private List<DatadogMetric> buildMetricsWithPrefix(List<String> baseTags, String metricPrefix) {
+    private List<DatadogMetric> buildMetricsWithPrefix(List<String> baseTags, String metricPrefix, boolean changedOnly) {
         lock.lock();
         try {
+            enforceMemoryBudget();
+
             List<DatadogMetric> out = new ArrayList<>();
+            long rollUpSecond = changedOnly
+                ? Math.floorDiv(newestEndTimeMs, 1000L) - throughputLatenessSeconds
+                : Long.MAX_VALUE;
 
             // Append per-label metrics
             for (Map.Entry<String, LabelStats> entry : labelTagToStats.entrySet()) {
-                appendLabelMetrics(out, entry.getKey(), entry.getValue(), baseTags, metricPrefix);
+                if (!changedOnly || entry.getValue().changes.shouldBuild(heartbeatIntervals)) {
+                    appendLabelMetrics(out, entry.getKey(), entry.getValue(), entry.getValue().timeline, rollUpSecond,
+                        baseTags, metricPrefix);
+                }
+            }
+
+            // Append metrics of evicted labels
+            if (otherStats != null && (!changedOnly || otherStats.changes.shouldBuild(heartbeatIntervals))) {
+                appendLabelMetrics(out, OTHER_LABEL_TAG, otherStats, null, rollUpSecond, baseTags, metricPrefix);
             }
 
             // Append total metrics (aggregate across all samplers)
-            appendLabelMetrics(out, TOTAL_LABEL_TAG, totalStats, baseTags, metricPrefix);
+            if (!changedOnly || totalChanges.shouldBuild(heartbeatIntervals)) {
+                appendLabelMetrics(out, TOTAL_LABEL_TAG, totalStats != null ? totalStats : mergeTotal(), totalTimeline,
+                    rollUpSecond, baseTags, metricPrefix);
+            }
+
+            if (maxLabels > 0 || maxMemoryBytes > 0) {
+                out.add(new DatadogMetric(metricPrefix + "labels.tracked", "gauge", labelTagToStats.size(), baseTags));
+                out.add(new DatadogMetric(metricPrefix + "labels.evicted", "gauge", evictedLabels, baseTags));
+            }
 
             return out;
         } finally {
@@ -210,13 +526,75 @@ public class CumulativeAggregator {
         }
     }
 
-    private void appendLabelMetrics(List<DatadogMetric> out, String labelTag, LabelStats stats,
-                                    List<String> baseTags, String metricPrefix) {
+    /**
+     * Merge the statistics of all labels, including evicted ones, into a new total. Must be called with the lock held.
+     */
+    private LabelStats mergeTotal() {
+        LabelStats total = new LabelStats(statsFactory.get(), null);
+        for (LabelStats stats : labelTagToStats.values()) {
+            total.merge(stats);
+        }
+        if (otherStats != null) {
+            total.merge(otherStats);
+        }
+        return total;
+    }
+
+    /**
+     * Fold the least recently updated label into the {@link #OTHER_LABEL_TAG} bucket. Must be called with the lock held.
+     * @return the change in estimated memory, usually negative
+     */
+    private long evictLeastRecentlyUpdated() {
+        Iterator<Map.Entry<String, LabelStats>> it = labelTagToStats.entrySet().iterator();
+        Map.Entry<String, LabelStats> eldest = it.next();
+        it.remove();
+
+        long delta = -eldest.getValue().estimateMemoryBytes(eldest.getKey());
+        if (otherStats == null) {
+            otherStats = new LabelStats(statsFactory.get(), null);
+        } else {
+            delta -= otherStats.estimateMemoryBytes(OTHER_LABEL_TAG);
+        }
+        otherStats.merge(eldest.getValue());
+        delta += otherStats.estimateMemoryBytes(OTHER_LABEL_TAG);
+
+        evictedLabels++;
+        return delta;
+    }
+
+    /**
+     * Evict labels until the estimated footprint fits in {@link #maxMemoryBytes}. Must be called with the lock held.
+     * The total and the {@link #OTHER_LABEL_TAG} bucket can't be evicted, so the budget may still be exceeded once
+     * every label has been folded.
+     */
+    private void enforceMemoryBudget() {
+        if (maxMemoryBytes <= 0) {
+            return;
+        }
+        long used = ThroughputTimeline.MEMORY_BYTES + (totalStats != null ? totalStats.estimateMemoryBytes(TOTAL_LABEL_TAG) : 0);
+        if (otherStats != null) {
+            used += otherStats.estimateMemoryBytes(OTHER_LABEL_TAG);
+        }
+        for (Map.Entry<String, LabelStats> entry : labelTagToStats.entrySet()) {
+            used += entry.getValue().estimateMemoryBytes(entry.getKey());
+        }
+        while (used > maxMemoryBytes && !labelTagToStats.isEmpty()) {
+            used += evictLeastRecentlyUpdated();
+        }
+    }
+
+    /**
+     * @param timeline the per-second throughput of the label, or null if it has none
+     * @param rollUpSecond the first second not to roll up into the per-second throughput
+     */
+    private void appendLabelMetrics(List<DatadogMetric> out, String labelTag, LabelStats stats, ThroughputTimeline timeline,
+                                    long rollUpSecond, List<String> baseTags, String metricPrefix) {
         List<String> tags = new ArrayList<>(baseTags);
         tags.add(labelTag); // Already a complete sanitized tag pair (e.g., "sample_label:my_request")
 
         // Response time percentiles
-        HistogramMetrics.emit(metricPrefix + "response_time", tags, stats.responseTimeStats, false, out);
+        HistogramMetrics.emit(metricPrefix + "response_time", TagSet.of(tags), stats.responseTimeStats,
+            responseTimePercentiles, false, out);
 
         // Sample count
         out.add(new DatadogMetric(metricPrefix + "responses_count", "gauge", (double) stats.sampleCount, tags));
@@ -240,5 +618,21 @@ public class CumulativeAggregator {
             out.add(new DatadogMetric(metricPrefix + "bytes_received.rate", "gauge", bytesReceivedPerSecond, tags));
             out.add(new DatadogMetric(metricPrefix + "bytes_sent.rate", "gauge", bytesSentPerSecond, tags));
         }
+
+        // Per-second throughput, over the seconds rolled up so far
+        if (timeline != null) {
+            timeline.rollUpUntil(rollUpSecond);
+            if (timeline.getRolledSeconds() > 0) {
+                out.add(new DatadogMetric(metricPrefix + "throughput.rps.max", "gauge", timeline.getMaxRps(), tags));
+                out.add(new DatadogMetric(metricPrefix + "throughput.rps.min", "gauge", timeline.getMinRps(), tags));
+                out.add(new DatadogMetric(metricPrefix + "throughput.rps.stddev", "gauge", timeline.getRpsStddev(), tags));
+                out.add(new DatadogMetric(metricPrefix + "throughput.error_rps.max", "gauge", timeline.getMaxErrorsPerSecond(), tags));
+                out.add(new DatadogMetric(metricPrefix + "bytes_received.rate.max", "gauge",
+                    timeline.getMaxBytesReceivedPerSecond(), tags));
+            }
+            if (timeline.getLateSamples() > 0) {
+                out.add(new DatadogMetric(metricPrefix + "throughput.samples.late", "gauge", timeline.getLateSamples(), tags));
+            }
+        }
     }
 }
@@ -0,0 +1,309 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.mapping.CubicallyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import com.datadoghq.sketch.ddsketch.mapping.LinearlyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.mapping.LogarithmicMapping;
+import com.datadoghq.sketch.ddsketch.store.CollapsingHighestDenseStore;
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore;
+import com.datadoghq.sketch.ddsketch.store.SparseStore;
+import com.datadoghq.sketch.ddsketch.store.Store;
+import com.datadoghq.sketch.ddsketch.store.UnboundedSizeDenseStore;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The relative accuracy, index mapping and bin store of the sketches of a {@link DDSketchStatsCollector}.
+ *
+ * The mapping trades CPU for memory: the logarithmic one needs the fewest bins for a given accuracy but computes a
+ * logarithm for every value, the interpolated ones need a few more bins and are cheaper. The collapsing stores cap the
+ * number of bins by merging the lowest or highest ones together, which loses accuracy only on that end of the
+ * distribution.
+ */
+public final class DDSketchSettings {
+
+    /**
+     * Default relative accuracy. 0.01 means percentile values are accurate within 1%.
+     */
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    /**
+     * Default cap on the number of bins of a collapsing store. With a 1% accuracy, that's 17 orders of magnitude, at
+     * most 16 KiB per store.
+     */
+    public static final int DEFAULT_MAX_BINS = 2048;
+
+    /**
+     * Settings of the histograms that are not configured otherwise, including the response time and latency ones.
+     * Collapsing the lowest bins keeps the tail percentiles accurate even when a spike of timeouts stretches the range.
+     */
+    public static final DDSketchSettings DEFAULT =
+        new DDSketchSettings(Mapping.CUBIC, DEFAULT_RELATIVE_ACCURACY, StoreType.COLLAPSING_LOWEST, DEFAULT_MAX_BINS);
+
+    /**
+     * Settings of the byte size histograms, which span many orders of magnitude. A 2% accuracy halves the number of
+     * bins needed to cover them, the logarithmic mapping would only save a few more for twice the CPU.
+     */
+    public static final DDSketchSettings DEFAULT_BYTES =
+        new DDSketchSettings(Mapping.CUBIC, 0.02, StoreType.COLLAPSING_LOWEST, 1024);
+
+    /**
+     * The index mapping of the sketch.
+     */
+    public enum Mapping {
+        LOGARITHMIC("logarithmic"),
+        CUBIC("cubic"),
+        LINEAR("linear");
+
+        private final String value;
+
+        Mapping(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        IndexMapping create(double relativeAccuracy) {
+            switch (this) {
+                case LOGARITHMIC:
+                    return new LogarithmicMapping(relativeAccuracy);
+                case CUBIC:
+                    return new CubicallyInterpolatedMapping(relativeAccuracy);
+                case LINEAR:
+                    return new LinearlyInterpolatedMapping(relativeAccuracy);
+                default:
+                    throw new IllegalStateException("Unknown mapping: " + this);
+            }
+        }
+
+        /**
+         * Parse a string value to a Mapping enum.
+         * @param value the string value (case-insensitive)
+         * @return the corresponding Mapping
+         * @throws IllegalArgumentException if the value is not valid
+         */
+        public static Mapping fromStringValue(String value) {
+            String normalized = value.trim().toLowerCase();
+            return Arrays.stream(values())
+                .filter(mapping -> mapping.value.equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                    "Invalid sketch mapping: '" + value + "'. Valid options: " + getValidMappings()));
+        }
+
+        /**
+         * Get a comma-separated list of all valid mapping values.
+         */
+        public static String getValidMappings() {
+            return Arrays.stream(values())
+                .map(mapping -> mapping.value)
+                .collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * The bin store of the sketch.
+     */
+    public enum StoreType {
+        /**
+         * One counter for every bin between the lowest and the highest value, without limit.
+         */
+        UNBOUNDED_DENSE("unbounded_dense"),
+        /**
+         * One counter for every bin between the lowest and the highest value, the lowest bins being merged together
+         * beyond the max number of bins.
+         */
+        COLLAPSING_LOWEST("collapsing_lowest"),
+        /**
+         * One counter for every bin between the lowest and the highest value, the highest bins being merged together
+         * beyond the max number of bins.
+         */
+        COLLAPSING_HIGHEST("collapsing_highest"),
+        /**
+         * One map entry per non-empty bin. Slower, smaller when the values are spread thin over a wide range.
+         */
+        SPARSE("sparse");
+
+        private final String value;
+
+        StoreType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        boolean isCollapsing() {
+            return this == COLLAPSING_LOWEST || this == COLLAPSING_HIGHEST;
+        }
+
+        Supplier<Store> supplier(int maxBins) {
+            switch (this) {
+                case UNBOUNDED_DENSE:
+                    return UnboundedSizeDenseStore::new;
+                case COLLAPSING_LOWEST:
+                    return () -> new CollapsingLowestDenseStore(maxBins);
+                case COLLAPSING_HIGHEST:
+                    return () -> new CollapsingHighestDenseStore(maxBins);
+                case SPARSE:
+                    return SparseStore::new;
+                default:
+                    throw new IllegalStateException("Unknown store: " + this);
+            }
+        }
+
+        /**
+         * Parse a string value to a StoreType enum.
+         * @param value the string value (case-insensitive)
+         * @return the corresponding StoreType
+         * @throws IllegalArgumentException if the value is not valid
+         */
+        public static StoreType fromStringValue(String value) {
+            String normalized = value.trim().toLowerCase();
+            return Arrays.stream(values())
+                .filter(store -> store.value.equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                    "Invalid sketch store: '" + value + "'. Valid options: " + getValidStores()));
+        }
+
+        /**
+         * Get a comma-separated list of all valid store values.
+         */
+        public static String getValidStores() {
+            return Arrays.stream(values())
+                .map(store -> store.value)
+                .collect(Collectors.joining(", "));
+        }
+    }
+
+    private final Mapping mapping;
+    private final double relativeAccuracy;
+    private final StoreType store;
+    private final int maxBins;
+
+    /**
+     * @param mapping the index mapping
+     * @param relativeAccuracy the relative accuracy of the percentiles, between 0 and 1 exclusive
+     * @param store the bin store
+     * @param maxBins the max number of bins of a collapsing store, ignored by the other stores
+     * @throws IllegalArgumentException if the accuracy or the max number of bins is out of range
+     */
+    public DDSketchSettings(Mapping mapping, double relativeAccuracy, StoreType store, int maxBins) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("The relative accuracy must be between 0 and 1 exclusive, got " + relativeAccuracy + ".");
+        }
+        if (store.isCollapsing() && maxBins <= 0) {
+            throw new IllegalArgumentException("The max number of bins must be positive, got " + maxBins + ".");
+        }
+        this.mapping = mapping;
+        this.relativeAccuracy = relativeAccuracy;
+        this.store = store;
+        this.maxBins = store.isCollapsing() ? maxBins : 0;
+    }
+
+    /**
+     * @param spec colon-separated {@code mapping:accuracy:store[:maxBins]}, e.g. {@code cubic:0.01:collapsing_lowest:2048}
+     *             or {@code logarithmic:0.02:sparse}. The max number of bins defaults to {@link #DEFAULT_MAX_BINS} for
+     *             collapsing stores, and is not allowed for the others.
+     * @return the parsed settings
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public static DDSketchSettings parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("Sketch settings '" + spec.trim() + "' are not of the form mapping:accuracy:store[:maxBins].");
+        }
+        Mapping mapping = Mapping.fromStringValue(parts[0]);
+        double relativeAccuracy;
+        try {
+            relativeAccuracy = Double.parseDouble(parts[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + parts[1].trim() + "' is not a relative accuracy.");
+        }
+        StoreType store = StoreType.fromStringValue(parts[2]);
+        int maxBins = DEFAULT_MAX_BINS;
+        if (parts.length == 4) {
+            if (!store.isCollapsing()) {
+                throw new IllegalArgumentException("The max number of bins only applies to collapsing stores, not to '" + store.getValue() + "'.");
+            }
+            try {
+                maxBins = Integer.parseInt(parts[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("'" + parts[3].trim() + "' is not a number of bins.");
+            }
+        }
+        return new DDSketchSettings(mapping, relativeAccuracy, store, maxBins);
+    }
+
+    /**
+     * @return the default settings of the histograms of the given family
+     */
+    public static DDSketchSettings defaultFor(MetricFamily family) {
+        switch (family) {
+            case BYTES_SENT:
+            case BYTES_RECEIVED:
+                return DEFAULT_BYTES;
+            default:
+                return DEFAULT;
+        }
+    }
+
+    DDSketch createSketch() {
+        return new DDSketch(mapping.create(relativeAccuracy), store.supplier(maxBins));
+    }
+
+    public Mapping getMapping() {
+        return mapping;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public StoreType getStore() {
+        return store;
+    }
+
+    /**
+     * @return the max number of bins of a collapsing store, 0 for the other stores
+     */
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DDSketchSettings)) {
+            return false;
+        }
+        DDSketchSettings that = (DDSketchSettings) o;
+        return mapping == that.mapping && Double.compare(relativeAccuracy, that.relativeAccuracy) == 0
+            && store == that.store && maxBins == that.maxBins;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mapping, relativeAccuracy, store, maxBins);
+    }
+
+    @Override
+    public String toString() {
+        String spec = mapping.getValue() + ":" + relativeAccuracy + ":" + store.getValue();
+        return store.isCollapsing() ? spec + ":" + maxBins : spec;
+    }
+}
@@ -0,0 +1,48 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link DDSketchSettings} of the histograms of each {@link MetricFamily}. Families that were not configured use
+ * {@link DDSketchSettings#defaultFor(MetricFamily)}.
+ */
+public final class DDSketchSettingsByFamily {
+
+    /**
+     * {@link DDSketchSettings#defaultFor(MetricFamily)} for every family.
+     */
+    public static final DDSketchSettingsByFamily DEFAULT = new DDSketchSettingsByFamily(new EnumMap<>(MetricFamily.class));
+
+    private final Map<MetricFamily, DDSketchSettings> byFamily;
+
+    private DDSketchSettingsByFamily(Map<MetricFamily, DDSketchSettings> byFamily) {
+        this.byFamily = byFamily;
+    }
+
+    /**
+     * @param spec semicolon-separated {@code family=mapping:accuracy:store[:maxBins]} entries, e.g.
+     *             {@code response_time=cubic:0.01:collapsing_lowest:4096;bytes_sent=logarithmic:0.02:sparse}. Empty
+     *             for the default settings.
+     * @return the settings of each family
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public static DDSketchSettingsByFamily parse(String spec) {
+        return new DDSketchSettingsByFamily(MetricFamily.parseEntries(spec, "family=mapping:accuracy:store[:maxBins]", DDSketchSettings::parse));
+    }
+
+    public DDSketchSettings forFamily(MetricFamily family) {
+        DDSketchSettings settings = byFamily.get(family);
+        return settings != null ? settings : DDSketchSettings.defaultFor(family);
+    }
+
+    @Override
+    public String toString() {
+        return byFamily.toString();
+    }
+}
@@ -6,38 +6,59 @@
 package org.datadog.jmeter.plugins.aggregation;
 
 import com.datadoghq.sketch.ddsketch.DDSketch;
-import com.datadoghq.sketch.ddsketch.mapping.CubicallyInterpolatedMapping;
-import com.datadoghq.sketch.ddsketch.store.UnboundedSizeDenseStore;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import com.datadoghq.sketch.ddsketch.store.Bin;
+import com.datadoghq.sketch.ddsketch.store.Store;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 /**
  * StatsCollector implementation using Datadog's DDSketch algorithm.
  *
  * DDSketch provides guaranteed relative accuracy for percentile estimation.
- * This implementation uses 1% relative accuracy which is suitable for most
- * monitoring use cases.
+ * The accuracy, index mapping and bin store are set by {@link DDSketchSettings}, by default a 1% relative accuracy
+ * which is suitable for most monitoring use cases.
  */
 public class DDSketchStatsCollector implements StatsCollector {
 
     /**
-     * Relative accuracy for DDSketch. 0.01 means percentile values are accurate within 1%.
+     * Relative accuracy of the default settings. 0.01 means percentile values are accurate within 1%.
      */
-    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final double RELATIVE_ACCURACY = DDSketchSettings.DEFAULT_RELATIVE_ACCURACY;
 
-    private DDSketch sketch;
+    /**
+     * Approximate fixed cost of the collector, its sketch, mapping and empty stores.
+     */
+    private static final long OBJECT_OVERHEAD_BYTES = 256;
+
+    /**
+     * Approximate cost of one bin of a sparse store: a TreeMap entry, a boxed Integer index and a boxed Double count.
+     */
+    private static final long BYTES_PER_SPARSE_BIN = 72;
+
+    private final DDSketchSettings settings;
+    private final DDSketch sketch;
     private long count;
     private double sum;
 
+    /**
+     * Create a collector with the {@link DDSketchSettings#DEFAULT} settings.
+     */
     public DDSketchStatsCollector() {
-        this.sketch = createSketch();
+        this(DDSketchSettings.DEFAULT);
     }
 
-    private static DDSketch createSketch() {
-        return new DDSketch(
-            new CubicallyInterpolatedMapping(RELATIVE_ACCURACY),
-            // Reference: https://github.com/DataDog/sketches-java/blob/29ac31297cace959ddcff0745d6d29ac663329a6/src/main/java/com/datadoghq/sketch/ddsketch/DDSketches.java#L41
-            UnboundedSizeDenseStore::new
-        );
+    /**
+     * @param settings the accuracy, mapping and store of the sketch
+     */
+    public DDSketchStatsCollector(DDSketchSettings settings) {
+        this.settings = settings;
+        this.sketch = settings.createSketch();
+    }
+
+    public DDSketchSettings getSettings() {
+        return settings;
     }
 
     @Override
@@ -48,7 +69,16 @@ public class DDSketchStatsCollector implements StatsCollector {
     }
 
     @Override
-    public Optional<AggregationSnapshot> getSnapshot() {
+    public void addValues(double[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            this.sum += values[i];
+            sketch.accept(values[i]);
+        }
+        this.count += count;
+    }
+
+    @Override
+    public Optional<AggregationSnapshot> getSnapshot(Percentiles percentiles) {
         if (count == 0) {
             return Optional.empty();
         }
@@ -57,15 +87,128 @@ public class DDSketchStatsCollector implements StatsCollector {
             sketch.getMinValue(),
             sketch.getMaxValue(),
             sum / count,
-            sketch.getValueAtQuantile(0.50),
-            sketch.getValueAtQuantile(0.90),
-            sketch.getValueAtQuantile(0.95),
-            sketch.getValueAtQuantile(0.99)
+            percentiles, getValuesAtQuantiles(percentiles.quantileArray())
         ));
     }
 
+    /**
+     * Same values as {@link DDSketch#getValueAtQuantile(double)}, which walks the bins up to the quantile and sums the
+     * stores to get the count on every call. This walks the bins once for all quantiles.
+     */
+    @Override
+    public double[] getValuesAtQuantiles(double[] quantiles) {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        Store negativeStore = sketch.getNegativeValueStore();
+        Store positiveStore = sketch.getPositiveValueStore();
+        // Values too close to 0 to be indexed are only counted, count is the same as the sketch's
+        double zeroCount = count - negativeStore.getTotalCount() - positiveStore.getTotalCount();
+
+        QuantileWalk walk = new QuantileWalk(sketch.getIndexMapping(), quantiles, count);
+        Iterator<Bin> negativeBins = negativeStore.getDescendingIterator();
+        while (negativeBins.hasNext() && !walk.isDone()) {
+            Bin bin = negativeBins.next();
+            walk.accept(bin.getIndex(), bin.getCount(), true);
+        }
+        walk.acceptZeros(zeroCount);
+        if (!walk.isDone()) {
+            // Dense stores walk their array without allocating bins
+            positiveStore.forEach((index, binCount) -> walk.accept(index, binCount, false));
+        }
+        return walk.values;
+    }
+
+    /**
+     * Cumulative walk over the bins in ascending value order, resolving each quantile at the first bin whose cumulative
+     * count exceeds its rank.
+     */
+    private static final class QuantileWalk {
+        private final IndexMapping mapping;
+        private final double[] ranks;
+        private final double[] values;
+        private double cumulative = 0;
+        private int next = 0;
+
+        QuantileWalk(IndexMapping mapping, double[] quantiles, long count) {
+            this.mapping = mapping;
+            this.ranks = new double[quantiles.length];
+            for (int i = 0; i < quantiles.length; i++) {
+                if (quantiles[i] < 0 || quantiles[i] > 1) {
+                    throw new IllegalArgumentException("The quantile must be between 0 and 1.");
+                }
+                if (i > 0 && quantiles[i] < quantiles[i - 1]) {
+                    throw new IllegalArgumentException("The quantiles must be in ascending order.");
+                }
+                ranks[i] = quantiles[i] * (count - 1);
+            }
+            this.values = new double[quantiles.length];
+        }
+
+        boolean isDone() {
+            return next == ranks.length;
+        }
+
+        void accept(int index, double binCount, boolean negative) {
+            cumulative += binCount;
+            while (next < ranks.length && cumulative > ranks[next]) {
+                double value = mapping.value(index);
+                values[next++] = negative ? -value : value;
+            }
+        }
+
+        void acceptZeros(double zeroCount) {
+            cumulative += zeroCount;
+            while (next < ranks.length && cumulative > ranks[next]) {
+                values[next++] = 0;
+            }
+        }
+    }
+
     @Override
     public long getCount() {
         return count;
     }
+
+    @Override
+    public void merge(StatsCollector other) {
+        if (!(other instanceof DDSketchStatsCollector)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into a DDSketchStatsCollector");
+        }
+        DDSketchStatsCollector o = (DDSketchStatsCollector) other;
+        // The collapsing stores of sketches-java only merge stores of their own type correctly
+        if (!settings.equals(o.settings)) {
+            throw new IllegalArgumentException("Cannot merge a sketch with settings " + o.settings + " into one with settings " + settings);
+        }
+        this.count += o.count;
+        this.sum += o.sum;
+        sketch.mergeWith(o.sketch);
+    }
+
+    @Override
+    public void reset() {
+        // Keeps the dense stores' arrays, and the sparse store's map
+        sketch.clear();
+        this.count = 0;
+        this.sum = 0;
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        return OBJECT_OVERHEAD_BYTES + storeBytes(sketch.getPositiveValueStore()) + storeBytes(sketch.getNegativeValueStore());
+    }
+
+    private long storeBytes(Store store) {
+        if (store.isEmpty()) {
+            return 0;
+        }
+        if (settings.getStore() == DDSketchSettings.StoreType.SPARSE) {
+            long[] bins = new long[1];
+            store.forEach((index, binCount) -> bins[0]++);
+            return bins[0] * BYTES_PER_SPARSE_BIN;
+        }
+        // Dense stores keep one double counter per bin between the lowest and highest index, which collapsing stores
+        // keep under their max number of bins
+        return ((long) store.getMaxIndex() - store.getMinIndex() + 1) * Double.BYTES;
+    }
 }
@@ -8,15 +8,19 @@ package org.datadog.jmeter.plugins.aggregation;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile.EstimationType;
+import org.apache.commons.math3.util.KthSelector;
 import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 /**
  * StatsCollector implementation that mimics the HTML Dashboard's percentile calculation.
  * 
- * Uses Apache Commons Math's DescriptiveStatistics with a sliding window, matching
- * JMeter's HTML Report Generator behavior.
+ * Computes the same values as Apache Commons Math's DescriptiveStatistics with a sliding window, matching
+ * JMeter's HTML Report Generator behavior. The window is a primitive ring, its min and max are tracked as values
+ * are added, and percentiles are read from a sorted copy that is only updated when the window changed.
  */
 public class DashboardCompatibleStatsCollector implements StatsCollector {
 
@@ -31,7 +35,70 @@ public class DashboardCompatibleStatsCollector implements StatsCollector {
     private static final String ESTIMATOR_PROPERTY = "backend_metrics_percentile_estimator";
     private static final EstimationType DEFAULT_ESTIMATOR = EstimationType.LEGACY;
 
-    private final DescriptiveStatistics statistics;
+    /**
+     * Approximate fixed cost of the collector.
+     */
+    private static final long OBJECT_OVERHEAD_BYTES = 256;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The sorted copy is updated incrementally when at most this fraction of the window changed since it was built,
+     * and sorted again from the window otherwise.
+     */
+    private static final int INCREMENTAL_SORT_DIVISOR = 4;
+
+    /**
+     * Selects in data that is already sorted, so that {@link EstimationType} computes its percentiles from the sorted
+     * copy with the same arithmetic as {@link Percentile}.
+     */
+    private static final KthSelector SORTED_SELECTOR = new KthSelector() {
+        @Override
+        public double select(double[] work, int[] pivotsHeap, int k) {
+            return work[k];
+        }
+    };
+
+    private final int windowSize;
+    private final EstimationType estimationType;
+
+    /**
+     * The window, oldest value at {@code head - size}. Grows up to the window size, then wraps.
+     */
+    private double[] ring;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Positions in {@link #ring} of the candidates for the min and the max of the window, from oldest to newest.
+     * Values are increasing in the first one and decreasing in the second one. NaNs are ignored, like
+     * {@link org.apache.commons.math3.stat.descriptive.rank.Min} does.
+     */
+    private final IndexDeque minCandidates = new IndexDeque();
+    private final IndexDeque maxCandidates = new IndexDeque();
+
+    /**
+     * Sorted copy of the window when it was last built, exactly as long as the window was then. Its array is reused
+     * when it has to be sorted again.
+     */
+    private double[] sorted = new double[0];
+    /**
+     * Whether {@link #sorted} can be updated from the values added and evicted since it was built, rather than sorted
+     * again from the window.
+     */
+    private boolean sortedValid = false;
+    /**
+     * Number of values added since the sorted copy was built, which are the newest ones of the window.
+     */
+    private int addedSinceSort = 0;
+    /**
+     * Values evicted from the window since the sorted copy was built.
+     */
+    private double[] evictedSinceSort = new double[0];
+    private int evictedCount = 0;
+
+    private double mean = Double.NaN;
+    private boolean meanValid = false;
 
     /**
      * Creates a DashboardCompatibleStatsCollector with explicit configuration.
@@ -40,8 +107,12 @@ public class DashboardCompatibleStatsCollector implements StatsCollector {
      * @param estimationType the percentile estimation algorithm to use
      */
     public DashboardCompatibleStatsCollector(int windowSize, EstimationType estimationType) {
-        this.statistics = new DescriptiveStatistics(windowSize);
-        this.statistics.setPercentileImpl(new Percentile().withEstimationType(estimationType));
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive, got " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.estimationType = estimationType;
+        this.ring = new double[Math.min(INITIAL_CAPACITY, windowSize)];
     }
 
     /**
@@ -91,29 +162,258 @@ public class DashboardCompatibleStatsCollector implements StatsCollector {
     
     @Override
     public void addValue(double valueSeconds) {
-        statistics.addValue(valueSeconds);
+        if (size == ring.length && size < windowSize) {
+            // Not wrapped yet, the values are at the beginning of the ring
+            ring = Arrays.copyOf(ring, Math.min(windowSize, ring.length * 2));
+            head = size;
+        }
+        if (size == windowSize) {
+            evict(ring[head]);
+            minCandidates.removeFirstIf(head);
+            maxCandidates.removeFirstIf(head);
+        } else {
+            size++;
+        }
+        ring[head] = valueSeconds;
+        if (!Double.isNaN(valueSeconds)) {
+            // Ties keep the newest value, like the Min and Max statistics that scan the window
+            while (!minCandidates.isEmpty() && ring[minCandidates.last()] >= valueSeconds) {
+                minCandidates.removeLast();
+            }
+            minCandidates.addLast(head);
+            while (!maxCandidates.isEmpty() && ring[maxCandidates.last()] <= valueSeconds) {
+                maxCandidates.removeLast();
+            }
+            maxCandidates.addLast(head);
+        }
+        head = head + 1 == ring.length ? 0 : head + 1;
+        addedSinceSort++;
+        meanValid = false;
+    }
+
+    private void evict(double value) {
+        if (!sortedValid) {
+            return;
+        }
+        if (addedSinceSort >= size / INCREMENTAL_SORT_DIVISOR) {
+            // Too many changes, sort the window again rather than update the copy
+            sortedValid = false;
+            return;
+        }
+        if (evictedCount == evictedSinceSort.length) {
+            evictedSinceSort = Arrays.copyOf(evictedSinceSort, Math.max(INITIAL_CAPACITY, evictedCount * 2));
+        }
+        evictedSinceSort[evictedCount++] = value;
     }
 
     @Override
-    public Optional<AggregationSnapshot> getSnapshot() {
-        if (statistics.getN() == 0) {
+    public Optional<AggregationSnapshot> getSnapshot(Percentiles percentiles) {
+        if (size == 0) {
             return Optional.empty();
         }
 
-        double min = statistics.getMin();
-        double max = statistics.getMax();
-        double mean = statistics.getMean();
-        
-        double p50 = statistics.getPercentile(50.0);
-        double p90 = statistics.getPercentile(90.0);
-        double p95 = statistics.getPercentile(95.0);
-        double p99 = statistics.getPercentile(99.0);
+        double min = minCandidates.isEmpty() ? Double.NaN : ring[minCandidates.first()];
+        double max = maxCandidates.isEmpty() ? Double.NaN : ring[maxCandidates.first()];
+
+        return Optional.of(new AggregationSnapshot(min, max, getMean(), percentiles, getValuesAtQuantiles(percentiles.quantileArray())));
+    }
+
+    /**
+     * Same value as {@link org.apache.commons.math3.stat.descriptive.moment.Mean}, which corrects the mean of the sum
+     * with a second pass over the window. A running sum would drift as values are evicted, so this computes it the
+     * same way, once per change of the window.
+     */
+    private double getMean() {
+        if (!meanValid) {
+            int oldest = oldest();
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += ring[wrap(oldest + i)];
+            }
+            double n = size;
+            double xbar = sum / n;
+            double correction = 0;
+            for (int i = 0; i < size; i++) {
+                correction += ring[wrap(oldest + i)] - xbar;
+            }
+            mean = xbar + correction / n;
+            meanValid = true;
+        }
+        return mean;
+    }
+
+    /**
+     * Same values as {@link DescriptiveStatistics#getPercentile(double)}, which copies the window and selects in the copy
+     * on every call. This keeps a sorted copy of the window, only updated when values were added since the previous
+     * call, and reads every quantile from it.
+     */
+    @Override
+    public double[] getValuesAtQuantiles(double[] quantiles) {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        updateSorted();
+        double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            double p = quantiles[i] * 100.0;
+            if (p > 100 || p <= 0) {
+                throw new IllegalArgumentException("The quantile must be between 0 (excluded) and 1.");
+            }
+            // Percentile doesn't interpolate a single value
+            values[i] = size == 1 ? sorted[0] : estimationType.evaluate(sorted, p, SORTED_SELECTOR);
+        }
+        return values;
+    }
+
+    private void updateSorted() {
+        if (sortedValid && addedSinceSort == 0) {
+            return;
+        }
+        if (!sortedValid || addedSinceSort > size / INCREMENTAL_SORT_DIVISOR) {
+            double[] copy = sorted.length == size ? sorted : new double[size];
+            int oldest = oldest();
+            for (int i = 0; i < size; i++) {
+                copy[i] = ring[wrap(oldest + i)];
+            }
+            Arrays.sort(copy);
+            sorted = copy;
+        } else {
+            // Remove the evicted values, then merge the added ones from the end
+            Arrays.sort(evictedSinceSort, 0, evictedCount);
+            int kept = 0;
+            int e = 0;
+            for (double value : sorted) {
+                if (e < evictedCount && Double.compare(value, evictedSinceSort[e]) == 0) {
+                    e++;
+                } else {
+                    sorted[kept++] = value;
+                }
+            }
+            double[] added = new double[addedSinceSort];
+            for (int i = 0; i < addedSinceSort; i++) {
+                added[i] = ring[wrap(head - addedSinceSort + i)];
+            }
+            Arrays.sort(added);
+            double[] merged = sorted.length == size ? sorted : Arrays.copyOf(sorted, size);
+            int i = kept - 1;
+            int j = added.length - 1;
+            for (int w = size - 1; j >= 0; w--) {
+                merged[w] = i >= 0 && Double.compare(merged[i], added[j]) > 0 ? merged[i--] : added[j--];
+            }
+            sorted = merged;
+        }
+        sortedValid = true;
+        addedSinceSort = 0;
+        evictedCount = 0;
+    }
+
+    private int oldest() {
+        return wrap(head - size);
+    }
 
-        return Optional.of(new AggregationSnapshot(min, max, mean, p50, p90, p95, p99));
+    private int wrap(int index) {
+        return index < 0 ? index + ring.length : (index >= ring.length ? index - ring.length : index);
     }
 
     @Override
     public long getCount() {
-        return statistics.getN();
+        return size;
+    }
+
+    /**
+     * Replay the values currently held in the other collector's window into this one.
+     * The result is bounded by this collector's window size, like any other sequence of additions.
+     */
+    @Override
+    public void merge(StatsCollector other) {
+        if (!(other instanceof DashboardCompatibleStatsCollector)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into a DashboardCompatibleStatsCollector");
+        }
+        DashboardCompatibleStatsCollector o = (DashboardCompatibleStatsCollector) other;
+        double[] values = new double[o.size];
+        int oldest = o.oldest();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = o.ring[o.wrap(oldest + i)];
+        }
+        addValues(values, values.length);
+    }
+
+    /**
+     * Empty the window, keeping its underlying arrays.
+     */
+    @Override
+    public void reset() {
+        head = 0;
+        size = 0;
+        minCandidates.clear();
+        maxCandidates.clear();
+        sortedValid = false;
+        addedSinceSort = 0;
+        evictedCount = 0;
+        meanValid = false;
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        return OBJECT_OVERHEAD_BYTES
+            + ((long) ring.length + sorted.length + evictedSinceSort.length) * Double.BYTES
+            + (minCandidates.capacity() + maxCandidates.capacity()) * Integer.BYTES;
+    }
+
+    /**
+     * Growable circular buffer of ring positions.
+     */
+    private static final class IndexDeque {
+        private int[] elements = new int[INITIAL_CAPACITY];
+        private int first = 0;
+        private int count = 0;
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        int first() {
+            return elements[first];
+        }
+
+        int last() {
+            return elements[(first + count - 1) & (elements.length - 1)];
+        }
+
+        void addLast(int index) {
+            if (count == elements.length) {
+                int[] grown = new int[elements.length * 2];
+                for (int i = 0; i < count; i++) {
+                    grown[i] = elements[(first + i) & (elements.length - 1)];
+                }
+                elements = grown;
+                first = 0;
+            }
+            elements[(first + count) & (elements.length - 1)] = index;
+            count++;
+        }
+
+        void removeLast() {
+            count--;
+        }
+
+        /**
+         * Remove the first position if it is the given one, which is about to be overwritten.
+         */
+        void removeFirstIf(int index) {
+            if (count > 0 && elements[first] == index) {
+                first = (first + 1) & (elements.length - 1);
+                count--;
+            }
+        }
+
+        void clear() {
+            first = 0;
+            count = 0;
+        }
+
+        long capacity() {
+            return elements.length;
+        }
     }
 }
@@ -0,0 +1,198 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+
+/**
+ * Thread-safe aggregator of interval metrics by the time the samples ended, rather than the time they are processed
+ * at, so that a backed up sample queue doesn't shift samples into later intervals.
+ *
+ * Every open interval has its own {@link IntervalAggregator}, kept in a ring sized for the allowed lateness. An interval
+ * is emitted once the watermark, the flush time minus the allowed lateness, passes its end. Samples of an interval
+ * that was already emitted are late: they are counted, and recorded into the oldest open interval so that none is
+ * lost. Samples ending after the newest interval of the ring are recorded into it.
+ */
+public class EventTimeAggregator {
+    private final long intervalMillis;
+    private final long allowedLatenessMillis;
+    /**
+     * The aggregator of an open interval is at the index of the interval, modulo the size of the ring.
+     */
+    private final IntervalAggregator[] ring;
+    /**
+     * Start of the oldest open interval, the intervals before it were emitted.
+     */
+    private long oldestOpen;
+    private long lateSamples = 0;
+    private long totalLateSamples = 0;
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * @param intervalMillis the length of the intervals, in milliseconds
+     * @param allowedLatenessMillis how long after the end of an interval its samples are still accepted, in milliseconds
+     * @param startMillis the start of the test, the interval that contains it is the oldest open one
+     * @param aggregatorFactory creates the aggregator of a slot of the ring, reused for every interval of the slot
+     * @throws IllegalArgumentException if the interval is not positive or the lateness is negative
+     */
+    public EventTimeAggregator(long intervalMillis, long allowedLatenessMillis, long startMillis,
+                               Supplier<IntervalAggregator> aggregatorFactory) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The interval must be positive, got " + intervalMillis + ".");
+        }
+        if (allowedLatenessMillis < 0) {
+            throw new IllegalArgumentException("The allowed lateness must not be negative, got " + allowedLatenessMillis + ".");
+        }
+        this.intervalMillis = intervalMillis;
+        this.allowedLatenessMillis = allowedLatenessMillis;
+        this.ring = new IntervalAggregator[ringSize(intervalMillis, allowedLatenessMillis)];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = aggregatorFactory.get();
+        }
+        this.oldestOpen = intervalStart(startMillis);
+    }
+
+    /**
+     * Between two flushes, samples end at most one interval after the flush time, and the oldest open interval ends
+     * less than the allowed lateness before it.
+     * @return the number of intervals that are open at once
+     */
+    static int ringSize(long intervalMillis, long allowedLatenessMillis) {
+        return (int) ((allowedLatenessMillis + intervalMillis - 1) / intervalMillis) + 2;
+    }
+
+    /**
+     * @param timeMillis a time, in milliseconds since the epoch
+     * @return the start of the interval that contains it
+     */
+    public long intervalStart(long timeMillis) {
+        return Math.floorDiv(timeMillis, intervalMillis) * intervalMillis;
+    }
+
+    /**
+     * Same as {@link IntervalAggregator#recordSamples} on the aggregator of the interval the samples ended in.
+     * @param endTimeMillis the end time of the samples, or any time of the same interval
+     * @param tags the tags of all the metrics, ideally interned
+     * @param group the samples to record
+     */
+    public void recordSamples(long endTimeMillis, TagSet tags, SampleGroup group) {
+        lock.lock();
+        try {
+            aggregatorFor(endTimeMillis, group.size()).recordSamples(tags, group);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link IntervalAggregator#incrementCounter} on the aggregator of the interval the sample ended in.
+     * @param endTimeMillis the end time of the sample
+     */
+    public void incrementCounter(long endTimeMillis, String name, TagSet tags, long incrementValue) {
+        lock.lock();
+        try {
+            aggregatorFor(endTimeMillis, 0).incrementCounter(name, tags, incrementValue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     * @param samples the number of samples about to be recorded, counted as late if their interval was emitted
+     */
+    private IntervalAggregator aggregatorFor(long endTimeMillis, long samples) {
+        long start = intervalStart(endTimeMillis);
+        if (start < oldestOpen) {
+            lateSamples += samples;
+            totalLateSamples += samples;
+            start = oldestOpen;
+        }
+        return ring[slot(Math.min(start, oldestOpen + (ring.length - 1) * intervalMillis))];
+    }
+
+    private int slot(long intervalStart) {
+        return (int) Math.floorMod(intervalStart / intervalMillis, (long) ring.length);
+    }
+
+    /**
+     * Emit the intervals that end at or before the watermark, {@code nowMillis} minus the allowed lateness.
+     * @param nowMillis the flush time, in milliseconds since the epoch
+     * @return the metrics of every emitted interval that has some, by interval start
+     */
+    public SortedMap<Long, List<DatadogMetric>> flushMetrics(long nowMillis) {
+        return flushUntil(intervalStart(nowMillis - allowedLatenessMillis));
+    }
+
+    /**
+     * Emit every open interval, without waiting for late samples. Called when the test ends.
+     * @return the metrics of every interval that has some, by interval start
+     */
+    public SortedMap<Long, List<DatadogMetric>> flushAllMetrics() {
+        lock.lock();
+        try {
+            return flushUntil(oldestOpen + ring.length * intervalMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param newOldestOpen the start of the oldest interval to keep open
+     */
+    private SortedMap<Long, List<DatadogMetric>> flushUntil(long newOldestOpen) {
+        SortedMap<Long, List<DatadogMetric>> metrics = new TreeMap<>();
+        // Flushed with the lock held: once the watermark moves, the next sample may reuse the slot of a flushed interval
+        lock.lock();
+        try {
+            // Only the intervals of the ring may have metrics, skip the others after a long pause
+            long end = Math.min(newOldestOpen, oldestOpen + ring.length * intervalMillis);
+            for (long start = oldestOpen; start < end; start += intervalMillis) {
+                List<DatadogMetric> intervalMetrics = ring[slot(start)].flushMetrics();
+                if (!intervalMetrics.isEmpty()) {
+                    metrics.put(start, intervalMetrics);
+                }
+            }
+            oldestOpen = Math.max(oldestOpen, newOldestOpen);
+        } finally {
+            lock.unlock();
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the number of late samples since the last call
+     */
+    public long drainLateSamples() {
+        lock.lock();
+        try {
+            long late = lateSamples;
+            lateSamples = 0;
+            return late;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of late samples since the start of the test
+     */
+    public long getTotalLateSamples() {
+        lock.lock();
+        try {
+            return totalLateSamples;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
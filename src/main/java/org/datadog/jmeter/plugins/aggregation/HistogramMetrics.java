@@ -8,6 +8,7 @@ package org.datadog.jmeter.plugins.aggregation;
 import java.util.List;
 import java.util.Optional;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.TagSet;
 
 /**
  * Utility class for emitting standard histogram metrics from a StatsCollector.
@@ -26,12 +27,37 @@ public final class HistogramMetrics {
      * @param metrics the list to add the metrics to
      */
     public static void emit(String baseName, List<String> tags, StatsCollector stats, boolean includeCount, List<DatadogMetric> metrics) {
-        Optional<AggregationSnapshot> snapshot = stats.getSnapshot();
-        
+        emit(baseName, TagSet.of(tags), stats, Percentiles.DEFAULT, includeCount, metrics);
+    }
+
+    /**
+     * Emit standard histogram metrics from a StatsCollector, all sharing the given tag set.
+     * @param baseName the base metric name (e.g., "jmeter.response_time")
+     * @param tags the tags to apply to all metrics
+     * @param stats the StatsCollector containing the aggregated data
+     * @param includeCount whether to include the count metric in the output
+     * @param metrics the list to add the metrics to
+     */
+    public static void emit(String baseName, TagSet tags, StatsCollector stats, boolean includeCount, List<DatadogMetric> metrics) {
+        emit(baseName, tags, stats, Percentiles.DEFAULT, includeCount, metrics);
+    }
+
+    /**
+     * Emit histogram metrics from a StatsCollector with the given percentiles, all sharing the given tag set.
+     * @param baseName the base metric name (e.g., "jmeter.response_time")
+     * @param tags the tags to apply to all metrics
+     * @param stats the StatsCollector containing the aggregated data
+     * @param percentiles the percentiles to emit, besides min, max and avg
+     * @param includeCount whether to include the count metric in the output
+     * @param metrics the list to add the metrics to
+     */
+    public static void emit(String baseName, TagSet tags, StatsCollector stats, Percentiles percentiles, boolean includeCount, List<DatadogMetric> metrics) {
+        Optional<AggregationSnapshot> snapshot = stats.getSnapshot(percentiles);
+
         if (snapshot.isPresent()) {
             AggregationSnapshot s = snapshot.get();
-            for (String field : AggregationSnapshot.FIELDS) {
-                metrics.add(new DatadogMetric(baseName + "." + field, "gauge", s.get(field), tags));
+            for (int i = 0; i < s.size(); i++) {
+                metrics.add(new DatadogMetric(baseName + "." + s.getField(i), "gauge", s.getValue(i), tags));
             }
         }
 
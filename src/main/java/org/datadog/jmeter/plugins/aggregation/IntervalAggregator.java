@@ -6,48 +6,157 @@
 package org.datadog.jmeter.plugins.aggregation;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
 import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+import org.datadog.jmeter.plugins.metrics.TagSet;
 
 /**
  * Thread-safe aggregator for interval-based JMeter metrics.
  * Aggregates counters, gauges, and histograms until flushed, at which it's reset.
+ *
+ * Histogram collectors are reset and kept after a flush rather than reallocated, since the same contexts are usually
+ * updated again in the next interval. A context that stays empty for {@code maxIdleIntervals} intervals is evicted.
  */
 public class IntervalAggregator {
-    private final Supplier<StatsCollector> statsFactory;
-    private Map<DatadogMetricContext, Long> counters = new HashMap<>();
-    private Map<DatadogMetricContext, Double> gauges = new HashMap<>();
-    private Map<DatadogMetricContext, StatsCollector> histograms = new HashMap<>();
+    /**
+     * Default number of consecutive empty intervals after which a histogram context is evicted.
+     */
+    public static final int DEFAULT_MAX_IDLE_INTERVALS = 6;
+
+    private final StatsFactoryByFamily statsFactories;
+    /**
+     * The sample metric families recorded into the sample bundles, and the number of contexts of a bundle.
+     */
+    private final Set<MetricFamily> families;
+    private final int bundleContexts;
+    private final int maxIdleIntervals;
+    private final PercentilesByFamily percentiles;
+    /**
+     * Optional limit on the number of counter and histogram contexts per interval. Gauges are not limited, they
+     * are only used for plugin-level metrics.
+     */
+    private final CardinalityGovernor governor;
+    /**
+     * Counters and gauges are stored as primitives and emitted with the lock held, then cleared for reuse.
+     */
+    private final ContextTable counters = new ContextTable();
+    private final ContextTable gauges = new ContextTable();
+    /**
+     * Histograms and sample bundles are double-buffered: a flush swaps in the spare maps, emits the previous ones
+     * without the lock, then resets their collectors and moves them back to the current maps for reuse. Entries
+     * that are empty were not updated during the current interval.
+     */
+    private Map<DatadogMetricContext, Slot<StatsCollector>> histograms = new HashMap<>();
+    private Map<TagSet, Slot<SampleBundle>> samples = new HashMap<>();
+    private Map<DatadogMetricContext, Slot<StatsCollector>> spareHistograms = new HashMap<>();
+    private Map<TagSet, Slot<SampleBundle>> spareSamples = new HashMap<>();
     private Lock lock = new ReentrantLock();
     Semaphore testOnlyBlocker = null;
 
+    /**
+     * Optional settings of an {@link IntervalAggregator}, the defaults being those of
+     * {@link #IntervalAggregator(Supplier)}.
+     */
+    public static final class Settings {
+        private CardinalityGovernor governor = null;
+        private int maxIdleIntervals = DEFAULT_MAX_IDLE_INTERVALS;
+        private PercentilesByFamily percentiles = PercentilesByFamily.DEFAULT;
+        private Set<MetricFamily> families = EnumSet.allOf(MetricFamily.class);
+
+        /**
+         * @param governor the limit to apply to counters and histograms, or null for unlimited. Holds the state of an
+         *                 interval, so it must not be shared by several aggregators.
+         */
+        public Settings governor(CardinalityGovernor governor) {
+            this.governor = governor;
+            return this;
+        }
+
+        /**
+         * @param maxIdleIntervals number of consecutive intervals without updates after which the collectors of a
+         *                         histogram context are released, 0 to release them at every flush
+         */
+        public Settings maxIdleIntervals(int maxIdleIntervals) {
+            this.maxIdleIntervals = maxIdleIntervals;
+            return this;
+        }
+
+        /**
+         * @param percentiles the percentiles of the sample histograms. Other histograms emit the default percentiles.
+         */
+        public Settings percentiles(PercentilesByFamily percentiles) {
+            this.percentiles = percentiles;
+            return this;
+        }
+
+        /**
+         * @param families the sample metric families whose histograms and counters are recorded by
+         *                 {@link IntervalAggregator#recordSample} and {@link IntervalAggregator#recordSamples}, the others are ignored
+         */
+        public Settings families(Set<MetricFamily> families) {
+            this.families = families;
+            return this;
+        }
+    }
+
     /**
      * Create aggregator with pluggable stats collector.
      * @param statsFactory factory for creating StatsCollector instances for histograms
      */
     public IntervalAggregator(Supplier<StatsCollector> statsFactory) {
-        this.statsFactory = statsFactory;
+        this(new StatsFactoryByFamily(statsFactory), new Settings());
+    }
+
+    /**
+     * Create aggregator with a stats collector factory for the histograms of each sample metric family.
+     * @param statsFactories factories for creating StatsCollector instances, the default one being used for the
+     *                       histograms recorded individually
+     * @param settings the limits, retention, percentiles and recorded families, read once
+     */
+    public IntervalAggregator(StatsFactoryByFamily statsFactories, Settings settings) {
+        this.statsFactories = statsFactories;
+        this.families = settings.families.isEmpty() ? EnumSet.noneOf(MetricFamily.class) : EnumSet.copyOf(settings.families);
+        this.bundleContexts = SampleBundle.contextCount(this.families);
+        this.governor = settings.governor;
+        this.maxIdleIntervals = settings.maxIdleIntervals;
+        this.percentiles = settings.percentiles;
     }
 
     public void incrementCounter(String name, List<String> tags, long incrementValue) {
         incrementCounter(new DatadogMetricContext(name, tags), incrementValue);
     }
 
+    public void incrementCounter(String name, TagSet tags, long incrementValue) {
+        incrementCounter(new DatadogMetricContext(name, tags), incrementValue);
+    }
+
     public void incrementCounter(DatadogMetricContext context, long incrementValue) {
         lock.lock();
         try {
-            Long previousValue = counters.getOrDefault(context, (long) 0);
+            int slot = counters.find(context);
+            if (slot < 0) {
+                context = admit(context);
+                if (context == null) {
+                    return;
+                }
+                slot = counters.findOrInsert(context);
+            }
             if(testOnlyBlocker != null) {
                 testOnlyBlocker.acquireUninterruptibly();
             }
-            counters.put(context, previousValue + incrementValue);
+            counters.add(slot, incrementValue);
         } finally {
             lock.unlock();
         }
@@ -63,7 +172,7 @@ public class IntervalAggregator {
             if(testOnlyBlocker != null) {
                 testOnlyBlocker.acquireUninterruptibly();
             }
-            gauges.put(context, value);
+            gauges.setDouble(gauges.findOrInsert(context), value);
         } finally {
             lock.unlock();
         }
@@ -73,69 +182,240 @@ public class IntervalAggregator {
         histogram(new DatadogMetricContext(name, tags), value);
     }
 
+    public void histogram(String name, TagSet tags, double value) {
+        histogram(new DatadogMetricContext(name, tags), value);
+    }
+
     public void histogram(DatadogMetricContext context, double value) {
         lock.lock();
         try {
-            StatsCollector collector = histograms.get(context);
-            if (collector == null) {
-                collector = statsFactory.get();
-                histograms.put(context, collector);
+            Slot<StatsCollector> slot = histograms.get(context);
+            if (slot == null || slot.value.getCount() == 0) {
+                // First update of the interval
+                context = admit(context);
+                if (context == null) {
+                    return;
+                }
+                slot = histograms.get(context);
+            }
+            if (slot == null) {
+                slot = new Slot<>(statsFactories.getDefault().get());
+                histograms.put(context, slot);
+            }
+            if(testOnlyBlocker != null) {
+                testOnlyBlocker.acquireUninterruptibly();
+            }
+            slot.value.addValue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the interval metrics of one sample result with a single lookup: {@code jmeter.responses_count},
+     * {@code jmeter.bytes_sent.total} and {@code jmeter.bytes_received.total} counters, and {@code jmeter.response_time},
+     * {@code jmeter.bytes_sent}, {@code jmeter.bytes_received} and {@code jmeter.latency} histograms.
+     * These metrics must not be recorded with the same tags through the individual methods as well.
+     * @param tags the tags of all the metrics, ideally interned
+     * @param responses the increment of the responses counter
+     * @param responseTime the response time, in seconds
+     * @param bytesSent the number of bytes sent
+     * @param bytesReceived the number of bytes received
+     * @param latency the latency, in seconds
+     */
+    public void recordSample(TagSet tags, long responses, double responseTime, long bytesSent, long bytesReceived, double latency) {
+        lock.lock();
+        try {
+            SampleBundle bundle = bundleFor(tags, 1);
+            if (bundle == null) {
+                return;
             }
             if(testOnlyBlocker != null) {
                 testOnlyBlocker.acquireUninterruptibly();
             }
-            collector.addValue(value);
+            bundle.record(responses, responseTime, bytesSent, bytesReceived, latency);
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Same as calling {@link #recordSample} for every sample of the group, in order, with a single lookup and lock acquisition.
+     * @param tags the tags of all the metrics, ideally interned
+     * @param group the samples to record
+     */
+    public void recordSamples(TagSet tags, SampleGroup group) {
+        if (group.size() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            SampleBundle bundle = bundleFor(tags, group.size());
+            if (bundle == null) {
+                return;
+            }
+            group.applyTo(bundle);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     * @param sampleCount the number of samples about to be recorded
+     * @return the bundle to record samples with the given tags into, or null if they must be dropped
+     */
+    private SampleBundle bundleFor(TagSet tags, int sampleCount) {
+        Slot<SampleBundle> slot = samples.get(tags);
+        if (slot != null && !slot.value.isEmpty()) {
+            return slot.value;
+        }
+        // First update of the interval
+        if (governor != null) {
+            tags = governor.admitBundle(tags, bundleContexts, sampleCount);
+            if (tags == null) {
+                return null;
+            }
+            slot = samples.get(tags);
+        }
+        if (slot == null) {
+            slot = new Slot<>(new SampleBundle(statsFactories, families));
+            samples.put(tags, slot);
+        }
+        return slot.value;
+    }
+
+    /**
+     * Route an update to a context that has no value yet in the current interval through the governor.
+     * Must be called with the lock held.
+     * @return the context to update, or null if the update must be dropped
+     */
+    private DatadogMetricContext admit(DatadogMetricContext context) {
+        if (governor == null) {
+            return context;
+        }
+        return governor.admit(context);
+    }
+
     public List<DatadogMetric> flushMetrics() {
         lock.lock();
-        Map<DatadogMetricContext, Long> countersPtr;
-        Map<DatadogMetricContext, Double> gaugesPtr;
-        Map<DatadogMetricContext, StatsCollector> histogramsPtr;
+        Map<DatadogMetricContext, Slot<StatsCollector>> histogramsPtr;
+        Map<TagSet, Slot<SampleBundle>> samplesPtr;
+        List<DatadogMetric> metrics = new ArrayList<>();
 
         try {
-            countersPtr = counters;
-            gaugesPtr = gauges;
             histogramsPtr = histograms;
+            samplesPtr = samples;
 
-            counters = new HashMap<>();
-            gauges = new HashMap<>();
-            histograms = new HashMap<>();
+            // The spare maps are null while a concurrent flush still uses them
+            histograms = spareHistograms != null ? spareHistograms : new HashMap<>();
+            samples = spareSamples != null ? spareSamples : new HashMap<>();
+            spareHistograms = null;
+            spareSamples = null;
+
+            if (governor != null) {
+                governor.flush(metrics);
+            }
+
+            // Cheap enough to emit with the lock held, which lets the tables be reused
+            for (int i = 0; i < counters.capacity(); i++) {
+                DatadogMetricContext context = counters.keyAt(i);
+                if (context != null) {
+                    metrics.add(new DatadogMetric(context.getName(), "count", counters.longAt(i), context.getTagSet()));
+                }
+            }
+            for (int i = 0; i < gauges.capacity(); i++) {
+                DatadogMetricContext context = gauges.keyAt(i);
+                if (context != null) {
+                    metrics.add(new DatadogMetric(context.getName(), "gauge", gauges.doubleAt(i), context.getTagSet()));
+                }
+            }
+            counters.clear();
+            gauges.clear();
         } finally {
             lock.unlock();
         }
 
-        List<DatadogMetric> metrics = new ArrayList<>();
-        for(Map.Entry<DatadogMetricContext, Long> entry : countersPtr.entrySet()) {
-            metrics.add(new DatadogMetric(
-                entry.getKey().getName(),
-                "count",
-                entry.getValue(),
-                entry.getKey().getTags()
-            ));
-        }
-        for(Map.Entry<DatadogMetricContext, Double> entry : gaugesPtr.entrySet()) {
-            metrics.add(new DatadogMetric(
-                entry.getKey().getName(),
-                "gauge",
-                entry.getValue(),
-                entry.getKey().getTags()
-            ));
-        }
-        for(Map.Entry<DatadogMetricContext, StatsCollector> entry : histogramsPtr.entrySet()) {
+        for(Map.Entry<DatadogMetricContext, Slot<StatsCollector>> entry : histogramsPtr.entrySet()) {
+            StatsCollector collector = entry.getValue().value;
+            if (collector.getCount() == 0) {
+                continue;
+            }
             HistogramMetrics.emit(
                 entry.getKey().getName(),
-                entry.getKey().getTags(),
-                entry.getValue(),
+                entry.getKey().getTagSet(),
+                collector,
                 true,
                 metrics
             );
         }
 
+        for(Map.Entry<TagSet, Slot<SampleBundle>> entry : samplesPtr.entrySet()) {
+            if (!entry.getValue().value.isEmpty()) {
+                entry.getValue().value.emit(entry.getKey(), percentiles, metrics);
+            }
+        }
+
+        resetForReuse(histogramsPtr, collector -> collector.getCount() == 0, StatsCollector::reset);
+        resetForReuse(samplesPtr, SampleBundle::isEmpty, SampleBundle::reset);
+
+        lock.lock();
+        try {
+            moveForReuse(histogramsPtr, histograms);
+            moveForReuse(samplesPtr, samples);
+            spareHistograms = histogramsPtr;
+            spareSamples = samplesPtr;
+        } finally {
+            lock.unlock();
+        }
+
         return metrics;
     }
-}
 
+    /**
+     * Reset the flushed entries, and drop those that have been idle for too long. Called without the lock, the
+     * flushed map is not reachable from the recording methods anymore.
+     */
+    private <K, V> void resetForReuse(Map<K, Slot<V>> flushed, Predicate<V> isEmpty, Consumer<V> reset) {
+        Iterator<Slot<V>> it = flushed.values().iterator();
+        while (it.hasNext()) {
+            Slot<V> slot = it.next();
+            if (isEmpty.test(slot.value)) {
+                if (++slot.idleIntervals > maxIdleIntervals) {
+                    it.remove();
+                }
+                // Already empty, nothing to reset
+                continue;
+            }
+            if (maxIdleIntervals == 0) {
+                it.remove();
+                continue;
+            }
+            slot.idleIntervals = 0;
+            reset.accept(slot.value);
+        }
+    }
+
+    /**
+     * Move the reset entries back to the current map, unless the same key was updated during the flush. Leaves the
+     * flushed map empty, ready to be used as the spare one. Must be called with the lock held.
+     */
+    private static <K, V> void moveForReuse(Map<K, Slot<V>> flushed, Map<K, Slot<V>> current) {
+        for (Map.Entry<K, Slot<V>> entry : flushed.entrySet()) {
+            current.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        flushed.clear();
+    }
+
+    /**
+     * A collector kept across intervals, with the number of consecutive intervals it stayed empty.
+     */
+    private static final class Slot<V> {
+        private final V value;
+        private int idleIntervals = 0;
+
+        private Slot(V value) {
+            this.value = value;
+        }
+    }
+}
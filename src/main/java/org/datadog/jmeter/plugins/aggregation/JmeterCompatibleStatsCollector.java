@@ -5,14 +5,26 @@
 
 package org.datadog.jmeter.plugins.aggregation;
 
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import org.apache.jorphan.math.StatCalculatorLong;
 
 /**
  * StatsCollector implementation that delegates to JMeter's native {@link StatCalculatorLong}.
+ * {@link AggregateReportStatsCollector} computes the same values with primitive storage.
  */
 public class JmeterCompatibleStatsCollector implements StatsCollector {
 
+    /**
+     * Approximate cost of one distinct value in StatCalculatorLong: a TreeMap entry, a boxed Long key and a MutableLong.
+     */
+    private static final long BYTES_PER_DISTINCT_VALUE = 72;
+
+    /**
+     * Approximate fixed cost of the collector and its StatCalculatorLong instance.
+     */
+    private static final long OBJECT_OVERHEAD_BYTES = 128;
+
     private final StatCalculatorLong calculator = new StatCalculatorLong();
 
     @Override
@@ -21,7 +33,7 @@ public class JmeterCompatibleStatsCollector implements StatsCollector {
     }
 
     @Override
-    public Optional<AggregationSnapshot> getSnapshot() {
+    public Optional<AggregationSnapshot> getSnapshot(Percentiles percentiles) {
         if (calculator.getCount() == 0) {
             return Optional.empty();
         }
@@ -33,12 +45,22 @@ public class JmeterCompatibleStatsCollector implements StatsCollector {
         // Reference: https://github.com/apache/jmeter/blob/34a2785748e9e0b14702595e8682c387869deda3/src/core/src/main/java/org/apache/jmeter/visualizers/SamplingStatCalculator.java#L198-L200
         double meanSeconds = toSeconds(Math.floor(calculator.getMean()));
 
-        double p50 = toSeconds(calculator.getPercentPoint(0.50).doubleValue());
-        double p90 = toSeconds(calculator.getPercentPoint(0.90).doubleValue());
-        double p95 = toSeconds(calculator.getPercentPoint(0.95).doubleValue());
-        double p99 = toSeconds(calculator.getPercentPoint(0.99).doubleValue());
+        return Optional.of(new AggregationSnapshot(min, max, meanSeconds, percentiles, getValuesAtQuantiles(percentiles.quantileArray())));
+    }
 
-        return Optional.of(new AggregationSnapshot(min, max, meanSeconds, p50, p90, p95, p99));
+    /**
+     * StatCalculatorLong only exposes its distribution through a copy, so this looks up each quantile separately.
+     */
+    @Override
+    public double[] getValuesAtQuantiles(double[] quantiles) {
+        if (calculator.getCount() == 0) {
+            throw new NoSuchElementException();
+        }
+        double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            values[i] = toSeconds(calculator.getPercentPoint(quantiles[i]).doubleValue());
+        }
+        return values;
     }
 
     @Override
@@ -46,6 +68,34 @@ public class JmeterCompatibleStatsCollector implements StatsCollector {
         return calculator.getCount();
     }
 
+    @Override
+    public void merge(StatsCollector other) {
+        if (!(other instanceof JmeterCompatibleStatsCollector)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into a JmeterCompatibleStatsCollector");
+        }
+        calculator.addAll(((JmeterCompatibleStatsCollector) other).calculator);
+    }
+
+    @Override
+    public void reset() {
+        calculator.clear();
+    }
+
+    /**
+     * StatCalculatorLong doesn't expose its number of distinct values without copying them, so this uses an
+     * upper bound instead: values are whole milliseconds, so there can't be more of them than the range between
+     * min and max, nor more than the number of recorded samples.
+     */
+    @Override
+    public long estimateMemoryBytes() {
+        long count = calculator.getCount();
+        if (count == 0) {
+            return OBJECT_OVERHEAD_BYTES;
+        }
+        long range = calculator.getMax() - calculator.getMin() + 1;
+        return OBJECT_OVERHEAD_BYTES + Math.min(count, range) * BYTES_PER_DISTINCT_VALUE;
+    }
+
     private static long toMs(double seconds) {
         return Math.round(seconds * 1000.0);
     }
@@ -0,0 +1,83 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The quantities aggregated into histograms for every sample result. Interval and cumulative metrics of the same
+ * quantity belong to the same family, so they can be configured together.
+ */
+public enum MetricFamily {
+    RESPONSE_TIME("response_time"),
+    LATENCY("latency"),
+    BYTES_SENT("bytes_sent"),
+    BYTES_RECEIVED("bytes_received");
+
+    private final String value;
+
+    MetricFamily(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Parse a string value to a MetricFamily enum.
+     * @param value the string value (case-insensitive)
+     * @return the corresponding MetricFamily
+     * @throws IllegalArgumentException if the value is not valid
+     */
+    public static MetricFamily fromStringValue(String value) {
+        String normalized = value.trim().toLowerCase();
+        return Arrays.stream(values())
+            .filter(family -> family.value.equals(normalized))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException(
+                "Invalid metric family: '" + value + "'. Valid options: " + getValidFamilies()));
+    }
+
+    /**
+     * Get a comma-separated list of all valid family values.
+     */
+    public static String getValidFamilies() {
+        return Arrays.stream(values())
+            .map(family -> family.value)
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Parse semicolon-separated {@code family=value} entries, each family being listed at most once.
+     * @param spec the entries, empty for none
+     * @param form the form of an entry, for error messages, e.g. {@code family=percentiles}
+     * @param valueParser parses the value of an entry
+     * @return the value of each listed family
+     * @throws IllegalArgumentException if the spec or a value is invalid
+     */
+    public static <T> Map<MetricFamily, T> parseEntries(String spec, String form, Function<String, T> valueParser) {
+        Map<MetricFamily, T> byFamily = new EnumMap<>(MetricFamily.class);
+        for (String entry : spec.split(";")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Entry '" + entry.trim() + "' is not of the form " + form + ".");
+            }
+            MetricFamily family = fromStringValue(entry.substring(0, separator));
+            if (byFamily.put(family, valueParser.apply(entry.substring(separator + 1))) != null) {
+                throw new IllegalArgumentException("Metric family '" + family.getValue() + "' is listed twice.");
+            }
+        }
+        return byFamily;
+    }
+}
@@ -0,0 +1,134 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Immutable, ascending list of the percentiles emitted for a histogram, with the metric suffix of each of them.
+ *
+ * Suffixes are generated from the percentile: 50 is {@code median}, others are {@code p} followed by the percentile
+ * with {@code _} as decimal separator, e.g. {@code p75}, {@code p99_9} for 99.9 and {@code p99_99} for 99.99. Every
+ * suffix maps back to a single percentile, so no two percentiles are reported under the same name.
+ */
+public final class Percentiles {
+
+    /**
+     * The percentiles emitted by default: median, p90, p95 and p99.
+     */
+    public static final Percentiles DEFAULT = of(50, 90, 95, 99);
+
+    private final double[] quantiles;
+    private final String[] suffixes;
+
+    private Percentiles(double[] quantiles, String[] suffixes) {
+        this.quantiles = quantiles;
+        this.suffixes = suffixes;
+    }
+
+    /**
+     * @param percents the percentiles, between 0 (excluded) and 100, in any order. Duplicates are ignored.
+     * @return the percentile list
+     * @throws IllegalArgumentException if a percentile is out of range
+     */
+    public static Percentiles of(double... percents) {
+        double[] sorted = Arrays.stream(percents).sorted().distinct().toArray();
+        double[] quantiles = new double[sorted.length];
+        String[] suffixes = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            double percent = sorted[i];
+            if (!(percent > 0 && percent <= 100)) {
+                throw new IllegalArgumentException("Percentile " + percent + " is not between 0 (excluded) and 100.");
+            }
+            quantiles[i] = percent / 100;
+            suffixes[i] = suffixFor(percent);
+        }
+        return new Percentiles(quantiles, suffixes);
+    }
+
+    /**
+     * @param list comma-separated percentiles, e.g. {@code 50,90,99.9}
+     * @return the percentile list
+     * @throws IllegalArgumentException if the list is empty or invalid
+     */
+    public static Percentiles parse(String list) {
+        String[] items = list.split(",");
+        double[] percents = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            try {
+                percents[i] = Double.parseDouble(items[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Percentile '" + items[i].trim() + "' is not a number.");
+            }
+        }
+        return of(percents);
+    }
+
+    static String suffixFor(double percent) {
+        if (percent == 50) {
+            return "median";
+        }
+        // '.' separates metric name segments, '_' keeps the suffix unambiguous: 9.9 is p9_9 and 99 is p99
+        return "p" + format(percent).replace('.', '_');
+    }
+
+    private static String format(double percent) {
+        return BigDecimal.valueOf(percent).stripTrailingZeros().toPlainString();
+    }
+
+    public int size() {
+        return quantiles.length;
+    }
+
+    /**
+     * @return the quantile at the given position, between 0 and 1
+     */
+    public double getQuantile(int index) {
+        return quantiles[index];
+    }
+
+    public String getSuffix(int index) {
+        return suffixes[index];
+    }
+
+    /**
+     * @return the position of the percentile with the given suffix, or -1
+     */
+    public int indexOf(String suffix) {
+        for (int i = 0; i < suffixes.length; i++) {
+            if (suffixes[i].equals(suffix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the quantiles, between 0 and 1 and in ascending order, as expected by
+     *         {@link StatsCollector#getValuesAtQuantiles(double[])}. Must not be modified.
+     */
+    double[] quantileArray() {
+        return quantiles;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        return Arrays.equals(quantiles, ((Percentiles) obj).quantiles);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(quantiles);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(suffixes);
+    }
+}
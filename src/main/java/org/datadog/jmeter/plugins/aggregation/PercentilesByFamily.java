@@ -0,0 +1,46 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link Percentiles} emitted for each {@link MetricFamily}. Families that were not configured emit the default
+ * percentiles, so that adding tail percentiles to one family doesn't add series to the others.
+ */
+public final class PercentilesByFamily {
+
+    /**
+     * {@link Percentiles#DEFAULT} for every family.
+     */
+    public static final PercentilesByFamily DEFAULT = new PercentilesByFamily(new EnumMap<>(MetricFamily.class));
+
+    private final Map<MetricFamily, Percentiles> byFamily;
+
+    private PercentilesByFamily(Map<MetricFamily, Percentiles> byFamily) {
+        this.byFamily = byFamily;
+    }
+
+    /**
+     * @param spec semicolon-separated {@code family=percentiles} entries, e.g.
+     *             {@code response_time=50,90,99.9;latency=50,99}. Empty for the default percentiles.
+     * @return the percentiles of each family
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public static PercentilesByFamily parse(String spec) {
+        return new PercentilesByFamily(MetricFamily.parseEntries(spec, "family=percentiles", Percentiles::parse));
+    }
+
+    public Percentiles forFamily(MetricFamily family) {
+        return byFamily.getOrDefault(family, Percentiles.DEFAULT);
+    }
+
+    @Override
+    public String toString() {
+        return byFamily.toString();
+    }
+}
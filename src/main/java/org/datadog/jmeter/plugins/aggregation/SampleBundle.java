@@ -0,0 +1,165 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.List;
+import java.util.Set;
+import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+
+/**
+ * All the interval metrics recorded for the sample results sharing a tag set, so that a sample is recorded with a
+ * single lookup. Expanded back to the individual metrics when flushed.
+ *
+ * The histograms and counters of the metric families that are not recorded are neither allocated, updated nor emitted.
+ *
+ * Not thread-safe, the owning {@link IntervalAggregator} calls it with its lock held.
+ */
+final class SampleBundle {
+    static final String RESPONSES_COUNT = "jmeter.responses_count";
+    static final String RESPONSE_TIME = "jmeter.response_time";
+    static final String BYTES_SENT = "jmeter.bytes_sent";
+    static final String BYTES_SENT_TOTAL = "jmeter.bytes_sent.total";
+    static final String BYTES_RECEIVED = "jmeter.bytes_received";
+    static final String BYTES_RECEIVED_TOTAL = "jmeter.bytes_received.total";
+    static final String LATENCY = "jmeter.latency";
+
+    private long samples = 0;
+    private long responses = 0;
+    private long bytesSentTotal = 0;
+    private long bytesReceivedTotal = 0;
+    /**
+     * Null for the families that are not recorded.
+     */
+    private final StatsCollector responseTime;
+    private final StatsCollector bytesSent;
+    private final StatsCollector bytesReceived;
+    private final StatsCollector latency;
+
+    SampleBundle(StatsFactoryByFamily statsFactories, Set<MetricFamily> families) {
+        this.responseTime = create(statsFactories, families, MetricFamily.RESPONSE_TIME);
+        this.bytesSent = create(statsFactories, families, MetricFamily.BYTES_SENT);
+        this.bytesReceived = create(statsFactories, families, MetricFamily.BYTES_RECEIVED);
+        this.latency = create(statsFactories, families, MetricFamily.LATENCY);
+    }
+
+    /**
+     * @return the number of metric contexts a bundle recording the given families stands for: the responses counter,
+     *         a histogram per family and a total counter per byte size family
+     */
+    static int contextCount(Set<MetricFamily> families) {
+        int contexts = 1 + families.size();
+        if (families.contains(MetricFamily.BYTES_SENT)) {
+            contexts++;
+        }
+        if (families.contains(MetricFamily.BYTES_RECEIVED)) {
+            contexts++;
+        }
+        return contexts;
+    }
+
+    private static StatsCollector create(StatsFactoryByFamily statsFactories, Set<MetricFamily> families, MetricFamily family) {
+        return families.contains(family) ? statsFactories.forFamily(family).get() : null;
+    }
+
+    void record(long responses, double responseTime, long bytesSent, long bytesReceived, double latency) {
+        this.samples++;
+        this.responses += responses;
+        if (this.responseTime != null) {
+            this.responseTime.addValue(responseTime);
+        }
+        if (this.bytesSent != null) {
+            this.bytesSent.addValue(bytesSent);
+            this.bytesSentTotal += bytesSent;
+        }
+        if (this.bytesReceived != null) {
+            this.bytesReceived.addValue(bytesReceived);
+            this.bytesReceivedTotal += bytesReceived;
+        }
+        if (this.latency != null) {
+            this.latency.addValue(latency);
+        }
+    }
+
+    /**
+     * Record several samples at once. Each array holds one value per sample, in the order they were recorded, and is
+     * null if its family was not accumulated.
+     */
+    void recordAll(long responses, double[] responseTimes, long bytesSentTotal, double[] bytesSent,
+                   long bytesReceivedTotal, double[] bytesReceived, double[] latencies, int count) {
+        this.samples += count;
+        this.responses += responses;
+        if (this.responseTime != null && responseTimes != null) {
+            this.responseTime.addValues(responseTimes, count);
+        }
+        if (this.bytesSent != null && bytesSent != null) {
+            this.bytesSent.addValues(bytesSent, count);
+            this.bytesSentTotal += bytesSentTotal;
+        }
+        if (this.bytesReceived != null && bytesReceived != null) {
+            this.bytesReceived.addValues(bytesReceived, count);
+            this.bytesReceivedTotal += bytesReceivedTotal;
+        }
+        if (this.latency != null && latencies != null) {
+            this.latency.addValues(latencies, count);
+        }
+    }
+
+    /**
+     * @return whether no sample was recorded since the bundle was created or reset
+     */
+    boolean isEmpty() {
+        return samples == 0;
+    }
+
+    /**
+     * Remove all the recorded values, keeping the collectors for reuse.
+     */
+    void reset() {
+        this.samples = 0;
+        this.responses = 0;
+        this.bytesSentTotal = 0;
+        this.bytesReceivedTotal = 0;
+        reset(this.responseTime);
+        reset(this.bytesSent);
+        reset(this.bytesReceived);
+        reset(this.latency);
+    }
+
+    private static void reset(StatsCollector collector) {
+        if (collector != null) {
+            collector.reset();
+        }
+    }
+
+    /**
+     * Add the metrics of the bundle, named and typed as if they had been recorded individually.
+     * @param tags the tags of the bundle
+     * @param percentiles the percentiles of each histogram
+     * @param metrics the list to add the metrics to
+     */
+    void emit(TagSet tags, PercentilesByFamily percentiles, List<DatadogMetric> metrics) {
+        metrics.add(new DatadogMetric(RESPONSES_COUNT, "count", responses, tags));
+        if (bytesSent != null) {
+            metrics.add(new DatadogMetric(BYTES_SENT_TOTAL, "count", bytesSentTotal, tags));
+        }
+        if (bytesReceived != null) {
+            metrics.add(new DatadogMetric(BYTES_RECEIVED_TOTAL, "count", bytesReceivedTotal, tags));
+        }
+        if (responseTime != null) {
+            HistogramMetrics.emit(RESPONSE_TIME, tags, responseTime, percentiles.forFamily(MetricFamily.RESPONSE_TIME), true, metrics);
+        }
+        if (bytesSent != null) {
+            HistogramMetrics.emit(BYTES_SENT, tags, bytesSent, percentiles.forFamily(MetricFamily.BYTES_SENT), true, metrics);
+        }
+        if (bytesReceived != null) {
+            HistogramMetrics.emit(BYTES_RECEIVED, tags, bytesReceived, percentiles.forFamily(MetricFamily.BYTES_RECEIVED), true, metrics);
+        }
+        if (latency != null) {
+            HistogramMetrics.emit(LATENCY, tags, latency, percentiles.forFamily(MetricFamily.LATENCY), true, metrics);
+        }
+    }
+}
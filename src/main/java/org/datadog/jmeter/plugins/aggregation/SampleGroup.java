@@ -0,0 +1,96 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Local accumulator for the interval metrics of several sample results sharing a tag set, applied to an
+ * {@link IntervalAggregator} at once with {@link IntervalAggregator#recordSamples}. Values are kept in insertion order.
+ *
+ * The values of the metric families that are not accumulated are ignored.
+ *
+ * Not thread-safe, meant to be filled and applied by a single thread.
+ */
+public final class SampleGroup {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size = 0;
+    private int capacity = INITIAL_CAPACITY;
+    private long responses = 0;
+    private long bytesSentTotal = 0;
+    private long bytesReceivedTotal = 0;
+    /**
+     * Null for the families that are not accumulated.
+     */
+    private double[] responseTimes;
+    private double[] bytesSent;
+    private double[] bytesReceived;
+    private double[] latencies;
+
+    /**
+     * Accumulate every metric family.
+     */
+    public SampleGroup() {
+        this(EnumSet.allOf(MetricFamily.class));
+    }
+
+    /**
+     * @param families the metric families to accumulate, the values of the others are ignored
+     */
+    public SampleGroup(Set<MetricFamily> families) {
+        this.responseTimes = families.contains(MetricFamily.RESPONSE_TIME) ? new double[INITIAL_CAPACITY] : null;
+        this.bytesSent = families.contains(MetricFamily.BYTES_SENT) ? new double[INITIAL_CAPACITY] : null;
+        this.bytesReceived = families.contains(MetricFamily.BYTES_RECEIVED) ? new double[INITIAL_CAPACITY] : null;
+        this.latencies = families.contains(MetricFamily.LATENCY) ? new double[INITIAL_CAPACITY] : null;
+    }
+
+    /**
+     * Add the metrics of one sample result, same parameters as {@link IntervalAggregator#recordSample}.
+     */
+    public void add(long responses, double responseTime, long bytesSent, long bytesReceived, double latency) {
+        if (size == capacity) {
+            this.capacity = size * 2;
+            this.responseTimes = grow(this.responseTimes, capacity);
+            this.bytesSent = grow(this.bytesSent, capacity);
+            this.bytesReceived = grow(this.bytesReceived, capacity);
+            this.latencies = grow(this.latencies, capacity);
+        }
+        this.responses += responses;
+        if (this.responseTimes != null) {
+            this.responseTimes[size] = responseTime;
+        }
+        if (this.bytesSent != null) {
+            this.bytesSentTotal += bytesSent;
+            this.bytesSent[size] = bytesSent;
+        }
+        if (this.bytesReceived != null) {
+            this.bytesReceivedTotal += bytesReceived;
+            this.bytesReceived[size] = bytesReceived;
+        }
+        if (this.latencies != null) {
+            this.latencies[size] = latency;
+        }
+        size++;
+    }
+
+    private static double[] grow(double[] values, int capacity) {
+        return values != null ? Arrays.copyOf(values, capacity) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the accumulated values to a bundle. Called with the aggregator lock held.
+     */
+    void applyTo(SampleBundle bundle) {
+        bundle.recordAll(responses, responseTimes, bytesSentTotal, bytesSent, bytesReceivedTotal, bytesReceived, latencies, size);
+    }
+}
@@ -19,15 +19,63 @@ public interface StatsCollector {
      */
     void addValue(double value);
 
+    /**
+     * Add several values to the collector, in order.
+     * @param values the values to add
+     * @param count the number of values to add, from the beginning of the array
+     */
+    default void addValues(double[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            addValue(values[i]);
+        }
+    }
+
+    /**
+     * Get a snapshot of the current statistics, with the {@link Percentiles#DEFAULT} percentiles.
+     * @return an Optional containing the snapshot if values have been added, or empty if count is 0.
+     */
+    default Optional<AggregationSnapshot> getSnapshot() {
+        return getSnapshot(Percentiles.DEFAULT);
+    }
+
     /**
      * Get a snapshot of the current statistics.
+     * @param percentiles the percentiles to compute
      * @return an Optional containing the snapshot if values have been added, or empty if count is 0.
      */
-    Optional<AggregationSnapshot> getSnapshot();
+    Optional<AggregationSnapshot> getSnapshot(Percentiles percentiles);
+
+    /**
+     * Compute the values at several quantiles at once. Implementations do it in a single pass over their data where
+     * they can, rather than once per quantile.
+     * @param quantiles the quantiles, between 0 and 1, in ascending order
+     * @return the value at each quantile
+     * @throws java.util.NoSuchElementException if no value was added
+     */
+    double[] getValuesAtQuantiles(double[] quantiles);
 
     /**
      * Get the count of values added.
      * @return the number of values
      */
     long getCount();
+
+    /**
+     * Merge the values of another collector into this one.
+     * @param other a collector of the same implementation
+     * @throws IllegalArgumentException if the collectors are not of the same implementation
+     */
+    void merge(StatsCollector other);
+
+    /**
+     * Remove all the values, so that the collector can be reused as if it were new. Implementations keep the storage
+     * they already allocated where they can.
+     */
+    void reset();
+
+    /**
+     * Estimate the heap footprint of the collector. This is meant for budgeting, not for exact accounting.
+     * @return an approximate number of bytes retained by the collector
+     */
+    long estimateMemoryBytes();
 }
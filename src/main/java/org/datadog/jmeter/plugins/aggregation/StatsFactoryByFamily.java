@@ -0,0 +1,51 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The factory of the {@link StatsCollector}s of each {@link MetricFamily}, and of the histograms that belong to none.
+ */
+public final class StatsFactoryByFamily {
+
+    private final Supplier<StatsCollector> defaultFactory;
+    private final Map<MetricFamily, Supplier<StatsCollector>> byFamily = new EnumMap<>(MetricFamily.class);
+
+    /**
+     * The same factory for every histogram.
+     * @param factory factory for creating StatsCollector instances
+     */
+    public StatsFactoryByFamily(Supplier<StatsCollector> factory) {
+        this(factory, family -> factory);
+    }
+
+    /**
+     * @param defaultFactory factory of the histograms that belong to no family
+     * @param familyFactory the factory of each family
+     */
+    public StatsFactoryByFamily(Supplier<StatsCollector> defaultFactory,
+                                Function<MetricFamily, Supplier<StatsCollector>> familyFactory) {
+        this.defaultFactory = defaultFactory;
+        for (MetricFamily family : MetricFamily.values()) {
+            byFamily.put(family, familyFactory.apply(family));
+        }
+    }
+
+    /**
+     * @return the factory of the histograms that belong to no family
+     */
+    public Supplier<StatsCollector> getDefault() {
+        return defaultFactory;
+    }
+
+    public Supplier<StatsCollector> forFamily(MetricFamily family) {
+        return byFamily.get(family);
+    }
+}
@@ -0,0 +1,177 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+/**
+ * Requests, errors and bytes received per second of a sample label, counted in a fixed ring of 1 second buckets keyed
+ * by the end time of the samples.
+ *
+ * Seconds are rolled up into the max, min and standard deviation of the requests per second, and the max errors and
+ * bytes received per second, once they leave the ring or once {@link #rollUpUntil} is called, so that the memory of a
+ * label doesn't depend on the duration of the test. The seconds between the first and the last sample of the label
+ * are rolled up, including those without samples, which count as 0. Samples of a second that was already rolled up
+ * are late: they are only counted by {@link #getLateSamples()}, and still count in the other cumulative metrics of
+ * the label.
+ *
+ * Recording takes no lock and doesn't allocate. Not thread-safe, recorded and rolled up with the lock of the
+ * {@link CumulativeAggregator} held.
+ */
+final class ThroughputTimeline {
+    /**
+     * Number of buckets of the ring, a power of 2. Bounds how far behind the newest sample of the label a sample can
+     * end and still be counted.
+     */
+    static final int SECONDS = 32;
+    private static final int MASK = SECONDS - 1;
+
+    /**
+     * Approximate footprint of a timeline: the object and array headers and the 3 arrays of buckets.
+     */
+    static final long MEMORY_BYTES = 128 + 3L * SECONDS * Long.BYTES;
+
+    private final long[] requests = new long[SECONDS];
+    private final long[] errors = new long[SECONDS];
+    private final long[] bytesReceived = new long[SECONDS];
+    private long firstSecond = Long.MAX_VALUE;
+    private long lastSecond = Long.MIN_VALUE;
+    /**
+     * The first second that is not rolled up yet. The ring holds the seconds from it, inclusive, to it plus
+     * {@link #SECONDS}, exclusive.
+     */
+    private long rolledUpTo = Long.MIN_VALUE;
+
+    /**
+     * Roll-up of the requests per second, with Welford's algorithm.
+     */
+    private long rolledSeconds = 0;
+    private double meanRps = 0;
+    private double m2Rps = 0;
+    private long maxRps = 0;
+    private long minRps = Long.MAX_VALUE;
+    private long maxErrorsPerSecond = 0;
+    private long maxBytesReceivedPerSecond = 0;
+    private long lateSamples = 0;
+
+    /**
+     * @param endTimeMs the end time of the sample, in milliseconds since the epoch
+     * @param sampleRequests the number of requests of the sample
+     * @param sampleErrors the number of errors of the sample
+     * @param sampleBytesReceived the number of bytes received by the sample
+     */
+    void record(long endTimeMs, long sampleRequests, long sampleErrors, long sampleBytesReceived) {
+        long second = Math.floorDiv(endTimeMs, 1000L);
+        if (rolledUpTo == Long.MIN_VALUE) {
+            // Leave room for the samples of the same batch that ended a little earlier
+            rolledUpTo = second - SECONDS / 2;
+        }
+        if (second < rolledUpTo) {
+            lateSamples += sampleRequests;
+            return;
+        }
+        firstSecond = Math.min(firstSecond, second);
+        lastSecond = Math.max(lastSecond, second);
+        if (second >= rolledUpTo + SECONDS) {
+            rollUp(second - SECONDS + 1);
+        }
+        int i = (int) (second & MASK);
+        requests[i] += sampleRequests;
+        errors[i] += sampleErrors;
+        bytesReceived[i] += sampleBytesReceived;
+    }
+
+    /**
+     * Roll up the seconds before the given one, up to the last second with samples.
+     * @param second the first second to keep in the ring, in seconds since the epoch. {@link Long#MAX_VALUE} to roll
+     *               up every second, once no more samples are expected.
+     */
+    void rollUpUntil(long second) {
+        if (lastSecond != Long.MIN_VALUE) {
+            rollUp(Math.min(second, lastSecond + 1));
+        }
+    }
+
+    private void rollUp(long until) {
+        if (until <= rolledUpTo) {
+            return;
+        }
+        long ringEnd = Math.min(until, rolledUpTo + SECONDS);
+        for (long second = rolledUpTo; second < ringEnd; second++) {
+            int i = (int) (second & MASK);
+            if (second >= firstSecond && second <= lastSecond) {
+                addSecond(requests[i], errors[i], bytesReceived[i]);
+            }
+            requests[i] = 0;
+            errors[i] = 0;
+            bytesReceived[i] = 0;
+        }
+        // The seconds after the ring have no samples, but the ones before the last sample count as 0
+        long zeroSeconds = Math.min(until, lastSecond + 1) - Math.max(ringEnd, firstSecond);
+        if (zeroSeconds > 0) {
+            addZeroSeconds(zeroSeconds);
+        }
+        rolledUpTo = until;
+    }
+
+    private void addSecond(long secondRequests, long secondErrors, long secondBytesReceived) {
+        rolledSeconds++;
+        double delta = secondRequests - meanRps;
+        meanRps += delta / rolledSeconds;
+        m2Rps += delta * (secondRequests - meanRps);
+        maxRps = Math.max(maxRps, secondRequests);
+        minRps = Math.min(minRps, secondRequests);
+        maxErrorsPerSecond = Math.max(maxErrorsPerSecond, secondErrors);
+        maxBytesReceivedPerSecond = Math.max(maxBytesReceivedPerSecond, secondBytesReceived);
+    }
+
+    /**
+     * Same as {@link #addSecond} with 0 for every count, {@code count} times, in constant time.
+     */
+    private void addZeroSeconds(long count) {
+        long total = rolledSeconds + count;
+        double delta = -meanRps;
+        m2Rps += delta * delta * rolledSeconds * count / total;
+        meanRps += delta * count / total;
+        rolledSeconds = total;
+        minRps = 0;
+    }
+
+    /**
+     * @return the number of seconds rolled up so far
+     */
+    long getRolledSeconds() {
+        return rolledSeconds;
+    }
+
+    long getMaxRps() {
+        return maxRps;
+    }
+
+    long getMinRps() {
+        return rolledSeconds > 0 ? minRps : 0;
+    }
+
+    /**
+     * @return the population standard deviation of the requests per second
+     */
+    double getRpsStddev() {
+        return rolledSeconds > 0 ? Math.sqrt(Math.max(0, m2Rps / rolledSeconds)) : 0;
+    }
+
+    long getMaxErrorsPerSecond() {
+        return maxErrorsPerSecond;
+    }
+
+    long getMaxBytesReceivedPerSecond() {
+        return maxBytesReceivedPerSecond;
+    }
+
+    /**
+     * @return the number of requests of the samples that ended in a second that was already rolled up
+     */
+    long getLateSamples() {
+        return lateSamples;
+    }
+}
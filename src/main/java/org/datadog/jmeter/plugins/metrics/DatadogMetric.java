@@ -18,6 +18,12 @@ public class DatadogMetric {
         this.value = value;
     }
 
+    public DatadogMetric(String name, String type, double value, TagSet tags) {
+        this.context = new DatadogMetricContext(name, tags);
+        this.type = type;
+        this.value = value;
+    }
+
     public String getName() {
         return this.context.getName();
     }
@@ -5,26 +5,40 @@
 
 package org.datadog.jmeter.plugins.metrics;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Immutable context for aggregating Datadog metrics.
- * Tags are defensively copied and wrapped as unmodifiable at construction.
+ * Tags are held in a {@link TagSet} and the hash is computed once, at construction. Contexts created from the same
+ * (ideally interned) tag set only compare their names.
  */
 public class DatadogMetricContext {
     private final String name;
-    private final List<String> tags;
+    private final TagSet tags;
+    private final int hash;
 
     /**
-     * Creates a new metric context.
+     * Creates a new metric context. The tags are defensively copied.
      * @param name Metric name
      * @param tags List of tags
      */
     public DatadogMetricContext(String name, List<String> tags){
+        this(name, TagSet.of(tags));
+    }
+
+    /**
+     * Creates a new metric context sharing the given tag set, without copy.
+     * @param name Metric name
+     * @param tags Tag set
+     */
+    public DatadogMetricContext(String name, TagSet tags){
         this.name = name;
-        this.tags = Collections.unmodifiableList(new ArrayList<>(tags));
+        this.tags = tags;
+        int prime = 31;
+        int result = 1;
+        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + tags.hashCode();
+        this.hash = result;
     }
 
     public String getName() {
@@ -35,6 +49,10 @@ public class DatadogMetricContext {
      * Returns the immutable list of tags.
      */
     public List<String> getTags() {
+        return tags.asList();
+    }
+
+    public TagSet getTagSet() {
         return tags;
     }
 
@@ -43,16 +61,13 @@ public class DatadogMetricContext {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         DatadogMetricContext context = (DatadogMetricContext) obj;
+        if (context.hash != this.hash) return false;
         if (!context.name.equals(this.name)) return false;
-        return tags.equals(context.tags);
+        return tags == context.tags || tags.equals(context.tags);
     }
 
     @Override
     public int hashCode() {
-        int prime = 31;
-        int result = 1;
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
-        result = prime * result + ((tags == null) ? 0 : tags.hashCode());
-        return result;
+        return hash;
     }
 }
@@ -0,0 +1,129 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.datadog.jmeter.plugins.util.CommonUtils;
+
+/**
+ * Canonical tag sets of the sample metrics, by what they are made of: the response code tags, the sample label, the
+ * thread group tag and the result, followed by the tags common to every sample of the test.
+ *
+ * These are memoized strings, so a repeated combination is looked up with a reused probe key whose hash only combines
+ * the cached hashes of the strings: it allocates nothing, and neither sanitizes, copies nor hashes the tags again.
+ * New combinations are interned by a {@link TagSetPool}.
+ *
+ * Thread-safe. Holds per-test tags, so it belongs to a single test.
+ */
+public final class SampleTagSetCache {
+    public static final String RESULT_OK = "result:ok";
+    public static final String RESULT_KO = "result:ko";
+
+    private static final String[] NO_TAGS = new String[0];
+
+    private final TagSetPool pool;
+    private final List<String> commonTags;
+    private final int maxSize;
+    private final Map<Key, TagSet> tagSets = new HashMap<>();
+    private final Key probe = new Key();
+
+    /**
+     * @param pool interns the new combinations
+     * @param commonTags the tags of every sample, copied
+     * @param maxSize maximum number of cached combinations. Beyond that, new combinations are interned on every call.
+     */
+    public SampleTagSetCache(TagSetPool pool, List<String> commonTags, int maxSize) {
+        this.pool = pool;
+        this.commonTags = Collections.unmodifiableList(new ArrayList<>(commonTags));
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param responseCodeTags the response code tags, null for none. Not modified, and must not be modified after.
+     * @param label the normalized sample label, sanitized into its tag
+     * @param threadGroupTag the thread group tag, null for none
+     * @param successful whether the sample succeeded, tagged with {@link #RESULT_OK} or {@link #RESULT_KO}
+     * @return the canonical tag set of the sample
+     */
+    public synchronized TagSet get(String[] responseCodeTags, String label, String threadGroupTag, boolean successful) {
+        String[] codeTags = responseCodeTags != null ? responseCodeTags : NO_TAGS;
+        TagSet tagSet = tagSets.get(probe.set(codeTags, label, threadGroupTag, successful));
+        if (tagSet != null) {
+            return tagSet;
+        }
+        List<String> tags = new ArrayList<>(codeTags.length + 3 + commonTags.size());
+        Collections.addAll(tags, codeTags);
+        tags.add(CommonUtils.sanitizeTagPair("sample_label", label));
+        if (threadGroupTag != null) {
+            tags.add(threadGroupTag);
+        }
+        tags.add(successful ? RESULT_OK : RESULT_KO);
+        tags.addAll(commonTags);
+        tagSet = pool.intern(tags);
+        if (tagSets.size() < maxSize) {
+            tagSets.put(new Key().set(codeTags, label, threadGroupTag, successful), tagSet);
+        }
+        return tagSet;
+    }
+
+    /**
+     * Forget every combination, called when the test ends.
+     */
+    public synchronized void clear() {
+        tagSets.clear();
+    }
+
+    /**
+     * @return the number of cached combinations
+     */
+    public synchronized int size() {
+        return tagSets.size();
+    }
+
+    /**
+     * A combination of sample tags. Mutable, so that {@link #probe} can be reused for every lookup.
+     */
+    private static final class Key {
+        private String[] codeTags;
+        private String label;
+        private String threadGroupTag;
+        private boolean successful;
+        private int hash;
+
+        private Key set(String[] codeTags, String label, String threadGroupTag, boolean successful) {
+            this.codeTags = codeTags;
+            this.label = label;
+            this.threadGroupTag = threadGroupTag;
+            this.successful = successful;
+            this.hash = 31 * (31 * (31 * Arrays.hashCode(codeTags) + label.hashCode())
+                + Objects.hashCode(threadGroupTag)) + Boolean.hashCode(successful);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return hash == other.hash
+                && successful == other.successful
+                && label.equals(other.label)
+                && Objects.equals(threadGroupTag, other.threadGroupTag)
+                && Arrays.equals(codeTags, other.codeTags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
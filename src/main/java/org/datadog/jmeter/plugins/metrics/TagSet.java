@@ -0,0 +1,69 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, ordered list of tags with a precomputed hash.
+ *
+ * Tag sets interned by a {@link TagSetPool} are canonical: two interned sets with the same tags are the same object,
+ * so comparing them is a reference check. Metric contexts sharing a tag set can be created without copying it.
+ */
+public final class TagSet {
+
+    public static final TagSet EMPTY = new TagSet(new String[0]);
+
+    private final String[] tags;
+    private final List<String> view;
+    private final int hash;
+
+    private TagSet(String[] tags) {
+        this.tags = tags;
+        this.view = Collections.unmodifiableList(Arrays.asList(tags));
+        // Same value as List.hashCode(), so a TagSet hashes like the list of its tags
+        this.hash = Arrays.hashCode(tags);
+    }
+
+    /**
+     * @param tags the tags, copied
+     * @return a new tag set
+     */
+    public static TagSet of(List<String> tags) {
+        return new TagSet(tags.toArray(new String[0]));
+    }
+
+    /**
+     * @return an unmodifiable view of the tags, without copy
+     */
+    public List<String> asList() {
+        return view;
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        TagSet other = (TagSet) obj;
+        return hash == other.hash && Arrays.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return view.toString();
+    }
+}
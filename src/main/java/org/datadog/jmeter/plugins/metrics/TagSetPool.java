@@ -0,0 +1,50 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.metrics;
+
+import java.util.List;
+import org.datadog.jmeter.plugins.util.BoundedCache;
+
+/**
+ * Canonical tag sets of a test: two tag sets interned by the same pool with the same tags are the same object, so
+ * comparing them is a reference check.
+ *
+ * Interned tag sets hold per-test tags such as {@code test_run_id}, so the pool belongs to a single test and must be
+ * cleared when it ends. Thread-safe.
+ */
+public final class TagSetPool {
+    private final BoundedCache<TagSet, TagSet> interned;
+
+    /**
+     * @param maxSize maximum number of canonical tag sets. Beyond that, {@link #intern(List)} returns non-canonical
+     *                copies, which are still correct but compared element by element.
+     */
+    public TagSetPool(int maxSize) {
+        this.interned = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * @param tags the tags, copied
+     * @return the canonical tag set for these tags
+     */
+    public TagSet intern(List<String> tags) {
+        return interned.get(TagSet.of(tags), t -> t);
+    }
+
+    /**
+     * Forget every canonical tag set, called when the test ends.
+     */
+    public void clear() {
+        interned.clear();
+    }
+
+    /**
+     * @return the number of canonical tag sets
+     */
+    public int size() {
+        return interned.size();
+    }
+}
@@ -0,0 +1,101 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a task on every wall-clock multiple of an interval, e.g. at :00, :10, :20... for 10 seconds, so that runners
+ * started at different times flush over the same intervals.
+ *
+ * Unlike {@link ScheduledExecutorService#scheduleAtFixedRate}, which counts from the start on the monotonic clock,
+ * every run is scheduled from the wall clock, so that the runs don't drift away from the boundaries. Boundaries
+ * missed because a run took longer than the interval are skipped, and an exception thrown by the task doesn't cancel
+ * the next runs.
+ */
+public class AlignedScheduler {
+    private static final Logger log = LoggerFactory.getLogger(AlignedScheduler.class);
+
+    private final ScheduledExecutorService executor;
+    private final long intervalMillis;
+    private final LongSupplier clock;
+    private final LongConsumer task;
+    private ScheduledFuture<?> next;
+    private boolean cancelled = false;
+
+    /**
+     * @param executor runs the task
+     * @param intervalMillis the interval, in milliseconds
+     * @param clock the wall clock, in milliseconds since the epoch
+     * @param task called with the boundary it runs for, in milliseconds since the epoch
+     */
+    public AlignedScheduler(ScheduledExecutorService executor, long intervalMillis, LongSupplier clock, LongConsumer task) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The interval must be positive, got " + intervalMillis + ".");
+        }
+        this.executor = executor;
+        this.intervalMillis = intervalMillis;
+        this.clock = clock;
+        this.task = task;
+    }
+
+    /**
+     * @return the first multiple of the interval strictly after the given time
+     */
+    public static long nextBoundary(long timeMillis, long intervalMillis) {
+        return Math.floorDiv(timeMillis, intervalMillis) * intervalMillis + intervalMillis;
+    }
+
+    /**
+     * @return the last multiple of the interval at or before the given time
+     */
+    public static long previousBoundary(long timeMillis, long intervalMillis) {
+        return Math.floorDiv(timeMillis, intervalMillis) * intervalMillis;
+    }
+
+    /**
+     * Schedule the first run, on the next boundary.
+     */
+    public synchronized void start() {
+        scheduleAfter(clock.getAsLong());
+    }
+
+    /**
+     * Cancel the next run. A run in progress completes.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (next != null) {
+            next.cancel(false);
+        }
+    }
+
+    private synchronized void scheduleAfter(long timeMillis) {
+        if (cancelled) {
+            return;
+        }
+        long boundary = nextBoundary(timeMillis, intervalMillis);
+        long delay = Math.max(0, boundary - clock.getAsLong());
+        next = executor.schedule(() -> run(boundary), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(long boundary) {
+        try {
+            task.accept(boundary);
+        } catch (RuntimeException e) {
+            log.error("Error running the task of boundary {}", boundary, e);
+        } finally {
+            // The executor may fire a little early for the wall clock, never run the same boundary twice
+            scheduleAfter(Math.max(boundary, clock.getAsLong()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A thread-safe memoization cache holding at most {@code maxSize} entries.
+ * Once full, new keys are computed on every call instead of being stored, so a burst of unique keys
+ * can't grow memory without bound while the keys seen first (usually the hot ones) stay cached.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize maximum number of cached entries. 0 disables caching.
+     */
+    public BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the cached value for the key, computing it with the loader if absent.
+     * The loader may be called more than once for the same key under contention and must be side effect free.
+     *
+     * @param key the key, not null
+     * @param loader computes the value for a key, must not return null
+     * @return the value for the key
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = entries.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (entries.size() < maxSize) {
+            entries.putIfAbsent(key, value);
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
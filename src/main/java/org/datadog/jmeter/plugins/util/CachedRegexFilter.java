@@ -0,0 +1,51 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Tests strings against a regex, memoizing the decision per input in a {@link BoundedCache}.
+ * Meant for inputs with few distinct values compared to how often they are tested, such as sample labels
+ * and response codes, so that most calls cost a hash lookup instead of a regex evaluation.
+ */
+public class CachedRegexFilter implements Predicate<String> {
+    private final Pattern pattern;
+    private final boolean fullMatch;
+    private final boolean emptyPattern;
+    private final BoundedCache<String, Boolean> decisions;
+
+    /**
+     * @param pattern the regex
+     * @param fullMatch whether the whole input must match ({@link java.util.regex.Matcher#matches()}) or only
+     *                  a part of it ({@link java.util.regex.Matcher#find()})
+     * @param cacheSize maximum number of memoized decisions
+     */
+    public CachedRegexFilter(Pattern pattern, boolean fullMatch, int cacheSize) {
+        this.pattern = pattern;
+        this.fullMatch = fullMatch;
+        this.emptyPattern = pattern.pattern().isEmpty();
+        this.decisions = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * @param input the string to test, not null
+     * @return the same result as {@code pattern.matcher(input).find()} or {@code matches()}
+     */
+    @Override
+    public boolean test(String input) {
+        if (emptyPattern) {
+            // The empty regex is found in any input but only matches the empty input
+            return !fullMatch || input.isEmpty();
+        }
+        return decisions.get(input, this::evaluate);
+    }
+
+    private Boolean evaluate(String input) {
+        return fullMatch ? pattern.matcher(input).matches() : pattern.matcher(input).find();
+    }
+}
@@ -3,6 +3,8 @@ package org.datadog.jmeter.plugins.util;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CommonUtils {
 
@@ -12,6 +14,28 @@ public class CommonUtils {
      */
     private static final int MAX_TAG_LENGTH = 200;
 
+    /**
+     * Maximum number of sanitized values cached for each tag key.
+     */
+    private static final int SANITIZED_VALUES_PER_KEY = 10000;
+
+    /**
+     * Sanitized pairs by tag key, then by raw value. Tag keys are constants of the plugin, so the outer map stays small.
+     * Cleared at the end of every test, see {@link #clearSanitizedTagPairs()}.
+     */
+    private static final Map<String, BoundedCache<String, String>> SANITIZED_PAIRS = new ConcurrentHashMap<>();
+
+    /**
+     * Sanitized form of every ASCII character, see {@link #sanitizeTagChar(char)}.
+     */
+    private static final char[] ASCII_TAG_CHARS = new char[128];
+
+    static {
+        for (char c = 0; c < ASCII_TAG_CHARS.length; c++) {
+            ASCII_TAG_CHARS[c] = sanitizeTagChar(c);
+        }
+    }
+
     /**
      * Combine metric-specific tags with common base tags into a single list.
      * Result order: [tags..., baseTags...].
@@ -39,37 +63,71 @@ public class CommonUtils {
         if (value == null || value.isEmpty()) {
             return key + ":";
         }
+        BoundedCache<String, String> values = SANITIZED_PAIRS.get(key);
+        if (values == null) {
+            // computeIfAbsent locks the bin even when the key is present, only take that path on a miss
+            values = SANITIZED_PAIRS.computeIfAbsent(key, k -> new BoundedCache<>(SANITIZED_VALUES_PER_KEY));
+        }
+        return values.get(value, v -> computeTagPair(key, v));
+    }
 
+    /**
+     * Forget the sanitized pairs of the previous test, so that JMeter processes running several tests (GUI or server
+     * mode) don't keep the labels of earlier tests cached.
+     */
+    public static void clearSanitizedTagPairs() {
+        SANITIZED_PAIRS.clear();
+    }
+
+    /**
+     * @return the number of sanitized pairs currently cached
+     */
+    static int sanitizedTagPairCount() {
+        int count = 0;
+        for (BoundedCache<String, String> values : SANITIZED_PAIRS.values()) {
+            count += values.size();
+        }
+        return count;
+    }
+
+    /**
+     * Sanitize without the cache. ASCII characters are mapped through {@link #ASCII_TAG_CHARS}, other characters
+     * go through {@link #sanitizeTagChar(char)}.
+     */
+    static String computeTagPair(String key, String value) {
         // key + ":" takes up key.length() + 1 characters
         int maxValueLength = Math.max(1, MAX_TAG_LENGTH - key.length() - 1);
         int limit = Math.min(value.length(), maxValueLength);
-        StringBuilder out = new StringBuilder(key.length() + 1 + limit);
-        out.append(key).append(':');
-        
+        int valueStart = key.length() + 1;
+        char[] out = new char[valueStart + limit];
+        key.getChars(0, key.length(), out, 0);
+        out[key.length()] = ':';
+        int length = valueStart;
+
         boolean lastWasUnderscore = false;
 
         for (int i = 0; i < limit; i++) {
             char original = value.charAt(i);
-            char sanitized = sanitizeTagChar(original);
+            char sanitized = original < ASCII_TAG_CHARS.length ? ASCII_TAG_CHARS[original] : sanitizeTagChar(original);
 
             if (sanitized == '_') {
                 // Collapse consecutive underscores, but preserve leading underscore
                 if (!lastWasUnderscore) {
-                    out.append('_');
+                    out[length++] = '_';
                     lastWasUnderscore = true;
                 }
             } else {
-                out.append(sanitized);
+                out[length++] = sanitized;
                 lastWasUnderscore = false;
             }
         }
 
         // Remove trailing underscores from value portion
-        while (out.length() > key.length() + 1 && out.charAt(out.length() - 1) == '_') {
-            out.setLength(out.length() - 1);
+        while (length > valueStart && out[length - 1] == '_') {
+            length--;
         }
 
-        return out.toString();
+        return new String(out, 0, length);
     }
 
     /**
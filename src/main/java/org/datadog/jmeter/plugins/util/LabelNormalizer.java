@@ -0,0 +1,232 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rewrites sample labels before they are used as tags, to keep dynamic parts (IDs, query strings...) from
+ * creating one label per request. Steps are applied in order:
+ * <ol>
+ *     <li>regex rewrite rules, each one replacing all its matches,</li>
+ *     <li>path templating, replacing numeric, UUID and long hexadecimal segments with {@link #ID_PLACEHOLDER},</li>
+ *     <li>truncation to a maximum length, keeping the prefix.</li>
+ * </ol>
+ * Results are memoized per raw label in a {@link BoundedCache} so the rewrite runs once per distinct label.
+ */
+public class LabelNormalizer {
+
+    /**
+     * Replacement for segments detected as identifiers by path templating.
+     */
+    public static final String ID_PLACEHOLDER = "{id}";
+
+    /**
+     * Separates rules in the rules string.
+     */
+    private static final String RULE_SEPARATOR = ";";
+
+    /**
+     * Separates the pattern from the replacement in a rule.
+     */
+    private static final String REPLACEMENT_SEPARATOR = "=>";
+
+    /**
+     * Minimum length for a hexadecimal segment to be considered an identifier (e.g. 24 for a MongoDB ObjectId).
+     */
+    private static final int MIN_HEX_ID_LENGTH = 16;
+
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * A normalizer that returns labels unchanged.
+     */
+    public static final LabelNormalizer IDENTITY = new LabelNormalizer(Collections.emptyList(), false, 0, 0);
+
+    private final List<RewriteRule> rules;
+    private final boolean templatePaths;
+    private final int maxLength;
+    private final boolean identity;
+    private final BoundedCache<String, String> cache;
+
+    /**
+     * @param rules regex rewrite rules, applied in order
+     * @param templatePaths whether to replace identifier segments with {@link #ID_PLACEHOLDER}
+     * @param maxLength maximum label length after rewriting, 0 for unlimited
+     * @param cacheSize maximum number of memoized labels
+     */
+    public LabelNormalizer(List<RewriteRule> rules, boolean templatePaths, int maxLength, int cacheSize) {
+        this.rules = new ArrayList<>(rules);
+        this.templatePaths = templatePaths;
+        this.maxLength = maxLength;
+        this.identity = rules.isEmpty() && !templatePaths && maxLength == 0;
+        this.cache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * Parse rewrite rules from their string form: {@code pattern=>replacement} pairs separated by {@code ;}.
+     * Whitespace is significant. The replacement may reference groups ({@code $1}) and may be empty.
+     *
+     * @param rulesString the rules, may be empty
+     * @return the parsed rules
+     * @throws IllegalArgumentException if a rule is malformed or its pattern is not a valid regex
+     */
+    public static List<RewriteRule> parseRules(String rulesString) {
+        List<RewriteRule> result = new ArrayList<>();
+        for (String rule : rulesString.split(RULE_SEPARATOR)) {
+            if (rule.trim().isEmpty()) {
+                continue;
+            }
+            int separatorIndex = rule.lastIndexOf(REPLACEMENT_SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Rule '" + rule + "' must be of the form 'pattern" + REPLACEMENT_SEPARATOR + "replacement'.");
+            }
+            String pattern = rule.substring(0, separatorIndex);
+            String replacement = rule.substring(separatorIndex + REPLACEMENT_SEPARATOR.length());
+            try {
+                result.add(new RewriteRule(Pattern.compile(pattern), replacement));
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Rule '" + rule + "' has an invalid pattern: " + e.getDescription());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Normalize a raw sample label.
+     *
+     * @param label the raw label, may be null
+     * @return the normalized label
+     */
+    public String normalize(String label) {
+        if (identity || label == null) {
+            return label;
+        }
+        return cache.get(label, this::rewrite);
+    }
+
+    private String rewrite(String label) {
+        String result = label;
+        for (RewriteRule rule : rules) {
+            result = rule.pattern.matcher(result).replaceAll(rule.replacement);
+        }
+        if (templatePaths) {
+            result = templatePath(result);
+        }
+        if (maxLength > 0 && result.length() > maxLength) {
+            result = result.substring(0, maxLength);
+        }
+        return result;
+    }
+
+    /**
+     * Replace every identifier segment with {@link #ID_PLACEHOLDER}. Segments are delimited by path, query string
+     * and whitespace separators, so that both {@code /orders/123} and {@code ?order=123} are templated.
+     */
+    static String templatePath(String label) {
+        StringBuilder out = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= label.length(); i++) {
+            if (i < label.length() && !isSegmentDelimiter(label.charAt(i))) {
+                continue;
+            }
+            if (isIdentifier(label, segmentStart, i)) {
+                if (out == null) {
+                    out = new StringBuilder(label.length());
+                    out.append(label, 0, segmentStart);
+                }
+                out.append(ID_PLACEHOLDER);
+            } else if (out != null) {
+                out.append(label, segmentStart, i);
+            }
+            if (out != null && i < label.length()) {
+                out.append(label.charAt(i));
+            }
+            segmentStart = i + 1;
+        }
+        return out == null ? label : out.toString();
+    }
+
+    private static boolean isSegmentDelimiter(char c) {
+        return c == '/' || c == '?' || c == '&' || c == '=' || c == '#' || c == ' ';
+    }
+
+    private static boolean isIdentifier(String s, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return false;
+        }
+        if (length == UUID_LENGTH && isUuid(s, start)) {
+            return true;
+        }
+        boolean allDigits = true;
+        boolean allHex = true;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                allDigits = false;
+                if (!isHexLetter(c)) {
+                    allHex = false;
+                    break;
+                }
+            }
+        }
+        // Require a digit in hex identifiers so long words made of a-f letters are kept
+        return allDigits || (allHex && length >= MIN_HEX_ID_LENGTH && hasDigit(s, start, end));
+    }
+
+    private static boolean isUuid(String s, int start) {
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = s.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if ((c < '0' || c > '9') && !isHexLetter(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHexLetter(char c) {
+        return (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean hasDigit(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A regex rewrite rule: every match of the pattern is replaced with the replacement.
+     */
+    public static class RewriteRule {
+        private final Pattern pattern;
+        private final String replacement;
+
+        public RewriteRule(Pattern pattern, String replacement) {
+            this.pattern = pattern;
+            this.replacement = replacement;
+        }
+
+        public Pattern getPattern() {
+            return pattern;
+        }
+
+        public String getReplacement() {
+            return replacement;
+        }
+    }
+}
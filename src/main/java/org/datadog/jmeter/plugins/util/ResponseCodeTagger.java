@@ -0,0 +1,148 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the response code tags of a sample result, memoizing them per response code in a {@link BoundedCache} so
+ * that most calls cost a hash lookup instead of sanitizing and classifying the code.
+ *
+ * In {@link Mode#CLASS} mode, codes are bucketed into a {@code response_class} tag, which keeps the number of contexts
+ * low when samplers report free text or exception names as response codes.
+ */
+public class ResponseCodeTagger {
+    public static final String RESPONSE_CODE = "response_code";
+    public static final String RESPONSE_CLASS = "response_class";
+    public static final String OTHER_CLASS = "other";
+
+    /**
+     * How response codes are tagged.
+     */
+    public enum Mode {
+        /**
+         * A {@code response_code} tag with the code.
+         */
+        EXACT("exact"),
+        /**
+         * A {@code response_class} tag, {@code 2xx} to {@code 5xx} for HTTP status codes and {@code other} for the
+         * rest, plus the {@code response_code} tag for the allowed codes.
+         */
+        CLASS("class");
+
+        private final String value;
+
+        Mode(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Parse a string value to a Mode enum.
+         * @param value the string value (case-insensitive)
+         * @return the corresponding Mode
+         * @throws IllegalArgumentException if the value is not valid
+         */
+        public static Mode fromStringValue(String value) {
+            String normalized = value.trim().toLowerCase();
+            return Arrays.stream(values())
+                .filter(mode -> mode.value.equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                    "Invalid response code tagging: '" + value + "'. Valid options: " + getValidModes()));
+        }
+
+        /**
+         * Get a comma-separated list of all valid mode values.
+         */
+        public static String getValidModes() {
+            return Arrays.stream(values())
+                .map(mode -> mode.value)
+                .collect(Collectors.joining(", "));
+        }
+    }
+
+    private final Mode mode;
+    private final Set<String> allowedCodes;
+    private final BoundedCache<String, String[]> tags;
+
+    /**
+     * @param mode how response codes are tagged
+     * @param allowedCodes the codes that keep their {@code response_code} tag in {@link Mode#CLASS} mode
+     * @param cacheSize maximum number of memoized response codes
+     */
+    public ResponseCodeTagger(Mode mode, Set<String> allowedCodes, int cacheSize) {
+        this.mode = mode;
+        this.allowedCodes = Collections.unmodifiableSet(new HashSet<>(allowedCodes));
+        this.tags = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * @param allowList comma-separated response codes, e.g. {@code 429,503}
+     * @return the response codes of the list
+     */
+    public static Set<String> parseAllowList(String allowList) {
+        Set<String> codes = new HashSet<>();
+        for (String code : allowList.split(",")) {
+            if (!code.trim().isEmpty()) {
+                codes.add(code.trim());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * @param responseCode the response code of a sample result, not null
+     * @return the tags of the response code. Shared between calls, must not be modified.
+     */
+    public String[] tags(String responseCode) {
+        return tags.get(responseCode, this::compute);
+    }
+
+    private String[] compute(String responseCode) {
+        if (mode == Mode.EXACT) {
+            return new String[] { CommonUtils.sanitizeTagPair(RESPONSE_CODE, responseCode) };
+        }
+        String responseClass = RESPONSE_CLASS + ":" + responseClass(responseCode);
+        if (allowedCodes.contains(responseCode)) {
+            return new String[] { responseClass, CommonUtils.sanitizeTagPair(RESPONSE_CODE, responseCode) };
+        }
+        return new String[] { responseClass };
+    }
+
+    /**
+     * @return {@code 2xx} to {@code 5xx} for three digit codes starting with 2 to 5, {@link #OTHER_CLASS} otherwise
+     */
+    static String responseClass(String responseCode) {
+        if (responseCode.length() != 3) {
+            return OTHER_CLASS;
+        }
+        char first = responseCode.charAt(0);
+        if (first < '2' || first > '5' || !isDigit(responseCode.charAt(1)) || !isDigit(responseCode.charAt(2))) {
+            return OTHER_CLASS;
+        }
+        return first + "xx";
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Set<String> getAllowedCodes() {
+        return allowedCodes;
+    }
+}
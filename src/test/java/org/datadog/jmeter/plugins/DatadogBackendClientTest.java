@@ -7,8 +7,10 @@ package org.datadog.jmeter.plugins;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -17,6 +19,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import net.minidev.json.JSONObject;
 import net.minidev.json.parser.JSONParser;
 import net.minidev.json.parser.ParseException;
@@ -25,7 +28,7 @@ import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
 import org.datadog.jmeter.plugins.aggregation.IntervalAggregator;
-import org.datadog.jmeter.plugins.aggregation.DDSketchStatsCollector;
+import org.datadog.jmeter.plugins.aggregation.StatsFactoryByFamily;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
 import org.junit.After;
 import org.junit.Assert;
@@ -36,6 +39,7 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 /**
  * Unit test for DatadogBackendClient.
@@ -68,8 +72,17 @@ public class DatadogBackendClientTest
             put("customTags", "key:value,test_run_id:" + TEST_RUN_ID);
         }
     };
+    /**
+     * The last interval aggregator created by a client, built from the arguments of the client. In processing time
+     * mode, this is the one of the client set up last.
+     */
     private IntervalAggregator aggregator;
     private List<DatadogMetric> submittedMetrics;
+    /**
+     * The timestamp, in seconds, each metric of {@link #submittedMetrics} was submitted with.
+     */
+    private List<Long> submittedTimestamps;
+    private DatadogHttpClient httpClientMock;
     private BackendListenerContext context = new BackendListenerContext(DEFAULT_VALID_TEST_CONFIG);
     private List<JSONObject> logsBuffer;
     private List<String> logsTags;
@@ -83,13 +96,13 @@ public class DatadogBackendClientTest
     @Before
     public void setUpMocks() throws Exception {
         logsBuffer = new ArrayList<>();
-        aggregator = new IntervalAggregator(DDSketchStatsCollector::new);
 
         // Mock JMeterUtils static methods to return predictable runner identity
         PowerMockito.mockStatic(JMeterUtils.class);
         
         PowerMockito.when(JMeterUtils.getPropDefault(any(String.class), anyInt())).thenReturn(20000);
         PowerMockito.when(JMeterUtils.getPropDefault(eq("datadog.send_interval"), anyInt())).thenReturn(10);
+        PowerMockito.when(JMeterUtils.getPropDefault(eq("datadog.cumulative_send_interval"), anyInt())).thenReturn(60);
         PowerMockito.when(JMeterUtils.getPropDefault(eq(JMeterUtils.THREAD_GROUP_DISTRIBUTED_PREFIX_PROPERTY_NAME), any(String.class))).thenReturn("");
         
         PowerMockito.when(JMeterUtils.getLocalHostName()).thenReturn(TEST_RUNNER_HOST);
@@ -99,15 +112,24 @@ public class DatadogBackendClientTest
         PowerMockito.when(JMeterUtils.getProperty("testMode")).thenReturn(null);
         PowerMockito.when(JMeterUtils.getProperty("backend_metrics_percentile_estimator")).thenReturn(null);
 
-        DatadogHttpClient httpClientMock = PowerMockito.mock(DatadogHttpClient.class);
-        PowerMockito.whenNew(IntervalAggregator.class).withAnyArguments().thenReturn(aggregator);
+        httpClientMock = PowerMockito.mock(DatadogHttpClient.class);
+        // A real aggregator with the settings of the client. Built by reflection, `new` would be intercepted again.
+        Constructor<IntervalAggregator> aggregatorConstructor = IntervalAggregator.class.getConstructor(
+            StatsFactoryByFamily.class, IntervalAggregator.Settings.class);
+        PowerMockito.whenNew(IntervalAggregator.class).withAnyArguments().thenAnswer(invocation -> {
+            aggregator = aggregatorConstructor.newInstance(invocation.getArguments());
+            return aggregator;
+        });
         PowerMockito.whenNew(DatadogHttpClient.class).withAnyArguments().thenReturn(httpClientMock);
         PowerMockito.when(httpClientMock.validateConnection()).thenReturn(true);
         submittedMetrics = new ArrayList<>();
+        submittedTimestamps = new ArrayList<>();
         PowerMockito.doAnswer((e) -> {
-            submittedMetrics.addAll(e.getArgument(0));
+            List<DatadogMetric> metrics = e.getArgument(0);
+            submittedMetrics.addAll(metrics);
+            submittedTimestamps.addAll(Collections.nCopies(metrics.size(), e.getArgument(1, Long.class)));
             return null;
-        }).when(httpClientMock).submitMetrics(any());
+        }).when(httpClientMock).submitMetrics(any(), anyLong());
         PowerMockito.doAnswer((e) -> {
             logsBuffer.addAll(e.getArgument(0));
             logsTags = (List<String>) e.getArgument(1, List.class);
@@ -179,21 +201,22 @@ public class DatadogBackendClientTest
                 put("jmeter.response_time.median", 0.12624150202599055);
                 put("jmeter.response_time.avg", 0.125);
                 put("jmeter.response_time.count", 1.0);
-                put("jmeter.bytes_received.max", 12291.916561360777);
-                put("jmeter.bytes_received.min", 12291.916561360777);
-                put("jmeter.bytes_received.p99", 12291.916561360777);
-                put("jmeter.bytes_received.p95", 12291.916561360777);
-                put("jmeter.bytes_received.p90", 12291.916561360777);
-                put("jmeter.bytes_received.median", 12291.916561360777);
+                // The byte sizes are sketched with 2% accuracy by default, the times with 1%
+                put("jmeter.bytes_received.max", 12180.837853986945);
+                put("jmeter.bytes_received.min", 12180.837853986945);
+                put("jmeter.bytes_received.p99", 12180.837853986945);
+                put("jmeter.bytes_received.p95", 12180.837853986945);
+                put("jmeter.bytes_received.p90", 12180.837853986945);
+                put("jmeter.bytes_received.median", 12180.837853986945);
                 put("jmeter.bytes_received.avg", 12345.0);
                 put("jmeter.bytes_received.count", 1.0);
                 put("jmeter.bytes_received.total", 12345.0);
-                put("jmeter.bytes_sent.max", 124.37724692430666);
-                put("jmeter.bytes_sent.min", 124.37724692430666);
-                put("jmeter.bytes_sent.p99", 124.37724692430666);
-                put("jmeter.bytes_sent.p95", 124.37724692430666);
-                put("jmeter.bytes_sent.p90", 124.37724692430666);
-                put("jmeter.bytes_sent.median", 124.37724692430666);
+                put("jmeter.bytes_sent.max", 123.2251873356752);
+                put("jmeter.bytes_sent.min", 123.2251873356752);
+                put("jmeter.bytes_sent.p99", 123.2251873356752);
+                put("jmeter.bytes_sent.p95", 123.2251873356752);
+                put("jmeter.bytes_sent.p90", 123.2251873356752);
+                put("jmeter.bytes_sent.median", 123.2251873356752);
                 put("jmeter.bytes_sent.avg", 124.0);
                 put("jmeter.bytes_sent.count", 1.0);
                 put("jmeter.bytes_sent.total", 124.0);
@@ -370,6 +393,83 @@ public class DatadogBackendClientTest
         }
     }
 
+    @Test
+    public void testIntervalFlushWithoutCumulativeMetrics() throws Exception {
+        // The cumulative metrics are sent every 60 seconds, the interval metrics every 10
+        Assert.assertEquals(60L, (long) Whitebox.getInternalState(DatadogBackendClient.class, "CUMULATIVE_SEND_INTERVAL_SECONDS"));
+        this.client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        submittedMetrics.clear();
+        submittedTimestamps.clear();
+
+        long boundary = 1700000010000L;
+        Whitebox.invokeMethod(this.client, "sendMetrics", boundary, false);
+
+        Assert.assertTrue(submittedMetrics.stream().anyMatch(m -> m.getName().equals("jmeter.responses_count")));
+        for (int i = 0; i < submittedMetrics.size(); i++) {
+            Assert.assertFalse(submittedMetrics.get(i).getName().startsWith("jmeter.cumulative."));
+            // Timestamped with the start of the interval
+            Assert.assertEquals(Long.valueOf(1700000000L), submittedTimestamps.get(i));
+        }
+    }
+
+    @Test
+    public void testCumulativeFlush() throws Exception {
+        this.client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        submittedMetrics.clear();
+        submittedTimestamps.clear();
+
+        long boundary = 1700000040000L;
+        Whitebox.invokeMethod(this.client, "sendCumulativeMetrics", boundary);
+
+        Assert.assertTrue(submittedMetrics.stream().anyMatch(m -> m.getName().equals("jmeter.cumulative.responses_count")));
+        for (int i = 0; i < submittedMetrics.size(); i++) {
+            DatadogMetric metric = submittedMetrics.get(i);
+            Assert.assertTrue(metric.getName(), metric.getName().startsWith("jmeter.cumulative."));
+            Assert.assertTrue(metric.getTags().contains("final_result:false"));
+            // Timestamped with its own boundary
+            Assert.assertEquals(Long.valueOf(1700000040L), submittedTimestamps.get(i));
+        }
+        // Not reset by the interval flush
+        submittedMetrics.clear();
+        Whitebox.invokeMethod(this.client, "sendMetrics", boundary + 10000, false);
+        Whitebox.invokeMethod(this.client, "sendCumulativeMetrics", boundary + 60000);
+        Assert.assertTrue(submittedMetrics.stream().anyMatch(m -> m.getName().equals("jmeter.cumulative.responses_count")));
+    }
+
+    @Test
+    public void testTeardownOrder() throws Exception {
+        DatadogBackendClient client = new DatadogBackendClient();
+        client.setupTest(context);
+        ExecutorService scheduler = Whitebox.getInternalState(client, "scheduler");
+        ExecutorService cumulativeScheduler = Whitebox.getInternalState(client, "cumulativeScheduler");
+        // The phase of each submitted batch: 0 for interval metrics, 1 for the last cumulative metrics, 2 for the final results
+        List<Integer> phases = new ArrayList<>();
+        PowerMockito.doAnswer((e) -> {
+            Assert.assertTrue("Sent before the schedulers terminated", scheduler.isTerminated() && cumulativeScheduler.isTerminated());
+            List<DatadogMetric> metrics = e.getArgument(0);
+            for (DatadogMetric metric : metrics) {
+                if (metric.getName().startsWith("jmeter.final_result.") || metric.getTags().contains("final_result:true")) {
+                    phases.add(2);
+                } else if (metric.getTags().contains("final_result:false")) {
+                    phases.add(1);
+                } else {
+                    Assert.assertFalse(metric.getName().startsWith("jmeter.cumulative."));
+                    phases.add(0);
+                }
+            }
+            return null;
+        }).when(httpClientMock).submitMetrics(any(), anyLong());
+
+        client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        client.teardownTest(context);
+
+        Assert.assertFalse(phases.isEmpty());
+        List<Integer> sorted = new ArrayList<>(phases);
+        Collections.sort(sorted);
+        Assert.assertEquals("Sent out of order", sorted, phases);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), new HashSet<>(phases));
+    }
+
     @Test
     public void testExtractMetricsWithSubresults() throws Exception {
         // Set up a client with the `includeSubresults` option set to `true`
@@ -407,20 +507,21 @@ public class DatadogBackendClientTest
                 put("jmeter.response_time.median", 0.12624150202599055);
                 put("jmeter.response_time.avg", 0.125);
                 put("jmeter.response_time.count", 1.0);
-                put("jmeter.bytes_received.max", 12291.916561360777);
-                put("jmeter.bytes_received.min", 12291.916561360777);
-                put("jmeter.bytes_received.p99", 12291.916561360777);
-                put("jmeter.bytes_received.p95", 12291.916561360777);
-                put("jmeter.bytes_received.p90", 12291.916561360777);
-                put("jmeter.bytes_received.median", 12291.916561360777);
+                // The byte sizes are sketched with 2% accuracy by default, the times with 1%
+                put("jmeter.bytes_received.max", 12180.837853986945);
+                put("jmeter.bytes_received.min", 12180.837853986945);
+                put("jmeter.bytes_received.p99", 12180.837853986945);
+                put("jmeter.bytes_received.p95", 12180.837853986945);
+                put("jmeter.bytes_received.p90", 12180.837853986945);
+                put("jmeter.bytes_received.median", 12180.837853986945);
                 put("jmeter.bytes_received.avg", 12345.0);
                 put("jmeter.bytes_received.count", 1.0);
-                put("jmeter.bytes_sent.max", 124.37724692430666);
-                put("jmeter.bytes_sent.min", 124.37724692430666);
-                put("jmeter.bytes_sent.p99", 124.37724692430666);
-                put("jmeter.bytes_sent.p95", 124.37724692430666);
-                put("jmeter.bytes_sent.p90", 124.37724692430666);
-                put("jmeter.bytes_sent.median", 124.37724692430666);
+                put("jmeter.bytes_sent.max", 123.2251873356752);
+                put("jmeter.bytes_sent.min", 123.2251873356752);
+                put("jmeter.bytes_sent.p99", 123.2251873356752);
+                put("jmeter.bytes_sent.p95", 123.2251873356752);
+                put("jmeter.bytes_sent.p90", 123.2251873356752);
+                put("jmeter.bytes_sent.median", 123.2251873356752);
                 put("jmeter.bytes_sent.avg", 124.0);
                 put("jmeter.bytes_sent.count", 1.0);
             }
@@ -522,6 +623,305 @@ public class DatadogBackendClientTest
         Assert.assertEquals("foo4", this.logsBuffer.get(1).getAsString("sample_label"));
     }
 
+    @Test
+    public void testTagSetPoolClearedBetweenTests() throws Exception {
+        for (int run = 0; run < 2; run++) {
+            if (run > 0) {
+                this.client.setupTest(context);
+            }
+            Assert.assertEquals(0, this.client.internedTagSetCount());
+            this.client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+            Assert.assertTrue(this.client.internedTagSetCount() > 0);
+            this.client.teardownTest(context);
+            Assert.assertEquals(0, this.client.internedTagSetCount());
+        }
+        // Torn down again after the test
+        this.client.setupTest(context);
+    }
+
+    @Test
+    public void testThreadGroupPerThread() {
+        SampleResult result1 = createDummySampleResult("foo");
+        SampleResult result2 = createDummySampleResult("foo");
+        result2.setThreadName("Checkout Users 1-2");
+        SampleResult result3 = createDummySampleResult("foo");
+
+        this.client.handleSampleResults(Arrays.asList(result1, result2, result3), context);
+        Map<String, Double> countsByThreadGroup = new HashMap<>();
+        for (DatadogMetric metric : flushAggregator()) {
+            if (metric.getName().equals("jmeter.response_time.count")) {
+                metric.getTags().stream().filter(t -> t.startsWith("thread_group:"))
+                    .forEach(t -> countsByThreadGroup.put(t, metric.getValue()));
+            }
+        }
+        Assert.assertEquals(2.0, countsByThreadGroup.get("thread_group:bar"), 0.0);
+        Assert.assertEquals(1.0, countsByThreadGroup.get("thread_group:checkout_users"), 0.0);
+        Assert.assertEquals("bar", this.logsBuffer.get(0).getAsString("thread_group"));
+        Assert.assertEquals("Checkout Users", this.logsBuffer.get(1).getAsString("thread_group"));
+        Assert.assertEquals("bar", this.logsBuffer.get(2).getAsString("thread_group"));
+    }
+
+    @Test
+    public void testLabelNormalization() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("labelRewriteRules", "\\?.*=>");
+        config.put("labelPathTemplating", "true");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        SampleResult result1 = createDummySampleResult("GET /orders/81723?expand=true");
+        SampleResult result2 = createDummySampleResult("GET /orders/42");
+
+        client.handleSampleResults(Arrays.asList(result1, result2), context);
+        for (DatadogMetric metric : flushAggregator()) {
+            Assert.assertTrue(metric.getTags().contains("sample_label:get_/orders/_id"));
+        }
+        client.teardownTest(context);
+        Set<String> cumulativeLabels = new HashSet<>();
+        for (DatadogMetric metric : submittedMetrics) {
+            if (metric.getName().startsWith("jmeter.cumulative.")) {
+                metric.getTags().stream().filter(t -> t.startsWith("sample_label:")).forEach(cumulativeLabels::add);
+            }
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sample_label:get_/orders/_id", "sample_label:total")), cumulativeLabels);
+        // Logs keep the raw label
+        Assert.assertEquals("GET /orders/81723?expand=true", this.logsBuffer.get(0).getAsString("sample_label"));
+        Assert.assertEquals("GET /orders/42", this.logsBuffer.get(1).getAsString("sample_label"));
+    }
+
+    @Test
+    public void testStatisticsModeTagFollowsResponseTimes() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("familyStatisticsModes", "response_time=aggregate_report");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        List<DatadogMetric> metrics = flushAggregator();
+        Assert.assertFalse(metrics.isEmpty());
+        for (DatadogMetric metric : metrics) {
+            Assert.assertTrue(metric.getTags().contains("statistics_mode:aggregate_report"));
+        }
+        client.teardownTest(context);
+    }
+
+    @Test
+    public void testDisabledTags() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("disabledTags", "response_code, assertion_name");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        SampleResult result = createDummySampleResult("foo");
+        result.addAssertionResult(new AssertionResult("Response Code 200"));
+        result.addAssertionResult(new AssertionResult("Duration Assertion"));
+        client.handleSampleResults(Collections.singletonList(result), context);
+
+        boolean foundAssertions = false;
+        for (DatadogMetric metric : flushAggregator()) {
+            Assert.assertFalse(metric.getTags().stream().anyMatch(t -> t.startsWith("response_code:")));
+            Assert.assertFalse(metric.getTags().stream().anyMatch(t -> t.startsWith("assertion_name:")));
+            Assert.assertTrue(metric.getTags().contains("thread_group:bar"));
+            if (metric.getName().equals("jmeter.assertions.count")) {
+                // Both assertions are counted under the same tags
+                Assert.assertEquals(2.0, metric.getValue(), 0.0);
+                foundAssertions = true;
+            }
+        }
+        Assert.assertTrue(foundAssertions);
+        client.teardownTest(context);
+    }
+
+    @Test
+    public void testDisabledMetricFamilies() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("disabledMetrics", "latency,bytes_sent");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        client.teardownTest(context);
+
+        Set<String> names = new HashSet<>();
+        for (DatadogMetric metric : submittedMetrics) {
+            names.add(metric.getName());
+        }
+        Assert.assertTrue(names.contains("jmeter.responses_count"));
+        Assert.assertTrue(names.contains("jmeter.response_time.p99"));
+        Assert.assertTrue(names.contains("jmeter.bytes_received.total"));
+        for (String name : names) {
+            Assert.assertFalse("Disabled metric sent: " + name, name.startsWith("jmeter.latency."));
+            Assert.assertFalse("Disabled metric sent: " + name, name.startsWith("jmeter.bytes_sent"));
+        }
+    }
+
+    @Test
+    public void testFamilyPercentiles() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("histogramPercentiles", "response_time=50,99.9;latency=99");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        Set<String> names = new HashSet<>();
+        for (DatadogMetric metric : flushAggregator()) {
+            names.add(metric.getName());
+        }
+        Assert.assertTrue(names.contains("jmeter.response_time.median"));
+        Assert.assertTrue(names.contains("jmeter.response_time.p99_9"));
+        Assert.assertFalse(names.contains("jmeter.response_time.p90"));
+        Assert.assertTrue(names.contains("jmeter.latency.p99"));
+        Assert.assertFalse(names.contains("jmeter.latency.median"));
+        // Unlisted families keep the default percentiles
+        Assert.assertTrue(names.contains("jmeter.bytes_sent.p90"));
+        Assert.assertFalse(names.contains("jmeter.bytes_sent.p99_9"));
+        client.teardownTest(context);
+    }
+
+    @Test
+    public void testFamilyStatisticsModes() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("familyStatisticsModes", "latency=aggregate_report");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Collections.singletonList(createDummySampleResult("foo")), context);
+        Map<String, Double> values = new HashMap<>();
+        for (DatadogMetric metric : flushAggregator()) {
+            values.put(metric.getName(), metric.getValue());
+        }
+        // Exact in aggregate_report mode, sketched in the default ddsketch mode
+        Assert.assertEquals(0.012, values.get("jmeter.latency.max"), 1e-9);
+        Assert.assertEquals(0.12624150202599055, values.get("jmeter.response_time.max"), 1e-12);
+        client.teardownTest(context);
+    }
+
+    @Test
+    public void testResponseClassTagging() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("responseCodeTagging", "class");
+        config.put("responseCodeAllowList", "429");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Arrays.asList(
+            createDummySampleResult("foo", "404"),
+            createDummySampleResult("foo", "410"),
+            createDummySampleResult("foo", "429"),
+            createDummySampleResult("foo", "Non HTTP response code: java.net.SocketException")
+        ), context);
+
+        Map<String, Double> countsByCode = new HashMap<>();
+        for (DatadogMetric metric : flushAggregator()) {
+            if (metric.getName().equals("jmeter.responses_count")) {
+                String codeTags = metric.getTags().stream()
+                    .filter(t -> t.startsWith("response_class:") || t.startsWith("response_code:"))
+                    .collect(java.util.stream.Collectors.joining(","));
+                countsByCode.put(codeTags, metric.getValue());
+            }
+        }
+        Map<String, Double> expected = new HashMap<>();
+        expected.put("response_class:4xx", 20.0);
+        expected.put("response_class:4xx,response_code:429", 10.0);
+        expected.put("response_class:other", 10.0);
+        Assert.assertEquals(expected, countsByCode);
+        client.teardownTest(context);
+    }
+
+    @Test
+    public void testEventTimeLateSamples() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("intervalTimeMode", "event");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        // Ended long before the test started
+        SampleResult late = createDummySampleResult("foo");
+        client.handleSampleResults(Arrays.asList(createOnTimeSampleResult("foo"), late), context);
+        submittedMetrics.clear();
+        client.teardownTest(context);
+
+        double responses = 0;
+        DatadogMetric lateSamples = null;
+        for (DatadogMetric metric : submittedMetrics) {
+            if (metric.getName().equals("jmeter.responses_count")) {
+                responses += metric.getValue();
+            } else if (metric.getName().equals("jmeter.samples.late")) {
+                Assert.assertNull("Late samples sent twice", lateSamples);
+                lateSamples = metric;
+            }
+        }
+        // Late samples are still recorded, into the oldest open interval
+        Assert.assertEquals(20, responses, 0);
+        Assert.assertNotNull("jmeter.samples.late not sent", lateSamples);
+        Assert.assertEquals("count", lateSamples.getType());
+        Assert.assertEquals(1, lateSamples.getValue(), 0);
+        Assert.assertTrue(lateSamples.getTags().contains("test_run_id:" + TEST_RUN_ID));
+    }
+
+    @Test
+    public void testEventTimeWithoutLateSamples() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("intervalTimeMode", "event");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        client.handleSampleResults(Collections.singletonList(createOnTimeSampleResult("foo")), context);
+        submittedMetrics.clear();
+        client.teardownTest(context);
+
+        Assert.assertTrue(submittedMetrics.stream().anyMatch(m -> m.getName().equals("jmeter.responses_count")));
+        Assert.assertFalse(submittedMetrics.stream().anyMatch(m -> m.getName().equals("jmeter.samples.late")));
+    }
+
+    /**
+     * @return a result that ended just now, unlike {@link #createDummySampleResult(String)} which ended at the epoch
+     */
+    private SampleResult createOnTimeSampleResult(String sampleLabel) {
+        long now = System.currentTimeMillis();
+        SampleResult result = SampleResult.createTestSample(now - 100, now);
+        result.setSuccessful(true);
+        result.setResponseCode("123");
+        result.setSampleLabel(sampleLabel);
+        result.setSampleCount(10);
+        result.setErrorCount(1);
+        result.setThreadName("bar baz");
+        return result;
+    }
+
+    @Test
+    public void testDisabledAssertionMetrics() throws Exception {
+        HashMap<String, String> config = new HashMap<>(DEFAULT_VALID_TEST_CONFIG);
+        config.put("disabledMetrics", "assertions");
+        config.put("disabledTags", "thread_group");
+        DatadogBackendClient client = new DatadogBackendClient();
+        BackendListenerContext context = new BackendListenerContext(config);
+        client.setupTest(context);
+
+        SampleResult result = createDummySampleResult("foo");
+        AssertionResult failedAssertion = new AssertionResult("Duration Assertion");
+        failedAssertion.setFailure(true);
+        result.addAssertionResult(failedAssertion);
+        client.handleSampleResults(Collections.singletonList(result), context);
+
+        List<DatadogMetric> metrics = flushAggregator();
+        Assert.assertFalse(metrics.isEmpty());
+        for (DatadogMetric metric : metrics) {
+            Assert.assertFalse(metric.getName().startsWith("jmeter.assertions."));
+            Assert.assertFalse(metric.getTags().stream().anyMatch(t -> t.startsWith("thread_group:")));
+        }
+        client.teardownTest(context);
+    }
+
     @Test
     public void testExtractAssertionMetrics() {
         SampleResult result = createDummySampleResult("foo");
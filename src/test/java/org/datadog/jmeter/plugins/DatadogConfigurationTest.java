@@ -7,12 +7,20 @@ package org.datadog.jmeter.plugins;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.regex.PatternSyntaxException;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.datadog.jmeter.plugins.aggregation.ContextOverflowMode;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettings;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettingsByFamily;
+import org.datadog.jmeter.plugins.aggregation.MetricFamily;
+import org.datadog.jmeter.plugins.aggregation.Percentiles;
 import org.datadog.jmeter.plugins.exceptions.DatadogConfigurationException;
+import org.datadog.jmeter.plugins.util.ResponseCodeTagger;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -28,11 +36,29 @@ public class DatadogConfigurationTest {
     private static final String SAMPLERS_REGEX = "samplersRegex";
     private static final String CUSTOM_TAGS = "customTags";
     private static final String STATISTICS_CALCULATION_MODE = "statisticsCalculationMode";
+    private static final String CUMULATIVE_MAX_LABELS = "cumulativeMaxLabels";
+    private static final String CUMULATIVE_MAX_MEMORY_MB = "cumulativeMaxMemoryMb";
+    private static final String CUMULATIVE_HEARTBEAT_INTERVALS = "cumulativeHeartbeatIntervals";
+    private static final String MAX_CONTEXTS_PER_INTERVAL = "maxContextsPerInterval";
+    private static final String CONTEXT_OVERFLOW_MODE = "contextOverflowMode";
+    private static final String CONTEXT_OVERFLOW_TAGS = "contextOverflowTags";
+    private static final String LABEL_REWRITE_RULES = "labelRewriteRules";
+    private static final String LABEL_PATH_TEMPLATING = "labelPathTemplating";
+    private static final String LABEL_MAX_LENGTH = "labelMaxLength";
+    private static final String HISTOGRAM_PERCENTILES = "histogramPercentiles";
+    private static final String DDSKETCH_SETTINGS = "ddsketchSettings";
+    private static final String FAMILY_STATISTICS_MODES = "familyStatisticsModes";
+    private static final String DISABLED_METRICS = "disabledMetrics";
+    private static final String DISABLED_TAGS = "disabledTags";
+    private static final String RESPONSE_CODE_TAGGING = "responseCodeTagging";
+    private static final String RESPONSE_CODE_ALLOW_LIST = "responseCodeAllowList";
+    private static final String INTERVAL_TIME_MODE = "intervalTimeMode";
+    private static final String ALLOWED_LATENESS_SECONDS = "allowedLatenessSeconds";
 
     @Test
     public void testArguments(){
         Arguments args = DatadogConfiguration.getPluginArguments();
-        Assert.assertEquals(11, args.getArgumentCount());
+        Assert.assertEquals(29, args.getArgumentCount());
 
         Map<String, String> argumentsMap = args.getArgumentsAsMap();
         Assert.assertTrue(argumentsMap.containsKey(API_URL_PARAM));
@@ -46,6 +72,22 @@ public class DatadogConfigurationTest {
         Assert.assertTrue(argumentsMap.containsKey(SAMPLERS_REGEX));
         Assert.assertTrue(argumentsMap.containsKey(CUSTOM_TAGS));
         Assert.assertTrue(argumentsMap.containsKey(STATISTICS_CALCULATION_MODE));
+        Assert.assertTrue(argumentsMap.containsKey(CUMULATIVE_MAX_LABELS));
+        Assert.assertTrue(argumentsMap.containsKey(CUMULATIVE_MAX_MEMORY_MB));
+        Assert.assertTrue(argumentsMap.containsKey(CUMULATIVE_HEARTBEAT_INTERVALS));
+        Assert.assertTrue(argumentsMap.containsKey(MAX_CONTEXTS_PER_INTERVAL));
+        Assert.assertTrue(argumentsMap.containsKey(CONTEXT_OVERFLOW_MODE));
+        Assert.assertTrue(argumentsMap.containsKey(CONTEXT_OVERFLOW_TAGS));
+        Assert.assertTrue(argumentsMap.containsKey(LABEL_REWRITE_RULES));
+        Assert.assertTrue(argumentsMap.containsKey(LABEL_PATH_TEMPLATING));
+        Assert.assertTrue(argumentsMap.containsKey(LABEL_MAX_LENGTH));
+        Assert.assertTrue(argumentsMap.containsKey(HISTOGRAM_PERCENTILES));
+        Assert.assertTrue(argumentsMap.containsKey(DDSKETCH_SETTINGS));
+        Assert.assertTrue(argumentsMap.containsKey(FAMILY_STATISTICS_MODES));
+        Assert.assertTrue(argumentsMap.containsKey(DISABLED_METRICS));
+        Assert.assertTrue(argumentsMap.containsKey(DISABLED_TAGS));
+        Assert.assertTrue(argumentsMap.containsKey(RESPONSE_CODE_TAGGING));
+        Assert.assertTrue(argumentsMap.containsKey(RESPONSE_CODE_ALLOW_LIST));
     }
 
     @Test
@@ -63,6 +105,15 @@ public class DatadogConfigurationTest {
                 put(SAMPLERS_REGEX, "false");
                 put(CUSTOM_TAGS, "key:value");
                 put(STATISTICS_CALCULATION_MODE, "aggregate_report");
+                put(CUMULATIVE_MAX_LABELS, "500");
+                put(CUMULATIVE_MAX_MEMORY_MB, "64");
+                put(CUMULATIVE_HEARTBEAT_INTERVALS, "3");
+                put(MAX_CONTEXTS_PER_INTERVAL, "1000");
+                put(CONTEXT_OVERFLOW_MODE, "drop");
+                put(CONTEXT_OVERFLOW_TAGS, "response_code, sample_label");
+                put(LABEL_REWRITE_RULES, "\\?.*=>;^GET =>");
+                put(LABEL_PATH_TEMPLATING, "true");
+                put(LABEL_MAX_LENGTH, "100");
             }
         };
 
@@ -78,6 +129,211 @@ public class DatadogConfigurationTest {
         Assert.assertTrue(datadogConfiguration.shouldSendResultsAsLogs());
         Assert.assertFalse(datadogConfiguration.shouldIncludeSubResults());
         Assert.assertEquals(StatisticsMode.AGGREGATE_REPORT, datadogConfiguration.getStatisticsCalculationMode());
+        Assert.assertEquals(500, datadogConfiguration.getCumulativeMaxLabels());
+        Assert.assertEquals(64, datadogConfiguration.getCumulativeMaxMemoryMb());
+        Assert.assertEquals(3, datadogConfiguration.getCumulativeHeartbeatIntervals());
+        Assert.assertEquals(1000, datadogConfiguration.getMaxContextsPerInterval());
+        Assert.assertEquals(ContextOverflowMode.DROP, datadogConfiguration.getContextOverflowMode());
+        Assert.assertEquals(Arrays.asList("response_code", "sample_label"), datadogConfiguration.getContextOverflowTags());
+        Assert.assertEquals(2, datadogConfiguration.getLabelRewriteRules().size());
+        Assert.assertEquals("^GET ", datadogConfiguration.getLabelRewriteRules().get(1).getPattern().pattern());
+        Assert.assertTrue(datadogConfiguration.shouldTemplateLabelPaths());
+        Assert.assertEquals(100, datadogConfiguration.getLabelMaxLength());
+    }
+
+    @Test
+    public void testLabelNormalizationDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertTrue(datadogConfiguration.getLabelRewriteRules().isEmpty());
+        Assert.assertFalse(datadogConfiguration.shouldTemplateLabelPaths());
+        Assert.assertEquals(0, datadogConfiguration.getLabelMaxLength());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testLabelRewriteRulesInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(LABEL_REWRITE_RULES, "(unclosed=>x");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testLabelPathTemplatingInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(LABEL_PATH_TEMPLATING, "yes");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testHistogramPercentiles() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(HISTOGRAM_PERCENTILES, "response_time=50,90,95,99,99.9,99.99");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Percentiles responseTime = datadogConfiguration.getHistogramPercentiles().forFamily(MetricFamily.RESPONSE_TIME);
+        Assert.assertEquals(6, responseTime.size());
+        Assert.assertEquals("p99_99", responseTime.getSuffix(5));
+        Assert.assertEquals(Percentiles.DEFAULT, datadogConfiguration.getHistogramPercentiles().forFamily(MetricFamily.LATENCY));
+    }
+
+    @Test
+    public void testHistogramPercentilesDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        for (MetricFamily family : MetricFamily.values()) {
+            Assert.assertEquals(Percentiles.DEFAULT, datadogConfiguration.getHistogramPercentiles().forFamily(family));
+        }
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testHistogramPercentilesInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(HISTOGRAM_PERCENTILES, "response_time=50,150");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testDDSketchSettings() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(DDSKETCH_SETTINGS, "response_time=logarithmic:0.02:collapsing_highest:512; bytes_sent=linear:0.01:sparse");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        DDSketchSettingsByFamily settings = datadogConfiguration.getDDSketchSettings();
+        Assert.assertEquals(new DDSketchSettings(DDSketchSettings.Mapping.LOGARITHMIC, 0.02, DDSketchSettings.StoreType.COLLAPSING_HIGHEST, 512),
+            settings.forFamily(MetricFamily.RESPONSE_TIME));
+        Assert.assertEquals(new DDSketchSettings(DDSketchSettings.Mapping.LINEAR, 0.01, DDSketchSettings.StoreType.SPARSE, 0),
+            settings.forFamily(MetricFamily.BYTES_SENT));
+        Assert.assertEquals(DDSketchSettings.DEFAULT, settings.forFamily(MetricFamily.LATENCY));
+        Assert.assertEquals(DDSketchSettings.DEFAULT_BYTES, settings.forFamily(MetricFamily.BYTES_RECEIVED));
+    }
+
+    @Test
+    public void testDDSketchSettingsDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        for (MetricFamily family : MetricFamily.values()) {
+            Assert.assertEquals(DDSketchSettings.defaultFor(family), datadogConfiguration.getDDSketchSettings().forFamily(family));
+        }
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testDDSketchSettingsInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(DDSKETCH_SETTINGS, "latency=cubic:0.01:sparse:100");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testContextLimitDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(0, datadogConfiguration.getMaxContextsPerInterval());
+        Assert.assertEquals(ContextOverflowMode.COLLAPSE, datadogConfiguration.getContextOverflowMode());
+        Assert.assertEquals(Arrays.asList("response_code"), datadogConfiguration.getContextOverflowTags());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testContextOverflowModeInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(CONTEXT_OVERFLOW_MODE, "bogus");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testCumulativeBudgetsDefaultToUnlimited() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(0, datadogConfiguration.getCumulativeMaxLabels());
+        Assert.assertEquals(0, datadogConfiguration.getCumulativeMaxMemoryMb());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testCumulativeMaxLabelsNotInt() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(CUMULATIVE_MAX_LABELS, "-1");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testCumulativeMaxMemoryMbNotInt() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(CUMULATIVE_MAX_MEMORY_MB, "foo");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testCumulativeHeartbeatIntervalsDefault() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        Assert.assertEquals(1, DatadogConfiguration.parseConfiguration(new BackendListenerContext(config)).getCumulativeHeartbeatIntervals());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testCumulativeHeartbeatIntervalsZero() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(CUMULATIVE_HEARTBEAT_INTERVALS, "0");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
     }
 
     @Test(expected = DatadogConfigurationException.class)
@@ -115,6 +371,187 @@ public class DatadogConfigurationTest {
         Assert.assertEquals(StatisticsMode.DASHBOARD, datadogConfiguration.getStatisticsCalculationMode());
     }
 
+    @Test
+    public void testFamilyStatisticsModes() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(STATISTICS_CALCULATION_MODE, "aggregate_report");
+                put(FAMILY_STATISTICS_MODES, "bytes_sent=ddsketch;bytes_received=DDSketch; latency=dashboard");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(StatisticsMode.AGGREGATE_REPORT, datadogConfiguration.getStatisticsCalculationMode());
+        Assert.assertEquals(StatisticsMode.AGGREGATE_REPORT, datadogConfiguration.getStatisticsMode(MetricFamily.RESPONSE_TIME));
+        Assert.assertEquals(StatisticsMode.DDSKETCH, datadogConfiguration.getStatisticsMode(MetricFamily.BYTES_SENT));
+        Assert.assertEquals(StatisticsMode.DDSKETCH, datadogConfiguration.getStatisticsMode(MetricFamily.BYTES_RECEIVED));
+        Assert.assertEquals(StatisticsMode.DASHBOARD, datadogConfiguration.getStatisticsMode(MetricFamily.LATENCY));
+    }
+
+    @Test
+    public void testFamilyStatisticsModesDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(STATISTICS_CALCULATION_MODE, "dashboard");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        for (MetricFamily family : MetricFamily.values()) {
+            Assert.assertEquals(StatisticsMode.DASHBOARD, datadogConfiguration.getStatisticsMode(family));
+        }
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testFamilyStatisticsModesInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(FAMILY_STATISTICS_MODES, "latency=fixed_buckets");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testRecordingPlan() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(DISABLED_METRICS, "latency, Bytes_Sent,assertions");
+                put(DISABLED_TAGS, "thread_group");
+            }
+        };
+        RecordingPlan plan = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config)).getRecordingPlan();
+        Assert.assertEquals(EnumSet.of(MetricFamily.RESPONSE_TIME, MetricFamily.BYTES_RECEIVED), plan.getFamilies());
+        Assert.assertFalse(plan.recordsAssertions());
+        Assert.assertTrue(plan.isTagged(RecordingPlan.Tag.RESPONSE_CODE));
+        Assert.assertFalse(plan.isTagged(RecordingPlan.Tag.THREAD_GROUP));
+        Assert.assertTrue(plan.isTagged(RecordingPlan.Tag.ASSERTION_NAME));
+    }
+
+    @Test
+    public void testRecordingPlanDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        RecordingPlan plan = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config)).getRecordingPlan();
+        Assert.assertEquals(EnumSet.allOf(MetricFamily.class), plan.getFamilies());
+        Assert.assertTrue(plan.recordsAssertions());
+        for (RecordingPlan.Tag tag : RecordingPlan.Tag.values()) {
+            Assert.assertTrue(plan.isTagged(tag));
+        }
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testDisabledMetricsInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(DISABLED_METRICS, "connect_time");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testDisabledTagsInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(DISABLED_TAGS, "sample_label");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testResponseCodeTagging() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(RESPONSE_CODE_TAGGING, "Class");
+                put(RESPONSE_CODE_ALLOW_LIST, "429, 503");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(ResponseCodeTagger.Mode.CLASS, datadogConfiguration.getResponseCodeTagging());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("429", "503")), datadogConfiguration.getResponseCodeAllowList());
+    }
+
+    @Test
+    public void testResponseCodeTaggingDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(ResponseCodeTagger.Mode.EXACT, datadogConfiguration.getResponseCodeTagging());
+        Assert.assertTrue(datadogConfiguration.getResponseCodeAllowList().isEmpty());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testResponseCodeTaggingInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(RESPONSE_CODE_TAGGING, "family");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test
+    public void testIntervalTimeMode() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(INTERVAL_TIME_MODE, "Event");
+                put(ALLOWED_LATENESS_SECONDS, "20");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(IntervalTimeMode.EVENT, datadogConfiguration.getIntervalTimeMode());
+        Assert.assertEquals(20, datadogConfiguration.getAllowedLatenessSeconds());
+    }
+
+    @Test
+    public void testIntervalTimeModeDefaults() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+            }
+        };
+        DatadogConfiguration datadogConfiguration = DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+        Assert.assertEquals(IntervalTimeMode.PROCESSING, datadogConfiguration.getIntervalTimeMode());
+        Assert.assertEquals(5, datadogConfiguration.getAllowedLatenessSeconds());
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testIntervalTimeModeInvalid() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(INTERVAL_TIME_MODE, "ingestion");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
+    @Test(expected = DatadogConfigurationException.class)
+    public void testAllowedLatenessNegative() throws DatadogConfigurationException {
+        Map<String, String> config = new HashMap<String, String>() {
+            {
+                put("apiKey", "123456");
+                put(ALLOWED_LATENESS_SECONDS, "-1");
+            }
+        };
+        DatadogConfiguration.parseConfiguration(new BackendListenerContext(config));
+    }
+
     @Test(expected = DatadogConfigurationException.class)
     public void testMissingApiKey() throws DatadogConfigurationException {
         Map<String, String> config = new HashMap<>();
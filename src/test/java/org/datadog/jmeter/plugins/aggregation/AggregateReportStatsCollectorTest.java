@@ -0,0 +1,144 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks {@link AggregateReportStatsCollector} against {@link JmeterCompatibleStatsCollector}, which delegates to
+ * JMeter's {@code StatCalculatorLong}.
+ */
+public class AggregateReportStatsCollectorTest {
+    private static final Percentiles PERCENTILES = Percentiles.of(0.1, 1, 10, 25, 50, 75, 90, 95, 99, 99.9, 99.99, 100);
+
+    private static void assertSame(StatsCollector expected, StatsCollector actual) {
+        Assert.assertEquals(expected.getCount(), actual.getCount());
+        AggregationSnapshot e = expected.getSnapshot(PERCENTILES).get();
+        AggregationSnapshot a = actual.getSnapshot(PERCENTILES).get();
+        for (int i = 0; i < e.size(); i++) {
+            Assert.assertEquals(e.getField(i), e.getValue(i), a.getValue(i), 0.0);
+        }
+    }
+
+    private static void addAll(double[] values, StatsCollector... collectors) {
+        for (double value : values) {
+            for (StatsCollector collector : collectors) {
+                collector.addValue(value);
+            }
+        }
+    }
+
+    private static double[] logNormal(Random random, int count, double median) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.exp(random.nextGaussian()) * median;
+        }
+        return values;
+    }
+
+    @Test
+    public void testSameAsStatCalculator() {
+        Random random = new Random(42);
+        for (int n : new int[] { 1, 2, 3, 7, 100, 1001, 20000 }) {
+            StatsCollector expected = new JmeterCompatibleStatsCollector();
+            StatsCollector actual = new AggregateReportStatsCollector();
+            addAll(logNormal(random, n, 0.2), expected, actual);
+            assertSame(expected, actual);
+        }
+    }
+
+    @Test
+    public void testValuesAboveTheArray() {
+        Random random = new Random(7);
+        StatsCollector expected = new JmeterCompatibleStatsCollector();
+        StatsCollector actual = new AggregateReportStatsCollector(100);
+        // Mostly above 100 ms, some negative
+        double[] values = logNormal(random, 5000, 0.1);
+        for (int i = 0; i < values.length; i += 50) {
+            values[i] = -values[i];
+        }
+        addAll(values, expected, actual);
+        assertSame(expected, actual);
+    }
+
+    @Test
+    public void testWithoutArray() {
+        StatsCollector expected = new JmeterCompatibleStatsCollector();
+        StatsCollector actual = new AggregateReportStatsCollector(0);
+        addAll(logNormal(new Random(3), 1000, 0.05), expected, actual);
+        assertSame(expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDenseLimit() {
+        new AggregateReportStatsCollector(-1);
+    }
+
+    @Test
+    public void testMergeSameAsStatCalculator() {
+        Random random = new Random(11);
+        StatsCollector expected = new JmeterCompatibleStatsCollector();
+        StatsCollector actual = new AggregateReportStatsCollector(1000);
+        addAll(logNormal(random, 3000, 0.5), expected, actual);
+
+        StatsCollector expectedOther = new JmeterCompatibleStatsCollector();
+        // Merging collectors with different array limits keeps every value
+        StatsCollector actualOther = new AggregateReportStatsCollector(50);
+        addAll(logNormal(random, 2000, 0.02), expectedOther, actualOther);
+
+        expected.merge(expectedOther);
+        actual.merge(actualOther);
+        assertSame(expected, actual);
+    }
+
+    @Test
+    public void testResetKeepsArray() {
+        AggregateReportStatsCollector collector = new AggregateReportStatsCollector();
+        addAll(logNormal(new Random(5), 1000, 0.2), collector);
+        long footprint = collector.estimateMemoryBytes();
+        collector.reset();
+        Assert.assertEquals(footprint, collector.estimateMemoryBytes());
+
+        StatsCollector expected = new JmeterCompatibleStatsCollector();
+        addAll(new double[] { 0.003, 0.001, 0.002 }, expected, collector);
+        assertSame(expected, collector);
+    }
+
+    @Test
+    public void testResetShrinksUnusedArray() {
+        AggregateReportStatsCollector collector = new AggregateReportStatsCollector();
+        addAll(new double[] { 0.003, 10 }, collector);
+        long slowFootprint = collector.estimateMemoryBytes();
+        collector.reset();
+        // The interval used the whole array
+        Assert.assertEquals(slowFootprint, collector.estimateMemoryBytes());
+
+        addAll(new double[] { 0.003, 0.040 }, collector);
+        collector.reset();
+        long fastFootprint = collector.estimateMemoryBytes();
+        Assert.assertTrue(fastFootprint < 1000);
+        Assert.assertTrue(fastFootprint < slowFootprint / 100);
+
+        // Intervals without values release the array
+        collector.reset();
+        Assert.assertTrue(collector.estimateMemoryBytes() < fastFootprint);
+
+        StatsCollector expected = new JmeterCompatibleStatsCollector();
+        addAll(new double[] { 0.003, 0.5, 0.001 }, expected, collector);
+        assertSame(expected, collector);
+    }
+
+    @Test
+    public void testArrayBounded() {
+        AggregateReportStatsCollector collector = new AggregateReportStatsCollector();
+        addAll(new double[] { 0.001, 1000, 100000 }, collector);
+        // Two values outside of the array
+        Assert.assertTrue(collector.estimateMemoryBytes() < AggregateReportStatsCollector.DEFAULT_DENSE_LIMIT_MS * 8L + 1000);
+        Assert.assertEquals(100000, collector.getSnapshot().get().getMax(), 0.0);
+    }
+}
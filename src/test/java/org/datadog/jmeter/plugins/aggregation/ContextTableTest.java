@@ -0,0 +1,79 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+import org.junit.Test;
+
+public class ContextTableTest {
+
+    private static DatadogMetricContext context(int i) {
+        return new DatadogMetricContext("metric" + (i % 7), Collections.singletonList("tag:" + i));
+    }
+
+    private static Map<DatadogMetricContext, Long> contents(ContextTable table) {
+        Map<DatadogMetricContext, Long> m = new HashMap<>();
+        for (int i = 0; i < table.capacity(); i++) {
+            if (table.keyAt(i) != null) {
+                assertNull(m.put(table.keyAt(i), table.longAt(i)));
+            }
+        }
+        assertEquals(table.size(), m.size());
+        return m;
+    }
+
+    @Test
+    public void testAddThroughResizes() {
+        ContextTable table = new ContextTable();
+        Map<DatadogMetricContext, Long> expected = new HashMap<>();
+        for (int n = 0; n < 3; n++) {
+            for (int i = 0; i < 1000; i++) {
+                table.add(table.findOrInsert(context(i)), i);
+                expected.merge(context(i), (long) i, Long::sum);
+            }
+        }
+        assertEquals(expected, contents(table));
+        assertEquals(-1, table.find(context(1000)));
+        assertEquals(2997, table.longAt(table.find(context(999))));
+    }
+
+    @Test
+    public void testDoubleValues() {
+        ContextTable table = new ContextTable();
+        table.setDouble(table.findOrInsert(context(1)), 0.5);
+        table.setDouble(table.findOrInsert(context(1)), -12.25);
+        assertEquals(1, table.size());
+        assertEquals(-12.25, table.doubleAt(table.find(context(1))), 0.0);
+    }
+
+    @Test
+    public void testClearAndReuse() {
+        ContextTable table = new ContextTable();
+        for (int i = 0; i < 1000; i++) {
+            table.add(table.findOrInsert(context(i)), 1);
+        }
+        int capacity = table.capacity();
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(capacity, table.capacity());
+        assertEquals(-1, table.find(context(1)));
+
+        // New values start from 0
+        table.add(table.findOrInsert(context(1)), 5);
+        assertEquals(5, table.longAt(table.find(context(1))));
+
+        // Mostly unused after the spike, shrinks
+        table.clear();
+        assertTrue(table.capacity() < capacity);
+        table.add(table.findOrInsert(context(2)), 3);
+        assertEquals(Collections.singletonMap(context(2), 3L), contents(table));
+    }
+}
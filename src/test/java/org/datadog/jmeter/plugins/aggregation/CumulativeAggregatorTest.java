@@ -11,9 +11,12 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -74,6 +77,78 @@ public class CumulativeAggregatorTest {
             assertEquals(100, m.get(P + "responses_count").longValue());
             assertMetrics(m, P + "response_time.", tol);
         }
+
+        /**
+         * Below the dashboard window size, merging the labels gives the same total for every collector, including
+         * the labels folded into the other bucket.
+         */
+        @Test
+        public void testMergedTotalSameAsRecorded() {
+            CumulativeAggregator recorded = new CumulativeAggregator(factory, false,
+                new CumulativeAggregator.Settings().budget(2, 0));
+            CumulativeAggregator merged = new CumulativeAggregator(factory, false,
+                new CumulativeAggregator.Settings().budget(2, 0).recordTotal(false));
+
+            long t = 1000;
+            for (int i = 1; i <= 100; i++) {
+                long durationMs = i * 10;
+                SampleResult sample = sample("label-" + (i % 4), i % 7 != 0, t, t + durationMs);
+                recorded.addSample(sample);
+                merged.addSample(sample);
+                t += durationMs / 2;
+            }
+
+            Map<String, Double> expected = metricsForLabel(recorded, "total");
+            Map<String, Double> actual = metricsForLabel(merged, "total");
+            assertEquals(100, actual.get(P + "responses_count").longValue());
+            assertEquals(expected.keySet(), actual.keySet());
+            for (Map.Entry<String, Double> entry : expected.entrySet()) {
+                assertEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()), 1e-9);
+            }
+            assertEquals(metricsForLabel(recorded, "__other__"), metricsForLabel(merged, "__other__"));
+        }
+
+        @Test
+        public void testResponseTimePercentiles() {
+            CumulativeAggregator tracker = new CumulativeAggregator(factory, false,
+                new CumulativeAggregator.Settings().responseTimePercentiles(Percentiles.of(50, 99.9, 99.99)));
+
+            long t = 1000;
+            for (int i = 1; i <= 100; i++) {
+                long durationMs = i * 10;
+                tracker.addSample(sample("test", true, t, t + durationMs));
+                t += durationMs;
+            }
+
+            Map<String, Double> m = metricsForLabel(tracker, "test");
+            assertEquals(1.0, m.get(P + "response_time.p99_9"), 0.02);
+            assertEquals(1.0, m.get(P + "response_time.p99_99"), 0.02);
+            assertEquals(m.get(P + "response_time.median"), metricsForLabel(tracker, "total").get(P + "response_time.median"), 0.0);
+            assertFalse(m.containsKey(P + "response_time.p90"));
+        }
+
+        @Test
+        public void testAddSamplesSameAsAddSample() {
+            CumulativeAggregator individual = new CumulativeAggregator(factory, false);
+            CumulativeAggregator batched = new CumulativeAggregator(factory, false);
+
+            List<SampleResult> samples = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
+            long t = 1000;
+            for (int i = 1; i <= 100; i++) {
+                long durationMs = i * 10;
+                SampleResult sample = sample(i % 3 == 0 ? "b" : "a", i % 7 != 0, t, t + durationMs);
+                individual.addSample(sample);
+                samples.add(sample);
+                labels.add(sample.getSampleLabel());
+                t += durationMs;
+            }
+            batched.addSamples(samples, labels);
+
+            for (String label : Arrays.asList("a", "b", "total")) {
+                assertEquals(label, metricsForLabel(individual, label), metricsForLabel(batched, label));
+            }
+        }
     }
 
     /**
@@ -290,6 +365,30 @@ public class CumulativeAggregatorTest {
             assertEquals(nThreads, m.get(P + "responses_count").longValue());
         }
 
+        @Test
+        public void testResponseTimeFamily() {
+            StatsFactoryByFamily factories = new StatsFactoryByFamily(DDSketchStatsCollector::new,
+                family -> family == MetricFamily.RESPONSE_TIME ? AggregateReportStatsCollector::new : DDSketchStatsCollector::new);
+            PercentilesByFamily percentiles = PercentilesByFamily.parse("response_time=50,99.9;latency=99");
+            CumulativeAggregator tracker = new CumulativeAggregator(factories.forFamily(MetricFamily.RESPONSE_TIME), false,
+                new CumulativeAggregator.Settings().recordTotal(false)
+                    .responseTimePercentiles(percentiles.forFamily(MetricFamily.RESPONSE_TIME)));
+
+            long t = 1000;
+            for (int i = 1; i <= 100; i++) {
+                long durationMs = i * 10;
+                tracker.addSample(sample("test", true, t, t + durationMs));
+                t += durationMs;
+            }
+
+            Map<String, Double> m = metricsForLabel(tracker, "test");
+            // Exact, as the aggregate report
+            assertEquals(0.5, m.get(P + "response_time.median"), 0.0);
+            assertEquals(0.5, metricsForLabel(tracker, "total").get(P + "response_time.median"), 0.0);
+            assertEquals(1.0, m.get(P + "response_time.p99_9"), 0.0);
+            assertFalse(m.containsKey(P + "response_time.p99"));
+        }
+
         /**
          * Verifies emitted metrics match the StatsCollector snapshot exactly (catches
          * wiring bugs).
@@ -310,6 +409,300 @@ public class CumulativeAggregatorTest {
         }
     }
 
+    /**
+     * Tests for the label and memory budgets, which fold the least recently updated labels into
+     * {@code sample_label:__other__}.
+     */
+    public static class BudgetTests {
+
+        @Test
+        public void testNoBudgetNoEvictionMetrics() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false);
+            tracker.addSample(sample("test", true, 1, 101));
+
+            for (DatadogMetric m : tracker.buildMetrics(new ArrayList<>())) {
+                assertFalse(m.getName().startsWith(P + "labels."));
+            }
+        }
+
+        @Test
+        public void testLabelBudgetFoldsLeastRecentlyUpdated() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(2, 0));
+
+            tracker.addSample(sample("a", true, 1, 101));
+            tracker.addSample(sample("b", true, 101, 201));
+            // Touch "a" again so that "b" becomes the least recently updated label
+            tracker.addSample(sample("a", true, 201, 301));
+            tracker.addSample(sample("c", false, 301, 401));
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildMetrics(new ArrayList<>()));
+            assertTrue(byLabel.containsKey("a"));
+            assertTrue(byLabel.containsKey("c"));
+            assertFalse("b should have been evicted", byLabel.containsKey("b"));
+            assertTrue(byLabel.containsKey("__other__"));
+
+            assertEquals(1, metricsForLabel(tracker, "__other__").get(P + "responses_count").longValue());
+            assertEquals(4, metricsForLabel(tracker, "total").get(P + "responses_count").longValue());
+
+            Map<String, Double> budget = unlabeledMetrics(tracker);
+            assertEquals(2.0, budget.get(P + "labels.tracked"), 0.0);
+            assertEquals(1.0, budget.get(P + "labels.evicted"), 0.0);
+        }
+
+        @Test
+        public void testOtherBucketAccumulatesEvictedLabels() {
+            CumulativeAggregator tracker = new CumulativeAggregator(JmeterCompatibleStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(1, 0));
+
+            tracker.addSample(sample("a", true, 1000, 1100));
+            tracker.addSample(sample("b", false, 1100, 1300));
+            tracker.addSample(sample("c", true, 1300, 1600));
+
+            Map<String, Double> other = metricsForLabel(tracker, "__other__");
+            assertEquals(2, other.get(P + "responses_count").longValue());
+            assertEquals(50.0, other.get(P + "responses.error_percent"), 0.01);
+            assertEquals(0.1, other.get(P + "response_time.min"), 0.0001);
+            assertEquals(0.2, other.get(P + "response_time.max"), 0.0001);
+
+            Map<String, Double> total = metricsForLabel(tracker, "total");
+            assertEquals(3, total.get(P + "responses_count").longValue());
+            assertEquals(0.3, total.get(P + "response_time.max"), 0.0001);
+        }
+
+        @Test
+        public void testMemoryBudgetEvictsUntilWithinBudget() {
+            // A budget this small can't hold a single label, so every label ends up folded.
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(0, 1));
+
+            for (int i = 0; i < 10; i++) {
+                tracker.addSample(sample("label-" + i, true, 1000 + i * 100, 1050 + i * 100));
+            }
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildMetrics(new ArrayList<>()));
+            for (int i = 0; i < 10; i++) {
+                assertFalse(byLabel.containsKey("label-" + i));
+            }
+            assertEquals(10, metricsForLabel(tracker, "__other__").get(P + "responses_count").longValue());
+            assertEquals(10.0, unlabeledMetrics(tracker).get(P + "labels.evicted"), 0.0);
+        }
+
+        @Test
+        public void testGenerousMemoryBudgetKeepsLabels() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(0, 64L * 1024 * 1024));
+
+            for (int i = 0; i < 10; i++) {
+                tracker.addSample(sample("label-" + i, true, 1000 + i * 100, 1050 + i * 100));
+            }
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildMetrics(new ArrayList<>()));
+            assertFalse(byLabel.containsKey("__other__"));
+            assertEquals(0.0, unlabeledMetrics(tracker).get(P + "labels.evicted"), 0.0);
+        }
+
+        @Test
+        public void testSamplerNamedOtherIsNotConfused() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(1, 0));
+
+            tracker.addSample(sample("__other__", true, 1, 101));
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildMetrics(new ArrayList<>()));
+            assertTrue(byLabel.containsKey("_other"));
+            assertFalse(byLabel.containsKey("__other__"));
+        }
+    }
+
+    /**
+     * Tests for the per-second throughput of the labels and the total.
+     */
+    public static class ThroughputTimelineTests {
+        private static final long T0 = 1700000000000L;
+
+        @Test
+        public void testPerSecondThroughput() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false);
+            // 3 then 1 requests per second for "a", 1 per second for "b"
+            for (int second = 0; second < 4; second++) {
+                int requests = second < 2 ? 3 : 1;
+                for (int i = 0; i < requests; i++) {
+                    tracker.addSample(sample("a", i != 1, T0 + second * 1000 + i * 100, T0 + second * 1000 + i * 100 + 50));
+                }
+                tracker.addSample(sample("b", true, T0 + second * 1000 + 500, T0 + second * 1000 + 550));
+            }
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildFinalMetrics(new ArrayList<>()));
+            Map<String, Double> a = byName(byLabel.get("a"));
+            assertEquals(3, a.get("jmeter.final_result.throughput.rps.max"), 0);
+            assertEquals(1, a.get("jmeter.final_result.throughput.rps.min"), 0);
+            assertEquals(1, a.get("jmeter.final_result.throughput.rps.stddev"), 1e-9);
+            assertEquals(1, a.get("jmeter.final_result.throughput.error_rps.max"), 0);
+            assertEquals(3000, a.get("jmeter.final_result.bytes_received.rate.max"), 0);
+
+            Map<String, Double> total = byName(byLabel.get("total"));
+            assertEquals(4, total.get("jmeter.final_result.throughput.rps.max"), 0);
+            assertEquals(2, total.get("jmeter.final_result.throughput.rps.min"), 0);
+        }
+
+        @Test
+        public void testRecentSecondsAreNotRolledUp() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false);
+            tracker.addSample(sample("a", true, T0, T0 + 50));
+
+            // Samples may still end in the same second
+            assertFalse(metricsForLabel(tracker, "a").containsKey(P + "throughput.rps.max"));
+
+            tracker.addSample(sample("b", true, T0 + 10_000, T0 + 10_050));
+            assertEquals(1, metricsForLabel(tracker, "a").get(P + "throughput.rps.max"), 0);
+        }
+
+        @Test
+        public void testLatenessOfLabelsFarApart() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().throughputLatenessSeconds(10));
+            tracker.addSample(sample("a", true, T0, T0 + 50));
+            // 8 seconds after "a", within the lateness
+            tracker.addSample(sample("b", true, T0 + 8000, T0 + 8050));
+            assertFalse(metricsForLabel(tracker, "a").containsKey(P + "throughput.rps.max"));
+
+            // A slow sample of "a" processed after "b" still counts
+            tracker.addSample(sample("a", true, T0 + 100, T0 + 150));
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildFinalMetrics(new ArrayList<>()));
+            assertEquals(2, byName(byLabel.get("a")).get("jmeter.final_result.throughput.rps.max"), 0);
+            assertFalse(byName(byLabel.get("a")).containsKey("jmeter.final_result.throughput.samples.late"));
+        }
+
+        @Test
+        public void testLateSamplesAreCounted() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false);
+            tracker.addSample(sample("a", true, T0, T0 + 50));
+            // 8 seconds after "a", beyond the default lateness
+            tracker.addSample(sample("b", true, T0 + 8000, T0 + 8050));
+            assertEquals(1, metricsForLabel(tracker, "a").get(P + "throughput.rps.max"), 0);
+
+            // Ends in a second of "a" that was rolled up already
+            tracker.addSample(sample("a", true, T0 + 100, T0 + 150));
+            Map<String, Double> a = metricsForLabel(tracker, "a");
+            assertEquals(1, a.get(P + "throughput.samples.late"), 0);
+            assertEquals(1, a.get(P + "throughput.rps.max"), 0);
+            // Still counted in the other cumulative metrics
+            assertEquals(2, a.get(P + "responses_count"), 0);
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void testNegativeLateness() {
+            new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().throughputLatenessSeconds(-1));
+        }
+
+        @Test
+        public void testEvictedLabelsHaveNoPerSecondThroughput() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(1, 0));
+            tracker.addSample(sample("a", true, T0, T0 + 50));
+            tracker.addSample(sample("b", true, T0 + 1000, T0 + 1050));
+
+            Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildFinalMetrics(new ArrayList<>()));
+            assertFalse(byName(byLabel.get("__other__")).containsKey("jmeter.final_result.throughput.rps.max"));
+            assertEquals(1, byName(byLabel.get("b")).get("jmeter.final_result.throughput.rps.max"), 0);
+            assertEquals(1, byName(byLabel.get("total")).get("jmeter.final_result.throughput.rps.max"), 0);
+        }
+
+        private static Map<String, Double> byName(List<DatadogMetric> metrics) {
+            Map<String, Double> result = new HashMap<>();
+            for (DatadogMetric m : metrics) {
+                result.put(m.getName(), m.getValue());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Tests for building the metrics of the labels that changed only, plus a heartbeat of the others.
+     */
+    public static class ChangedLabelsTests {
+
+        private static CumulativeAggregator tracker(boolean recordTotal, int heartbeatIntervals) {
+            return new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().recordTotal(recordTotal).heartbeatIntervals(heartbeatIntervals));
+        }
+
+        private static Set<String> builtLabels(CumulativeAggregator tracker) {
+            return groupByLabel(tracker.buildMetrics(new ArrayList<>())).keySet();
+        }
+
+        @Test
+        public void testOnlyChangedLabelsAreBuilt() {
+            for (boolean recordTotal : new boolean[] { true, false }) {
+                CumulativeAggregator tracker = tracker(recordTotal, 3);
+                tracker.addSample(sample("a", true, 1, 101));
+                tracker.addSample(sample("b", true, 101, 201));
+                assertEquals(new HashSet<>(Arrays.asList("a", "b", "total")), builtLabels(tracker));
+
+                tracker.addSample(sample("b", false, 201, 301));
+                assertEquals(new HashSet<>(Arrays.asList("b", "total")), builtLabels(tracker));
+                assertEquals(Collections.emptySet(), builtLabels(tracker));
+
+                // "a" was skipped twice, "b" once
+                Map<String, List<DatadogMetric>> byLabel = groupByLabel(tracker.buildMetrics(new ArrayList<>()));
+                assertEquals(Collections.singleton("a"), byLabel.keySet());
+                assertEquals(new HashSet<>(Arrays.asList("b", "total")), builtLabels(tracker));
+                assertEquals(Collections.emptySet(), builtLabels(tracker));
+                assertEquals(new HashSet<>(Arrays.asList("a")), builtLabels(tracker));
+            }
+        }
+
+        @Test
+        public void testHeartbeatMetricsAreCumulative() {
+            CumulativeAggregator tracker = tracker(false, 2);
+            tracker.addSample(sample("a", true, 1, 101));
+            tracker.addSample(sample("a", false, 101, 201));
+            tracker.buildMetrics(new ArrayList<>());
+
+            // Skipped once, then built again with the same values
+            assertEquals(Collections.emptySet(), builtLabels(tracker));
+            Map<String, Double> m = metricsForLabel(tracker, "a");
+            assertEquals(2, m.get(P + "responses_count").longValue());
+            assertEquals(50.0, m.get(P + "responses.error_percent"), 0.01);
+        }
+
+        @Test
+        public void testEvictedLabelsMarkOtherChanged() {
+            CumulativeAggregator tracker = new CumulativeAggregator(DDSketchStatsCollector::new, false,
+                new CumulativeAggregator.Settings().budget(1, 0).heartbeatIntervals(10));
+            tracker.addSample(sample("a", true, 1, 101));
+            tracker.buildMetrics(new ArrayList<>());
+
+            tracker.addSample(sample("b", true, 101, 201));
+            // The budget gauges have no label and are always built
+            assertEquals(new HashSet<>(Arrays.asList("b", "__other__", "total", "")), builtLabels(tracker));
+        }
+
+        @Test
+        public void testFinalMetricsIncludeUnchangedLabels() {
+            CumulativeAggregator tracker = tracker(false, 10);
+            tracker.addSample(sample("a", true, 1, 101));
+            tracker.buildMetrics(new ArrayList<>());
+            assertEquals(Collections.emptySet(), builtLabels(tracker));
+
+            Set<String> finalLabels = groupByLabel(tracker.buildFinalMetrics(new ArrayList<>())).keySet();
+            assertEquals(new HashSet<>(Arrays.asList("a", "total")), finalLabels);
+            // Building the final metrics doesn't count as a build
+            assertEquals(Collections.emptySet(), builtLabels(tracker));
+
+            Map<String, List<DatadogMetric>> all = groupByLabel(tracker.buildAllMetrics(new ArrayList<>()));
+            assertEquals(new HashSet<>(Arrays.asList("a", "total")), all.keySet());
+            assertEquals(Collections.emptySet(), builtLabels(tracker));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void testNoHeartbeat() {
+            tracker(true, 0);
+        }
+    }
+
     private static final String PF = "jmeter.final_result.";
 
     /**
@@ -474,6 +867,16 @@ public class CumulativeAggregatorTest {
         return result;
     }
 
+    private static Map<String, Double> unlabeledMetrics(CumulativeAggregator tracker) {
+        Map<String, Double> result = new HashMap<>();
+        for (DatadogMetric m : tracker.buildMetrics(new ArrayList<>())) {
+            if (m.getTags().stream().noneMatch(t -> t.startsWith("sample_label:"))) {
+                result.put(m.getName(), m.getValue());
+            }
+        }
+        return result;
+    }
+
     private static Map<String, List<DatadogMetric>> groupByLabel(List<DatadogMetric> metrics) {
         Map<String, List<DatadogMetric>> byLabel = new HashMap<>();
         for (DatadogMetric m : metrics) {
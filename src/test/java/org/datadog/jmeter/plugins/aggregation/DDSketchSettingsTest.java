@@ -0,0 +1,181 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettings.Mapping;
+import org.datadog.jmeter.plugins.aggregation.DDSketchSettings.StoreType;
+import org.junit.Test;
+
+public class DDSketchSettingsTest {
+    private static final double[] QUANTILES = { 0.01, 0.1, 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * Log-normal response times over about 6 orders of magnitude, with a few timeouts.
+     */
+    private static double[] values(int count) {
+        Random random = new Random(42);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = i % 500 == 0 ? 300 + random.nextDouble() : Math.exp(2 * random.nextGaussian()) * 0.05;
+        }
+        return values;
+    }
+
+    private static DDSketchStatsCollector collect(DDSketchSettings settings, double[] values) {
+        DDSketchStatsCollector collector = new DDSketchStatsCollector(settings);
+        collector.addValues(values, values.length);
+        return collector;
+    }
+
+    /**
+     * Asserts that the value at each quantile of the given index range is within the relative accuracy of the exact one.
+     */
+    private static void assertAccurate(DDSketchStatsCollector collector, double[] values, int from, int to) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double[] actual = collector.getValuesAtQuantiles(QUANTILES);
+        double accuracy = collector.getSettings().getRelativeAccuracy();
+        for (int i = from; i < to; i++) {
+            double expected = sorted[(int) (QUANTILES[i] * (sorted.length - 1))];
+            assertEquals(collector.getSettings() + " at " + QUANTILES[i], expected, actual[i], expected * accuracy * 1.0001);
+        }
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(new DDSketchSettings(Mapping.CUBIC, 0.01, StoreType.COLLAPSING_LOWEST, 4096),
+            DDSketchSettings.parse(" Cubic:0.01:collapsing_lowest:4096 "));
+        assertEquals(new DDSketchSettings(Mapping.LOGARITHMIC, 0.02, StoreType.COLLAPSING_HIGHEST, DDSketchSettings.DEFAULT_MAX_BINS),
+            DDSketchSettings.parse("logarithmic:0.02:collapsing_highest"));
+        assertEquals(new DDSketchSettings(Mapping.LINEAR, 0.005, StoreType.UNBOUNDED_DENSE, 0),
+            DDSketchSettings.parse("linear:0.005:unbounded_dense"));
+        assertEquals(0, DDSketchSettings.parse("cubic:0.01:sparse").getMaxBins());
+    }
+
+    @Test
+    public void testToStringParses() {
+        for (Mapping mapping : Mapping.values()) {
+            for (StoreType store : StoreType.values()) {
+                DDSketchSettings settings = new DDSketchSettings(mapping, 0.015, store, 100);
+                assertEquals(settings, DDSketchSettings.parse(settings.toString()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxBinsOfUnboundedStore() {
+        DDSketchSettings.parse("cubic:0.01:unbounded_dense:100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAccuracyOutOfRange() {
+        DDSketchSettings.parse("cubic:1:sparse");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingStore() {
+        DDSketchSettings.parse("cubic:0.01");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownMapping() {
+        DDSketchSettings.parse("quadratic:0.01:sparse");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBins() {
+        DDSketchSettings.parse("cubic:0.01:collapsing_lowest:0");
+    }
+
+    @Test
+    public void testByFamily() {
+        DDSketchSettingsByFamily byFamily = DDSketchSettingsByFamily.parse("latency=linear:0.02:sparse;;");
+        assertEquals(DDSketchSettings.parse("linear:0.02:sparse"), byFamily.forFamily(MetricFamily.LATENCY));
+        assertEquals(DDSketchSettings.DEFAULT, byFamily.forFamily(MetricFamily.RESPONSE_TIME));
+        assertEquals(DDSketchSettings.DEFAULT_BYTES, byFamily.forFamily(MetricFamily.BYTES_SENT));
+        assertEquals(DDSketchSettings.DEFAULT_BYTES, DDSketchSettingsByFamily.DEFAULT.forFamily(MetricFamily.BYTES_RECEIVED));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByFamilyListedTwice() {
+        DDSketchSettingsByFamily.parse("latency=linear:0.02:sparse;latency=cubic:0.01:sparse");
+    }
+
+    @Test
+    public void testEveryCombinationAccurate() {
+        double[] values = values(20000);
+        for (Mapping mapping : Mapping.values()) {
+            for (StoreType store : StoreType.values()) {
+                DDSketchSettings settings = new DDSketchSettings(mapping, 0.02, store, DDSketchSettings.DEFAULT_MAX_BINS);
+                DDSketchStatsCollector collector = collect(settings, values);
+                assertAccurate(collector, values, 0, QUANTILES.length);
+                assertEquals(values.length, collector.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testCollapsingLowestKeepsTail() {
+        double[] values = values(20000);
+        DDSketchStatsCollector collector = collect(new DDSketchSettings(Mapping.CUBIC, 0.01, StoreType.COLLAPSING_LOWEST, 400), values);
+        // The values span more than 400 bins, the lowest ones are merged
+        assertTrue(collector.estimateMemoryBytes() <= 256 + 400 * 8);
+        assertAccurate(collector, values, 3, QUANTILES.length);
+
+        DDSketchStatsCollector unbounded = collect(new DDSketchSettings(Mapping.CUBIC, 0.01, StoreType.UNBOUNDED_DENSE, 0), values);
+        assertTrue(unbounded.estimateMemoryBytes() > 256 + 400 * 8);
+    }
+
+    @Test
+    public void testCollapsingHighestKeepsHead() {
+        double[] values = values(20000);
+        DDSketchStatsCollector collector = collect(new DDSketchSettings(Mapping.CUBIC, 0.01, StoreType.COLLAPSING_HIGHEST, 400), values);
+        assertTrue(collector.estimateMemoryBytes() <= 256 + 400 * 8);
+        assertAccurate(collector, values, 0, 2);
+    }
+
+    @Test
+    public void testSparseStoreFootprint() {
+        DDSketchStatsCollector collector = new DDSketchStatsCollector(DDSketchSettings.parse("cubic:0.01:sparse"));
+        DDSketchStatsCollector dense = new DDSketchStatsCollector(DDSketchSettings.parse("cubic:0.01:unbounded_dense"));
+        // Two bins, far apart
+        for (double value : new double[] { 0.001, 1000 }) {
+            collector.addValue(value);
+            dense.addValue(value);
+        }
+        assertTrue(collector.estimateMemoryBytes() < 1000);
+        assertTrue(dense.estimateMemoryBytes() > 5000);
+    }
+
+    @Test
+    public void testMergeSameSettings() {
+        double[] values = values(5000);
+        DDSketchSettings settings = DDSketchSettings.parse("logarithmic:0.01:sparse");
+        DDSketchStatsCollector merged = collect(settings, Arrays.copyOf(values, 1000));
+        merged.merge(collect(settings, Arrays.copyOfRange(values, 1000, values.length)));
+        assertEquals(values.length, merged.getCount());
+        assertAccurate(merged, values, 0, QUANTILES.length);
+    }
+
+    @Test
+    public void testMergeDifferentSettings() {
+        DDSketchStatsCollector collector = new DDSketchStatsCollector(DDSketchSettings.parse("cubic:0.01:collapsing_lowest"));
+        collector.addValue(1);
+        DDSketchStatsCollector other = collect(DDSketchSettings.parse("cubic:0.01:sparse"), new double[] { 2 });
+        try {
+            collector.merge(other);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Nothing was merged
+            assertEquals(1, collector.getCount());
+            assertEquals(1, collector.getSnapshot().get().getAvg(), 0.0);
+        }
+    }
+}
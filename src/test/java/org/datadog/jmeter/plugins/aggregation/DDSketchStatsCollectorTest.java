@@ -0,0 +1,65 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.mapping.CubicallyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.store.UnboundedSizeDenseStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the single-pass quantiles of {@link DDSketchStatsCollector} against {@link DDSketch#getValueAtQuantile(double)}.
+ */
+public class DDSketchStatsCollectorTest {
+    private static final double[] QUANTILES = { 0, 0.01, 0.1, 0.25, 0.5, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1 };
+
+    private static void assertSameQuantiles(double[] values) {
+        DDSketchStatsCollector collector = new DDSketchStatsCollector();
+        DDSketch reference = new DDSketch(new CubicallyInterpolatedMapping(DDSketchStatsCollector.RELATIVE_ACCURACY), UnboundedSizeDenseStore::new);
+        for (double value : values) {
+            collector.addValue(value);
+            reference.accept(value);
+        }
+
+        double[] actual = collector.getValuesAtQuantiles(QUANTILES);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            Assert.assertEquals(String.valueOf(QUANTILES[i]), reference.getValueAtQuantile(QUANTILES[i]), actual[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testPositiveValues() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919 % 1000) / 100.0 + 0.001;
+        }
+        assertSameQuantiles(values);
+    }
+
+    @Test
+    public void testNegativeValuesAndZeros() {
+        double[] values = new double[300];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 3 == 0 ? 0 : (i % 3 == 1 ? -i : i) / 10.0;
+        }
+        assertSameQuantiles(values);
+    }
+
+    @Test
+    public void testSingleValue() {
+        assertSameQuantiles(new double[] { 0.42 });
+        assertSameQuantiles(new double[] { 0 });
+        assertSameQuantiles(new double[] { -0.42 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuantilesOutOfOrder() {
+        DDSketchStatsCollector collector = new DDSketchStatsCollector();
+        collector.addValue(1);
+        collector.getValuesAtQuantiles(new double[] { 0.9, 0.5 });
+    }
+}
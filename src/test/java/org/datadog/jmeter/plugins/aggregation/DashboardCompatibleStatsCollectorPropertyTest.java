@@ -5,6 +5,8 @@
 
 package org.datadog.jmeter.plugins.aggregation;
 
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile.EstimationType;
 import org.apache.jmeter.util.JMeterUtils;
 import org.junit.Assert;
@@ -13,6 +15,7 @@ import org.junit.Test;
 
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Random;
 
 /**
  * Tests for DashboardCompatibleStatsCollector configuration and JMeter property integration.
@@ -102,5 +105,85 @@ public class DashboardCompatibleStatsCollectorPropertyTest {
         Assert.assertTrue(snapshot.isPresent());
         Assert.assertEquals(2, collector.getCount());
     }
-}
 
+    @Test
+    public void testValuesAtQuantilesSameAsDescriptiveStatistics() {
+        double[] quantiles = { 0.01, 0.5, 0.9, 0.95, 0.99, 1.0 };
+        for (EstimationType estimationType : EstimationType.values()) {
+            DashboardCompatibleStatsCollector collector = new DashboardCompatibleStatsCollector(500, estimationType);
+            DescriptiveStatistics reference = new DescriptiveStatistics(500);
+            reference.setPercentileImpl(new Percentile().withEstimationType(estimationType));
+            // Past the window size, with duplicates
+            for (int i = 0; i < 1234; i++) {
+                double value = (i * 7919 % 1000) / 10.0;
+                collector.addValue(value);
+                reference.addValue(value);
+            }
+
+            double[] values = collector.getValuesAtQuantiles(quantiles);
+            for (int i = 0; i < quantiles.length; i++) {
+                Assert.assertEquals(estimationType + " " + quantiles[i], reference.getPercentile(quantiles[i] * 100), values[i], 0.0);
+            }
+        }
+    }
+
+    private static void assertBitIdentical(String message, DescriptiveStatistics reference, DashboardCompatibleStatsCollector collector) {
+        Assert.assertEquals(message, reference.getN(), collector.getCount());
+        double[] quantiles = { 0.001, 0.01, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1.0 };
+        AggregationSnapshot snapshot = collector.getSnapshot(Percentiles.of(0.1, 1, 25, 50, 75, 90, 95, 99, 99.9, 100)).get();
+        Assert.assertEquals(message + " min", Double.doubleToLongBits(reference.getMin()), Double.doubleToLongBits(snapshot.getMin()));
+        Assert.assertEquals(message + " max", Double.doubleToLongBits(reference.getMax()), Double.doubleToLongBits(snapshot.getMax()));
+        Assert.assertEquals(message + " mean", Double.doubleToLongBits(reference.getMean()), Double.doubleToLongBits(snapshot.getAvg()));
+        for (int i = 0; i < quantiles.length; i++) {
+            Assert.assertEquals(message + " " + quantiles[i], Double.doubleToLongBits(reference.getPercentile(quantiles[i] * 100)),
+                Double.doubleToLongBits(snapshot.getValue(3 + i)));
+        }
+    }
+
+    @Test
+    public void testBitIdenticalToDescriptiveStatistics() {
+        Random random = new Random(42);
+        for (EstimationType estimationType : EstimationType.values()) {
+            for (int windowSize : new int[] { 1, 3, 16, 17, 100, 1000 }) {
+                DashboardCompatibleStatsCollector collector = new DashboardCompatibleStatsCollector(windowSize, estimationType);
+                DescriptiveStatistics reference = new DescriptiveStatistics(windowSize);
+                reference.setPercentileImpl(new Percentile().withEstimationType(estimationType));
+                String message = estimationType + " window " + windowSize;
+
+                // Snapshots after batches of every size, so the sorted copy is both updated and rebuilt
+                for (int batch = 1; batch <= 3 * windowSize; batch = batch * 2 + random.nextInt(3)) {
+                    for (int i = 0; i < batch; i++) {
+                        // Log-normal with duplicates, or decreasing runs that keep every value as a min candidate
+                        double value = random.nextInt(4) == 0
+                            ? Math.round(Math.exp(random.nextGaussian()) * 100) / 1000.0
+                            : 10.0 - reference.getN() / 1000.0 - i / 100000.0;
+                        collector.addValue(value);
+                        reference.addValue(value);
+                    }
+                    assertBitIdentical(message + " after " + batch, reference, collector);
+                    assertBitIdentical(message + " again", reference, collector);
+                    for (int i = 0; i < windowSize / 8 + 1; i++) {
+                        double value = random.nextDouble();
+                        collector.addValue(value);
+                        reference.addValue(value);
+                        assertBitIdentical(message + " single " + i, reference, collector);
+                    }
+                }
+
+                collector.reset();
+                reference.clear();
+                Assert.assertFalse(collector.getSnapshot().isPresent());
+                for (int i = 0; i < windowSize + 5; i++) {
+                    double value = random.nextGaussian();
+                    collector.addValue(value);
+                    reference.addValue(value);
+                }
+                assertBitIdentical(message + " after reset", reference, collector);
+
+                DashboardCompatibleStatsCollector merged = new DashboardCompatibleStatsCollector(windowSize, estimationType);
+                merged.merge(collector);
+                assertBitIdentical(message + " merged", reference, merged);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import org.datadog.jmeter.plugins.metrics.DatadogMetric;
+import org.datadog.jmeter.plugins.metrics.TagSet;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EventTimeAggregator}.
+ */
+public class EventTimeAggregatorTest {
+    private static final long INTERVAL = 10000;
+    private static final long LATENESS = 5000;
+    private static final long START = 1000000;
+    private static final TagSet TAGS = TagSet.of(Arrays.asList("sample_label:foo"));
+
+    private static EventTimeAggregator create() {
+        return new EventTimeAggregator(INTERVAL, LATENESS, START + 1234,
+            () -> new IntervalAggregator(DDSketchStatsCollector::new));
+    }
+
+    private static void record(EventTimeAggregator aggregator, long endTime, int samples) {
+        SampleGroup group = new SampleGroup();
+        for (int i = 0; i < samples; i++) {
+            group.add(1, 0.1, 10, 100, 0.05);
+        }
+        aggregator.recordSamples(endTime, TAGS, group);
+    }
+
+    private static double responses(List<DatadogMetric> metrics) {
+        return metrics.stream()
+            .filter(m -> m.getName().equals("jmeter.responses_count"))
+            .mapToDouble(DatadogMetric::getValue)
+            .sum();
+    }
+
+    @Test
+    public void testRingSize() {
+        assertEquals(2, EventTimeAggregator.ringSize(INTERVAL, 0));
+        assertEquals(3, EventTimeAggregator.ringSize(INTERVAL, 1));
+        assertEquals(3, EventTimeAggregator.ringSize(INTERVAL, INTERVAL));
+        assertEquals(5, EventTimeAggregator.ringSize(INTERVAL, 25000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        new EventTimeAggregator(0, LATENESS, START, () -> new IntervalAggregator(DDSketchStatsCollector::new));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLateness() {
+        new EventTimeAggregator(INTERVAL, -1, START, () -> new IntervalAggregator(DDSketchStatsCollector::new));
+    }
+
+    @Test
+    public void testBucketsByEndTime() {
+        EventTimeAggregator aggregator = create();
+        record(aggregator, START + 100, 2);
+        record(aggregator, START + INTERVAL + 100, 3);
+
+        // The first interval is still waiting for late samples
+        assertTrue(aggregator.flushMetrics(START + INTERVAL + LATENESS - 1).isEmpty());
+
+        SortedMap<Long, List<DatadogMetric>> flushed = aggregator.flushMetrics(START + INTERVAL + LATENESS);
+        assertEquals(Collections.singleton(START), flushed.keySet());
+        assertEquals(2, responses(flushed.get(START)), 0);
+
+        flushed = aggregator.flushMetrics(START + 2 * INTERVAL + LATENESS);
+        assertEquals(Collections.singleton(START + INTERVAL), flushed.keySet());
+        assertEquals(3, responses(flushed.get(START + INTERVAL)), 0);
+        assertEquals(0, aggregator.getTotalLateSamples());
+    }
+
+    @Test
+    public void testLateSamples() {
+        EventTimeAggregator aggregator = create();
+        aggregator.flushMetrics(START + INTERVAL + LATENESS);
+        record(aggregator, START + 100, 4);
+        record(aggregator, START - 3 * INTERVAL, 1);
+        record(aggregator, START + INTERVAL + 100, 2);
+
+        assertEquals(5, aggregator.drainLateSamples());
+        assertEquals(0, aggregator.drainLateSamples());
+        assertEquals(5, aggregator.getTotalLateSamples());
+
+        // Recorded into the oldest open interval
+        SortedMap<Long, List<DatadogMetric>> flushed = aggregator.flushMetrics(START + 2 * INTERVAL + LATENESS);
+        assertEquals(Collections.singleton(START + INTERVAL), flushed.keySet());
+        assertEquals(7, responses(flushed.get(START + INTERVAL)), 0);
+    }
+
+    @Test
+    public void testFutureSamples() {
+        EventTimeAggregator aggregator = create();
+        record(aggregator, START + 100 * INTERVAL, 1);
+
+        SortedMap<Long, List<DatadogMetric>> flushed = aggregator.flushAllMetrics();
+        long newest = START + (EventTimeAggregator.ringSize(INTERVAL, LATENESS) - 1) * INTERVAL;
+        assertEquals(Collections.singleton(newest), flushed.keySet());
+        assertEquals(0, aggregator.getTotalLateSamples());
+    }
+
+    @Test
+    public void testAssertionCounters() {
+        EventTimeAggregator aggregator = create();
+        aggregator.incrementCounter(START + INTERVAL + 100, "jmeter.assertions.count", TAGS, 1);
+        aggregator.incrementCounter(START + INTERVAL + 200, "jmeter.assertions.count", TAGS, 1);
+
+        SortedMap<Long, List<DatadogMetric>> flushed = aggregator.flushAllMetrics();
+        assertEquals(Collections.singleton(START + INTERVAL), flushed.keySet());
+        assertEquals(2, flushed.get(START + INTERVAL).get(0).getValue(), 0);
+    }
+
+    @Test
+    public void testFlushAfterLongPause() {
+        EventTimeAggregator aggregator = create();
+        record(aggregator, START + 100, 1);
+
+        SortedMap<Long, List<DatadogMetric>> flushed = aggregator.flushMetrics(START + 1000000 * INTERVAL);
+        assertEquals(Collections.singleton(START), flushed.keySet());
+
+        // Everything before the watermark is late
+        record(aggregator, START + 500000 * INTERVAL, 1);
+        assertEquals(1, aggregator.drainLateSamples());
+        record(aggregator, START + 1000000 * INTERVAL - 1, 1);
+        assertEquals(0, aggregator.drainLateSamples());
+        assertEquals(2, responses(aggregator.flushAllMetrics().get(START + 999999 * INTERVAL)), 0);
+    }
+}
@@ -8,11 +8,14 @@ package org.datadog.jmeter.plugins.aggregation;
 import static org.datadog.jmeter.plugins.aggregation.StatsCollectorTestData.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
@@ -20,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import org.datadog.jmeter.plugins.metrics.DatadogMetric;
 import org.datadog.jmeter.plugins.metrics.DatadogMetricContext;
+import org.datadog.jmeter.plugins.metrics.TagSet;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -115,6 +119,32 @@ public class IntervalAggregatorTest {
             assertEquals(N_THREADS, (int) metrics.get(0).getValue());
         }
 
+        @Test
+        public void testRecordSample() throws InterruptedException {
+            TagSet tags = TagSet.of(Collections.singletonList("foo:bar"));
+
+            ExecutorService service = Executors.newFixedThreadPool(N_THREADS);
+            try {
+                for (int i = 0; i < N_THREADS; i++) {
+                    service.execute(() -> aggregator.recordSample(tags, 1, 0.1, 10, 100, 0.01));
+                }
+                aggregator.testOnlyBlocker.release(N_THREADS);
+                service.shutdown();
+                service.awaitTermination(2, TimeUnit.SECONDS);
+            } finally {
+                service.shutdownNow();
+            }
+
+            Map<String, Double> byName = new HashMap<>();
+            for (DatadogMetric metric : aggregator.flushMetrics()) {
+                byName.put(metric.getName(), metric.getValue());
+            }
+            assertEquals(N_THREADS, byName.get("jmeter.responses_count"), 0.0);
+            assertEquals(N_THREADS * 10, byName.get("jmeter.bytes_sent.total"), 0.0);
+            assertEquals(N_THREADS * 100, byName.get("jmeter.bytes_received.total"), 0.0);
+            assertEquals(N_THREADS, byName.get("jmeter.latency.count"), 0.0);
+        }
+
         @Test
         public void testGauge() throws InterruptedException {
             DatadogMetricContext ctx = new DatadogMetricContext("foo", Collections.emptyList());
@@ -183,4 +213,402 @@ public class IntervalAggregatorTest {
             }
         }
     }
+
+    /**
+     * Tests for the per-interval context limit enforced by {@link CardinalityGovernor}.
+     */
+    public static class CardinalityGovernorTests {
+        private static final List<String> REPORT_TAGS = Collections.singletonList("env:test");
+
+        private static List<String> tags(String responseCode) {
+            return Arrays.asList("response_code:" + responseCode, "sample_label:foo");
+        }
+
+        private static Map<String, Double> byNameAndTags(List<DatadogMetric> metrics) {
+            Map<String, Double> m = new HashMap<>();
+            for (DatadogMetric metric : metrics) {
+                m.put(metric.getName() + metric.getTags(), metric.getValue());
+            }
+            return m;
+        }
+
+        @Test
+        public void testDropNewContextsOverLimit() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(2, ContextOverflowMode.DROP, Collections.singletonList("response_code"), REPORT_TAGS)));
+
+            aggregator.incrementCounter("count", tags("200"), 1);
+            aggregator.incrementCounter("count", tags("500"), 1);
+            aggregator.incrementCounter("count", tags("501"), 1);
+            aggregator.histogram("hist", tags("200"), 1.0);
+            // Existing contexts are still updated
+            aggregator.incrementCounter("count", tags("200"), 1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(2.0, m.get("count" + tags("200")), 0.0);
+            assertEquals(1.0, m.get("count" + tags("500")), 0.0);
+            assertFalse(m.containsKey("count" + tags("501")));
+            assertFalse(m.containsKey("hist.count" + tags("200")));
+            assertEquals(2.0, m.get("jmeter.contexts.active" + REPORT_TAGS), 0.0);
+            assertEquals(2.0, m.get("jmeter.contexts.dropped" + REPORT_TAGS), 0.0);
+            assertEquals(0.0, m.get("jmeter.contexts.collapsed" + REPORT_TAGS), 0.0);
+        }
+
+        @Test
+        public void testCollapseOverflowTag() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(1, ContextOverflowMode.COLLAPSE, Collections.singletonList("response_code"), REPORT_TAGS)));
+
+            aggregator.incrementCounter("count", tags("200"), 1);
+            aggregator.incrementCounter("count", tags("500"), 2);
+            aggregator.incrementCounter("count", tags("501"), 3);
+            aggregator.histogram("hist", tags("502"), 1.0);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(1.0, m.get("count" + tags("200")), 0.0);
+            assertEquals(5.0, m.get("count" + tags(CardinalityGovernor.OVERFLOW_TAG_VALUE)), 0.0);
+            assertEquals(1.0, m.get("hist.count" + tags(CardinalityGovernor.OVERFLOW_TAG_VALUE)), 0.0);
+            assertEquals(3.0, m.get("jmeter.contexts.collapsed" + REPORT_TAGS), 0.0);
+            assertEquals(0.0, m.get("jmeter.contexts.dropped" + REPORT_TAGS), 0.0);
+        }
+
+        @Test
+        public void testCollapseWithoutOverflowTagDrops() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(1, ContextOverflowMode.COLLAPSE, Collections.singletonList("response_code"), REPORT_TAGS)));
+
+            aggregator.incrementCounter("count", tags("200"), 1);
+            aggregator.incrementCounter("other", Collections.singletonList("sample_label:foo"), 1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertFalse(m.containsKey("other[sample_label:foo]"));
+            assertEquals(1.0, m.get("jmeter.contexts.dropped" + REPORT_TAGS), 0.0);
+        }
+
+        @Test
+        public void testLimitResetsEveryInterval() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(1, ContextOverflowMode.DROP, Collections.singletonList("response_code"), REPORT_TAGS)));
+
+            aggregator.incrementCounter("count", tags("200"), 1);
+            aggregator.flushMetrics();
+            aggregator.incrementCounter("count", tags("500"), 1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(1.0, m.get("count" + tags("500")), 0.0);
+            assertEquals(0.0, m.get("jmeter.contexts.dropped" + REPORT_TAGS), 0.0);
+        }
+
+        @Test
+        public void testGaugesAreNotLimited() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(0, ContextOverflowMode.DROP, Collections.singletonList("response_code"), REPORT_TAGS)));
+
+            aggregator.addGauge("gauge", Collections.emptyList(), 42);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(42.0, m.get("gauge[]"), 0.0);
+        }
+    }
+
+    /**
+     * Tests for {@link IntervalAggregator#recordSample}.
+     */
+    public static class SampleBundleTests {
+        private static final List<String> TAGS = Arrays.asList("response_code:200", "sample_label:foo");
+
+        private static Map<String, Double> byNameAndTags(List<DatadogMetric> metrics) {
+            Map<String, Double> m = new HashMap<>();
+            for (DatadogMetric metric : metrics) {
+                assertNull("duplicate metric " + metric.getName(), m.put(metric.getName() + metric.getTags() + metric.getType(), metric.getValue()));
+            }
+            return m;
+        }
+
+        @Test
+        public void testSameMetricsAsIndividualUpdates() {
+            IntervalAggregator individual = new IntervalAggregator(DDSketchStatsCollector::new);
+            IntervalAggregator bundled = new IntervalAggregator(DDSketchStatsCollector::new);
+            TagSet tags = TagSet.of(TAGS);
+
+            for (int i = 1; i <= 10; i++) {
+                individual.incrementCounter("jmeter.responses_count", TAGS, i);
+                individual.histogram("jmeter.response_time", TAGS, i / 1000f);
+                individual.histogram("jmeter.bytes_sent", TAGS, 10 * i);
+                individual.incrementCounter("jmeter.bytes_sent.total", TAGS, 10 * i);
+                individual.histogram("jmeter.bytes_received", TAGS, 100 * i);
+                individual.incrementCounter("jmeter.bytes_received.total", TAGS, 100 * i);
+                individual.histogram("jmeter.latency", TAGS, i / 2000f);
+
+                bundled.recordSample(tags, i, i / 1000f, 10 * i, 100 * i, i / 2000f);
+            }
+
+            Map<String, Double> expected = byNameAndTags(individual.flushMetrics());
+            assertEquals(35, expected.size());
+            assertEquals(expected, byNameAndTags(bundled.flushMetrics()));
+            assertTrue(bundled.flushMetrics().isEmpty());
+        }
+
+        @Test
+        public void testBundleCountsAsSevenContexts() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(10, ContextOverflowMode.DROP, Collections.singletonList("response_code"), Collections.emptyList())));
+
+            aggregator.recordSample(TagSet.of(TAGS), 1, 0.1, 1, 1, 0.1);
+            aggregator.recordSample(TagSet.of(Arrays.asList("response_code:500", "sample_label:foo")), 1, 0.1, 1, 1, 0.1);
+            // Still room for a single context
+            aggregator.incrementCounter("other", TAGS, 1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(1.0, m.get("jmeter.responses_count" + TAGS + "count"), 0.0);
+            assertFalse(m.containsKey("jmeter.responses_count[response_code:500, sample_label:foo]count"));
+            assertEquals(1.0, m.get("other" + TAGS + "count"), 0.0);
+            assertEquals(8.0, m.get("jmeter.contexts.active[]gauge"), 0.0);
+            assertEquals(7.0, m.get("jmeter.contexts.dropped[]count"), 0.0);
+        }
+
+        @Test
+        public void testCollapsedBundle() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(7, ContextOverflowMode.COLLAPSE, Collections.singletonList("response_code"), Collections.emptyList())));
+
+            aggregator.recordSample(TagSet.of(TAGS), 1, 0.1, 1, 1, 0.1);
+            aggregator.recordSample(TagSet.of(Arrays.asList("response_code:500", "sample_label:foo")), 2, 0.1, 1, 1, 0.1);
+            aggregator.recordSample(TagSet.of(Arrays.asList("response_code:503", "sample_label:foo")), 3, 0.1, 1, 1, 0.1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(5.0, m.get("jmeter.responses_count[response_code:__overflow__, sample_label:foo]count"), 0.0);
+            assertEquals(2.0, m.get("jmeter.latency.count[response_code:__overflow__, sample_label:foo]count"), 0.0);
+            assertEquals(14.0, m.get("jmeter.contexts.collapsed[]count"), 0.0);
+        }
+
+        @Test
+        public void testRecordSamplesSameAsRecordSample() {
+            IntervalAggregator individual = new IntervalAggregator(DDSketchStatsCollector::new);
+            IntervalAggregator grouped = new IntervalAggregator(DDSketchStatsCollector::new);
+            TagSet tags = TagSet.of(TAGS);
+
+            SampleGroup group = new SampleGroup();
+            // More than the initial capacity of the group
+            for (int i = 1; i <= 40; i++) {
+                individual.recordSample(tags, i, i / 1000f, 10 * i, 100 * i, i / 2000f);
+                group.add(i, i / 1000f, 10 * i, 100 * i, i / 2000f);
+            }
+            assertEquals(40, group.size());
+            grouped.recordSamples(tags, group);
+            grouped.recordSamples(tags, new SampleGroup());
+
+            assertEquals(byNameAndTags(individual.flushMetrics()), byNameAndTags(grouped.flushMetrics()));
+        }
+
+        @Test
+        public void testDroppedGroupCountsEverySample() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(7, ContextOverflowMode.DROP, Collections.singletonList("response_code"), Collections.emptyList())));
+
+            aggregator.recordSample(TagSet.of(TAGS), 1, 0.1, 1, 1, 0.1);
+            SampleGroup group = new SampleGroup();
+            for (int i = 0; i < 3; i++) {
+                group.add(1, 0.1, 1, 1, 0.1);
+            }
+            aggregator.recordSamples(TagSet.of(Arrays.asList("response_code:500", "sample_label:foo")), group);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(21.0, m.get("jmeter.contexts.dropped[]count"), 0.0);
+        }
+
+        @Test
+        public void testPercentilesPerFamily() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .percentiles(PercentilesByFamily.parse("response_time=50,75,99.9;latency=99")));
+
+            for (int i = 1; i <= 1000; i++) {
+                aggregator.recordSample(TagSet.of(TAGS), 1, i / 1000.0, 1, 1, i / 1000.0);
+            }
+            aggregator.histogram("other", TAGS, 0.5);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            String suffix = TAGS + "gauge";
+            assertEquals(0.5, m.get("jmeter.response_time.median" + suffix), 0.02);
+            assertEquals(0.75, m.get("jmeter.response_time.p75" + suffix), 0.02);
+            assertEquals(0.999, m.get("jmeter.response_time.p99_9" + suffix), 0.02);
+            assertFalse(m.containsKey("jmeter.response_time.p90" + suffix));
+            assertEquals(0.99, m.get("jmeter.latency.p99" + suffix), 0.02);
+            assertFalse(m.containsKey("jmeter.latency.median" + suffix));
+            // Other families and histograms keep the default percentiles
+            assertTrue(m.containsKey("jmeter.bytes_sent.p95" + suffix));
+            assertFalse(m.containsKey("jmeter.bytes_sent.p99_9" + suffix));
+            assertTrue(m.containsKey("other.p90" + suffix));
+        }
+
+        @Test
+        public void testFactoriesPerFamily() {
+            StatsFactoryByFamily factories = new StatsFactoryByFamily(AggregateReportStatsCollector::new,
+                family -> family == MetricFamily.LATENCY ? AggregateReportStatsCollector::new : DDSketchStatsCollector::new);
+            IntervalAggregator aggregator = new IntervalAggregator(factories, new IntervalAggregator.Settings());
+
+            for (int i = 1; i <= 1000; i++) {
+                aggregator.recordSample(TagSet.of(TAGS), 1, i / 1000.0, 1, 1, i / 1000.0);
+            }
+            aggregator.histogram("other", TAGS, 0.0015);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            String suffix = TAGS + "gauge";
+            // The aggregate report truncates the mean to a millisecond, the sketch doesn't
+            assertEquals(0.5, m.get("jmeter.latency.avg" + suffix), 0.0);
+            assertEquals(0.5005, m.get("jmeter.response_time.avg" + suffix), 1e-9);
+            // Histograms recorded individually use the default factory, rounding to a millisecond
+            assertEquals(0.002, m.get("other.max" + suffix), 0.0);
+        }
+
+        @Test
+        public void testDisabledFamilies() {
+            Set<MetricFamily> families = EnumSet.of(MetricFamily.RESPONSE_TIME, MetricFamily.BYTES_SENT);
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(DDSketchStatsCollector::new),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(9, ContextOverflowMode.DROP, Collections.singletonList("response_code"), Collections.emptyList()))
+                    .families(families));
+
+            aggregator.recordSample(TagSet.of(TAGS), 1, 0.1, 10, 100, 0.1);
+            SampleGroup group = new SampleGroup(families);
+            for (int i = 0; i < 20; i++) {
+                group.add(1, 0.2, 20, 200, 0.2);
+            }
+            aggregator.recordSamples(TagSet.of(TAGS), group);
+            // A bundle is 4 contexts: the responses count, the response time and bytes sent histograms, the bytes sent total
+            aggregator.recordSample(TagSet.of(Arrays.asList("response_code:500", "sample_label:foo")), 1, 0.1, 10, 100, 0.1);
+            aggregator.recordSample(TagSet.of(Arrays.asList("response_code:503", "sample_label:foo")), 1, 0.1, 10, 100, 0.1);
+
+            Map<String, Double> m = byNameAndTags(aggregator.flushMetrics());
+            assertEquals(21.0, m.get("jmeter.responses_count" + TAGS + "count"), 0.0);
+            assertEquals(21.0, m.get("jmeter.response_time.count" + TAGS + "count"), 0.0);
+            assertEquals(410.0, m.get("jmeter.bytes_sent.total" + TAGS + "count"), 0.0);
+            assertEquals(21.0, m.get("jmeter.bytes_sent.count" + TAGS + "count"), 0.0);
+            for (String name : m.keySet()) {
+                assertFalse(name, name.startsWith("jmeter.latency") || name.startsWith("jmeter.bytes_received"));
+            }
+            assertEquals(1.0, m.get("jmeter.responses_count[response_code:500, sample_label:foo]count"), 0.0);
+            assertFalse(m.containsKey("jmeter.responses_count[response_code:503, sample_label:foo]count"));
+            assertEquals(8.0, m.get("jmeter.contexts.active[]gauge"), 0.0);
+            assertEquals(4.0, m.get("jmeter.contexts.dropped[]count"), 0.0);
+        }
+    }
+
+    /**
+     * Tests for the reuse of histogram collectors across intervals.
+     */
+    public static class CollectorReuseTests {
+        private static final DatadogMetricContext A = new DatadogMetricContext("a", Collections.singletonList("tag:a"));
+        private static final DatadogMetricContext B = new DatadogMetricContext("b", Collections.singletonList("tag:b"));
+
+        private int created;
+
+        private StatsCollector newCollector() {
+            created++;
+            return new DDSketchStatsCollector();
+        }
+
+        private static Map<String, Double> byName(List<DatadogMetric> metrics) {
+            Map<String, Double> m = new HashMap<>();
+            for (DatadogMetric metric : metrics) {
+                m.put(metric.getName(), metric.getValue());
+            }
+            return m;
+        }
+
+        @Test
+        public void testCollectorsReusedAcrossIntervals() {
+            IntervalAggregator aggregator = new IntervalAggregator(this::newCollector);
+            TagSet tags = TagSet.of(Collections.singletonList("sample_label:foo"));
+
+            aggregator.histogram(A, 10);
+            aggregator.recordSample(tags, 1, 10, 10, 10, 10);
+            aggregator.flushMetrics();
+            assertEquals(5, created);
+
+            aggregator.histogram(A, 1);
+            aggregator.histogram(A, 2);
+            aggregator.recordSample(tags, 1, 1, 1, 1, 1);
+            Map<String, Double> m = byName(aggregator.flushMetrics());
+            assertEquals(5, created);
+            // Only the values of the second interval
+            assertEquals(2.0, m.get("a.count"), 0.0);
+            assertEquals(2.0, m.get("a.max"), 0.02);
+            assertEquals(1.0, m.get("jmeter.response_time.count"), 0.0);
+            assertEquals(1.0, m.get("jmeter.response_time.max"), 0.02);
+        }
+
+        @Test
+        public void testIdleContextsNotEmitted() {
+            IntervalAggregator aggregator = new IntervalAggregator(this::newCollector);
+            aggregator.histogram(A, 1);
+            aggregator.recordSample(TagSet.of(Collections.singletonList("sample_label:foo")), 1, 1, 1, 1, 1);
+            assertFalse(aggregator.flushMetrics().isEmpty());
+            assertTrue(aggregator.flushMetrics().isEmpty());
+        }
+
+        @Test
+        public void testIdleContextsEvicted() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(this::newCollector),
+                new IntervalAggregator.Settings().maxIdleIntervals(2));
+            aggregator.histogram(A, 1);
+            aggregator.histogram(B, 1);
+            aggregator.flushMetrics();
+
+            for (int i = 0; i < 2; i++) {
+                aggregator.histogram(B, 1);
+                aggregator.flushMetrics();
+            }
+            // A has been idle for 2 intervals, still kept
+            aggregator.histogram(A, 1);
+            aggregator.flushMetrics();
+            assertEquals(2, created);
+
+            for (int i = 0; i < 3; i++) {
+                aggregator.histogram(B, 1);
+                aggregator.flushMetrics();
+            }
+            // A has been idle for 3 intervals, released
+            aggregator.histogram(A, 1);
+            aggregator.histogram(B, 1);
+            assertEquals(3, created);
+        }
+
+        @Test
+        public void testNoRetention() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(this::newCollector),
+                new IntervalAggregator.Settings().maxIdleIntervals(0));
+            aggregator.histogram(A, 1);
+            aggregator.flushMetrics();
+            aggregator.histogram(A, 1);
+            assertEquals(2, created);
+        }
+
+        @Test
+        public void testReusedContextsGoThroughGovernor() {
+            IntervalAggregator aggregator = new IntervalAggregator(new StatsFactoryByFamily(this::newCollector),
+                new IntervalAggregator.Settings()
+                    .governor(new CardinalityGovernor(1, ContextOverflowMode.DROP, Collections.emptyList(), Collections.emptyList())));
+            aggregator.histogram(A, 1);
+            aggregator.flushMetrics();
+
+            // A is kept from the previous interval, but is new in this one
+            aggregator.histogram(B, 1);
+            aggregator.histogram(A, 1);
+            Map<String, Double> m = byName(aggregator.flushMetrics());
+            assertEquals(1.0, m.get("b.count"), 0.0);
+            assertFalse(m.containsKey("a.count"));
+            assertEquals(1.0, m.get("jmeter.contexts.active"), 0.0);
+            assertEquals(1.0, m.get("jmeter.contexts.dropped"), 0.0);
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PercentilesTest {
+
+    private static String[] suffixes(Percentiles percentiles) {
+        String[] suffixes = new String[percentiles.size()];
+        for (int i = 0; i < suffixes.length; i++) {
+            suffixes[i] = percentiles.getSuffix(i);
+        }
+        return suffixes;
+    }
+
+    @Test
+    public void testDefault() {
+        assertArrayEquals(new String[] { "median", "p90", "p95", "p99" }, suffixes(Percentiles.DEFAULT));
+        assertEquals(0.95, Percentiles.DEFAULT.getQuantile(2), 0.0);
+    }
+
+    @Test
+    public void testGeneratedSuffixes() {
+        Percentiles percentiles = Percentiles.parse(" 99.99, 75,50,99.9 ,100, 99.0, 0.5");
+        assertArrayEquals(new String[] { "p0_5", "median", "p75", "p99", "p99_9", "p99_99", "p100" }, suffixes(percentiles));
+        assertArrayEquals(new double[] { 0.005, 0.5, 0.75, 0.99, 0.999, 0.9999, 1.0 }, percentiles.quantileArray(), 1e-12);
+        assertEquals(4, percentiles.indexOf("p99_9"));
+        assertEquals(-1, percentiles.indexOf("p90"));
+    }
+
+    @Test
+    public void testDuplicatesIgnored() {
+        assertEquals(Percentiles.DEFAULT, Percentiles.parse("99,50,90,95,90.0"));
+    }
+
+    @Test
+    public void testSuffixesAreUnambiguous() {
+        Percentiles percentiles = Percentiles.of(0.5, 5, 9.9, 9.99, 99, 99.9);
+        assertArrayEquals(new String[] { "p0_5", "p5", "p9_9", "p9_99", "p99", "p99_9" }, suffixes(percentiles));
+        for (int i = 0; i < percentiles.size(); i++) {
+            // The suffix reads back as the percentile
+            double percent = Double.parseDouble(percentiles.getSuffix(i).substring(1).replace('_', '.'));
+            assertEquals(percentiles.getQuantile(i), percent / 100, 1e-12);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        Percentiles.of(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAboveHundred() {
+        Percentiles.of(50, 100.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotANumber() {
+        Percentiles.parse("50,p99");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmpty() {
+        Percentiles.parse("");
+    }
+
+    @Test
+    public void testByFamily() {
+        PercentilesByFamily byFamily = PercentilesByFamily.parse(" response_time=50,90,95,99,99.9,99.99 ; LATENCY=50,99;");
+        assertArrayEquals(new String[] { "median", "p90", "p95", "p99", "p99_9", "p99_99" },
+            suffixes(byFamily.forFamily(MetricFamily.RESPONSE_TIME)));
+        assertArrayEquals(new String[] { "median", "p99" }, suffixes(byFamily.forFamily(MetricFamily.LATENCY)));
+        assertSame(Percentiles.DEFAULT, byFamily.forFamily(MetricFamily.BYTES_SENT));
+        assertSame(Percentiles.DEFAULT, PercentilesByFamily.parse("").forFamily(MetricFamily.RESPONSE_TIME));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByFamilyUnknownFamily() {
+        PercentilesByFamily.parse("connect_time=50,99");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByFamilyMissingSeparator() {
+        PercentilesByFamily.parse("response_time");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByFamilyDuplicate() {
+        PercentilesByFamily.parse("latency=50;latency=99");
+    }
+}
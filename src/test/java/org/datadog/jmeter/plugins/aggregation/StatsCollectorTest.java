@@ -8,6 +8,7 @@ package org.datadog.jmeter.plugins.aggregation;
 import static org.datadog.jmeter.plugins.aggregation.StatsCollectorTestData.*;
 
 import java.util.Collection;
+import java.util.NoSuchElementException;
 import java.util.function.Supplier;
 import org.junit.Assert;
 import org.junit.Test;
@@ -50,6 +51,96 @@ public class StatsCollectorTest {
         assertSnapshot(collector.getSnapshot().get(), tolerance);
     }
 
+    @Test
+    public void testAddValuesSameAsAddValue() {
+        StatsCollector individual = factory.get();
+        StatsCollector batched = factory.get();
+        double[] values = new double[128];
+        for (int i = 0; i < 100; i++) {
+            values[i] = (i * 37 % 100 + 1) / 100.0;
+            individual.addValue(values[i]);
+        }
+        // Values past the count are ignored
+        values[100] = 1000;
+        batched.addValues(values, 100);
+
+        Assert.assertEquals(individual.getCount(), batched.getCount());
+        AggregationSnapshot expected = individual.getSnapshot().get();
+        AggregationSnapshot actual = batched.getSnapshot().get();
+        for (String field : AggregationSnapshot.FIELDS) {
+            Assert.assertEquals(field, expected.get(field), actual.get(field), 0.0);
+        }
+    }
+
+    @Test
+    public void testReset() {
+        StatsCollector collector = factory.get();
+        for (int i = 0; i < 100; i++) {
+            collector.addValue(1000 + i);
+        }
+        collector.reset();
+        Assert.assertEquals(0, collector.getCount());
+        Assert.assertFalse(collector.getSnapshot().isPresent());
+
+        // Same as a new collector afterwards
+        for (int i = 1; i <= 100; i++) {
+            collector.addValue(i / 100.0);
+        }
+        Assert.assertEquals(100, collector.getCount());
+        assertSnapshot(collector.getSnapshot().get(), tolerance);
+    }
+
+    @Test
+    public void testValuesAtQuantiles() {
+        StatsCollector collector = factory.get();
+        for (int i = 1; i <= 100; i++) {
+            collector.addValue((i * 37 % 100 + 1) / 100.0);
+        }
+
+        AggregationSnapshot s = collector.getSnapshot().get();
+        double[] values = collector.getValuesAtQuantiles(Percentiles.DEFAULT.quantileArray());
+        Assert.assertArrayEquals(new double[] { s.getMedian(), s.getP90(), s.getP95(), s.getP99() }, values, 0.0);
+
+        // Same as asking for each quantile separately
+        double[] quantiles = { 0.01, 0.25, 0.5, 0.5, 0.75, 0.999, 1.0 };
+        double[] batched = collector.getValuesAtQuantiles(quantiles);
+        for (int i = 0; i < quantiles.length; i++) {
+            Assert.assertEquals(batched[i], collector.getValuesAtQuantiles(new double[] { quantiles[i] })[0], 0.0);
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testValuesAtQuantilesEmpty() {
+        factory.get().getValuesAtQuantiles(Percentiles.DEFAULT.quantileArray());
+    }
+
+    @Test
+    public void testSnapshotWithPercentiles() {
+        StatsCollector collector = factory.get();
+        for (int i = 1; i <= 10000; i++) {
+            collector.addValue(i / 10000.0);
+        }
+
+        Percentiles percentiles = Percentiles.of(75, 99.9, 99.99);
+        AggregationSnapshot s = collector.getSnapshot(percentiles).get();
+        Assert.assertEquals(6, s.size());
+        String[] fields = new String[s.size()];
+        for (int i = 0; i < s.size(); i++) {
+            fields[i] = s.getField(i);
+        }
+        Assert.assertArrayEquals(new String[] { "min", "max", "avg", "p75", "p99_9", "p99_99" }, fields);
+
+        AggregationSnapshot defaults = collector.getSnapshot().get();
+        Assert.assertEquals(defaults.getMin(), s.getValue(0), 0.0);
+        Assert.assertEquals(defaults.getMax(), s.getValue(1), 0.0);
+        Assert.assertEquals(defaults.getAvg(), s.getValue(2), 0.0);
+        double[] values = collector.getValuesAtQuantiles(new double[] { 0.75, 0.999, 0.9999 });
+        Assert.assertEquals(values[0], s.get("p75"), 0.0);
+        Assert.assertEquals(values[1], s.get("p99_9"), 0.0);
+        Assert.assertEquals(values[2], s.get("p99_99"), 0.0);
+        Assert.assertTrue(s.get("p99_9") > s.get("p75"));
+    }
+
     @Test
     public void testEmpty() {
         StatsCollector collector = factory.get();
@@ -68,4 +159,50 @@ public class StatsCollectorTest {
         Assert.assertEquals(0.42, s.getMin(), tolerance);
         Assert.assertEquals(0.42, s.getMax(), tolerance);
     }
+
+    @Test
+    public void testMerge() {
+        StatsCollector low = factory.get();
+        StatsCollector high = factory.get();
+        for (int i = 1; i <= 100; i++) {
+            (i <= 50 ? low : high).addValue(i / 100.0);
+        }
+
+        low.merge(high);
+
+        Assert.assertEquals(100, low.getCount());
+        assertSnapshot(low.getSnapshot().get(), tolerance);
+    }
+
+    @Test
+    public void testMergeEmpty() {
+        StatsCollector collector = factory.get();
+        collector.addValue(0.42);
+
+        collector.merge(factory.get());
+
+        Assert.assertEquals(1, collector.getCount());
+        Assert.assertEquals(0.42, collector.getSnapshot().get().getMax(), tolerance);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeOtherImplementation() {
+        StatsCollector collector = factory.get();
+        StatsCollector other = collector instanceof DDSketchStatsCollector
+            ? new JmeterCompatibleStatsCollector()
+            : new DDSketchStatsCollector();
+        collector.merge(other);
+    }
+
+    @Test
+    public void testEstimateMemoryGrows() {
+        StatsCollector collector = factory.get();
+        long empty = collector.estimateMemoryBytes();
+        Assert.assertTrue(empty > 0);
+
+        for (int i = 1; i <= 1000; i++) {
+            collector.addValue(i / 100.0);
+        }
+        Assert.assertTrue(collector.estimateMemoryBytes() > empty);
+    }
 }
@@ -46,6 +46,7 @@ public final class StatsCollectorTestData {
     public static Collection<Object[]> collectors() {
         return Arrays.asList(new Object[][] {
             { "JmeterCompatible", sup(JmeterCompatibleStatsCollector::new), 0.0 },
+            { "AggregateReport", sup(AggregateReportStatsCollector::new), 0.0 },
             { "DashboardCompatible(R_3)", sup(() -> new DashboardCompatibleStatsCollector(20000, EstimationType.R_3)), 0.0 },
             { "DashboardCompatible(LEGACY)", sup(() -> new DashboardCompatibleStatsCollector(20000, EstimationType.LEGACY)), 0.01 },
             { "DDSketch", sup(DDSketchStatsCollector::new), 0.02 },
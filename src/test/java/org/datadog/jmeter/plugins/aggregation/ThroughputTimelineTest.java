@@ -0,0 +1,138 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.aggregation;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ThroughputTimeline}.
+ */
+public class ThroughputTimelineTest {
+    private static final long T0 = 1700000000000L;
+
+    @Test
+    public void testSteadyThroughput() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        for (int second = 0; second < 10; second++) {
+            for (int i = 0; i < 5; i++) {
+                timeline.record(T0 + second * 1000 + i * 100, 1, i == 0 ? 1 : 0, 100);
+            }
+        }
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        assertEquals(10, timeline.getRolledSeconds());
+        assertEquals(5, timeline.getMaxRps());
+        assertEquals(5, timeline.getMinRps());
+        assertEquals(0, timeline.getRpsStddev(), 1e-9);
+        assertEquals(1, timeline.getMaxErrorsPerSecond());
+        assertEquals(500, timeline.getMaxBytesReceivedPerSecond());
+    }
+
+    @Test
+    public void testNothingRolledUp() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        timeline.rollUpUntil(Long.MAX_VALUE);
+        assertEquals(0, timeline.getRolledSeconds());
+
+        timeline.record(T0, 1, 0, 0);
+        // Only the seconds before the given one are rolled up
+        timeline.rollUpUntil(T0 / 1000);
+        assertEquals(0, timeline.getRolledSeconds());
+        assertEquals(0, timeline.getMinRps());
+    }
+
+    @Test
+    public void testSecondsWithoutSamplesCountAsZero() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        timeline.record(T0, 4, 0, 0);
+        timeline.record(T0 + 100_000, 4, 0, 0);
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        assertEquals(101, timeline.getRolledSeconds());
+        assertEquals(4, timeline.getMaxRps());
+        assertEquals(0, timeline.getMinRps());
+        double mean = 8.0 / 101;
+        double variance = (2 * (4 - mean) * (4 - mean) + 99 * mean * mean) / 101;
+        assertEquals(Math.sqrt(variance), timeline.getRpsStddev(), 1e-9);
+    }
+
+    @Test
+    public void testOutOfOrderSamples() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        timeline.record(T0 + 10_000, 1, 0, 0);
+        timeline.record(T0 + 2_000, 1, 0, 0);
+        timeline.record(T0 + 10_500, 1, 0, 0);
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        assertEquals(9, timeline.getRolledSeconds());
+        assertEquals(2, timeline.getMaxRps());
+        assertEquals(0, timeline.getMinRps());
+        assertEquals(0, timeline.getLateSamples());
+    }
+
+    @Test
+    public void testSamplesOfRolledUpSecondsAreIgnored() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        timeline.record(T0 + 100_000, 1, 0, 0);
+        // Further behind the first sample than the ring allows
+        timeline.record(T0 + 100_000 - (ThroughputTimeline.SECONDS / 2 + 1) * 1000, 1, 0, 0);
+        // In a second that was rolled up already
+        timeline.rollUpUntil(T0 / 1000 + 101);
+        timeline.record(T0 + 100_500, 1, 0, 0);
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        assertEquals(1, timeline.getRolledSeconds());
+        assertEquals(1, timeline.getMaxRps());
+        assertEquals(2, timeline.getLateSamples());
+    }
+
+    @Test
+    public void testRingWrapsAround() {
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        for (int second = 0; second < 10 * ThroughputTimeline.SECONDS; second++) {
+            timeline.record(T0 + second * 1000, second % 3, 0, 0);
+        }
+        // Only the seconds that left the ring are rolled up
+        assertEquals(9 * ThroughputTimeline.SECONDS, timeline.getRolledSeconds());
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        assertEquals(10 * ThroughputTimeline.SECONDS, timeline.getRolledSeconds());
+        assertEquals(2, timeline.getMaxRps());
+        assertEquals(0, timeline.getMinRps());
+    }
+
+    @Test
+    public void testStddevMatchesExact() {
+        Random random = new Random(42);
+        ThroughputTimeline timeline = new ThroughputTimeline();
+        int seconds = 500;
+        long[] rps = new long[seconds];
+        for (int second = 0; second < seconds; second++) {
+            rps[second] = 1 + random.nextInt(1000);
+            timeline.record(T0 + second * 1000 + random.nextInt(1000), rps[second], 0, 0);
+            if (second % 10 == 0) {
+                timeline.rollUpUntil((T0 / 1000) + second - 5);
+            }
+        }
+        timeline.rollUpUntil(Long.MAX_VALUE);
+
+        double mean = 0;
+        for (long value : rps) {
+            mean += value;
+        }
+        mean /= seconds;
+        double variance = 0;
+        for (long value : rps) {
+            variance += (value - mean) * (value - mean);
+        }
+        variance /= seconds;
+        assertEquals(seconds, timeline.getRolledSeconds());
+        assertEquals(Math.sqrt(variance), timeline.getRpsStddev(), 1e-6);
+    }
+}
@@ -5,11 +5,14 @@
 
 package org.datadog.jmeter.plugins.metrics;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -156,4 +159,61 @@ public class DatadogMetricContextTest {
         assertFalse(contextAreEquals(ctx1, ctx2));
     }
 
+    @Test
+    public void listConstructorCopiesTags()
+    {
+        List<String> tags = new ArrayList<>(Arrays.asList("bar"));
+        DatadogMetricContext ctx = new DatadogMetricContext("foo", tags);
+        tags.set(0, "baz");
+
+        assertEquals(Collections.singletonList("bar"), ctx.getTags());
+    }
+
+    @Test
+    public void tagSetConstructorSharesTags()
+    {
+        TagSet tags = TagSet.of(Arrays.asList("bar", "baz"));
+        DatadogMetricContext ctx1 = new DatadogMetricContext("foo", tags);
+        DatadogMetricContext ctx2 = new DatadogMetricContext("foo", Arrays.asList("bar", "baz"));
+
+        assertSame(tags, ctx1.getTagSet());
+        assertSame(tags.asList(), ctx1.getTags());
+        assertTrue(contextAreEquals(ctx1, ctx2));
+    }
+
+    @Test
+    public void internedTagSetsAreCanonical()
+    {
+        TagSetPool pool = new TagSetPool(10);
+        TagSet tags1 = pool.intern(Arrays.asList(new String("bar"), "baz"));
+        TagSet tags2 = pool.intern(new ArrayList<>(Arrays.asList("bar", new String("baz"))));
+
+        assertSame(tags1, tags2);
+        assertEquals(Arrays.asList("bar", "baz").hashCode(), tags1.hashCode());
+        assertNotEquals(tags1, pool.intern(Arrays.asList("baz", "bar")));
+        assertEquals(2, pool.size());
+
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertNotSame(tags1, pool.intern(Arrays.asList("bar", "baz")));
+    }
+
+    @Test
+    public void tagSetPoolIsBounded()
+    {
+        TagSetPool pool = new TagSetPool(1);
+        TagSet tags1 = pool.intern(Arrays.asList("bar"));
+        assertSame(tags1, pool.intern(Arrays.asList("bar")));
+        // Past the limit, the tag sets are equal copies
+        TagSet tags2 = pool.intern(Arrays.asList("baz"));
+        assertEquals(tags2, pool.intern(Arrays.asList("baz")));
+        assertNotSame(tags2, pool.intern(Arrays.asList("baz")));
+        assertEquals(1, pool.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void tagSetIsImmutable()
+    {
+        TagSet.of(Arrays.asList("bar")).asList().add("baz");
+    }
 }
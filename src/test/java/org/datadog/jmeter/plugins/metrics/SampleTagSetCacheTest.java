@@ -0,0 +1,64 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SampleTagSetCache}.
+ */
+public class SampleTagSetCacheTest {
+    private static final List<String> COMMON_TAGS = Arrays.asList("key:value", "test_run_id:test");
+    private static final String[] CODE_TAGS = {"response_code:200"};
+
+    @Test
+    public void testTagOrder() {
+        SampleTagSetCache cache = new SampleTagSetCache(new TagSetPool(100), COMMON_TAGS, 100);
+        assertEquals(
+            Arrays.asList("response_code:200", "sample_label:get_foo", "thread_group:bar", "result:ok", "key:value", "test_run_id:test"),
+            cache.get(CODE_TAGS, "GET Foo", "thread_group:bar", true).asList());
+        assertEquals(
+            Arrays.asList("sample_label:get_foo", "result:ko", "key:value", "test_run_id:test"),
+            cache.get(null, "GET Foo", null, false).asList());
+    }
+
+    @Test
+    public void testRepeatedCombination() {
+        TagSetPool pool = new TagSetPool(100);
+        SampleTagSetCache cache = new SampleTagSetCache(pool, COMMON_TAGS, 100);
+        TagSet tags = cache.get(CODE_TAGS, "foo", "thread_group:bar", true);
+        // Compared by value, not by reference
+        assertSame(tags, cache.get(new String[] {new String("response_code:200")}, new String("foo"), new String("thread_group:bar"), true));
+        assertNotSame(tags, cache.get(CODE_TAGS, "foo", "thread_group:bar", false));
+        assertNotSame(tags, cache.get(CODE_TAGS, "foo", null, true));
+        assertNotSame(tags, cache.get(null, "foo", "thread_group:bar", true));
+        assertEquals(4, cache.size());
+        // Shared with the other users of the pool
+        assertSame(tags, pool.intern(tags.asList()));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertSame(tags, cache.get(CODE_TAGS, "foo", "thread_group:bar", true));
+    }
+
+    @Test
+    public void testBounded() {
+        SampleTagSetCache cache = new SampleTagSetCache(new TagSetPool(100), Collections.emptyList(), 2);
+        for (int i = 0; i < 10; i++) {
+            cache.get(CODE_TAGS, "label" + i, null, true);
+        }
+        assertEquals(2, cache.size());
+        // Still interned
+        assertSame(cache.get(CODE_TAGS, "label9", null, true), cache.get(CODE_TAGS, "label9", null, true));
+    }
+}
@@ -0,0 +1,123 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlignedSchedulerTest {
+    private static final long INTERVAL = 50;
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBoundaries() {
+        Assert.assertEquals(10000, AlignedScheduler.nextBoundary(0, 10000));
+        Assert.assertEquals(10000, AlignedScheduler.nextBoundary(9999, 10000));
+        Assert.assertEquals(20000, AlignedScheduler.nextBoundary(10000, 10000));
+        Assert.assertEquals(0, AlignedScheduler.nextBoundary(-1, 10000));
+        Assert.assertEquals(0, AlignedScheduler.previousBoundary(9999, 10000));
+        Assert.assertEquals(10000, AlignedScheduler.previousBoundary(10000, 10000));
+        Assert.assertEquals(-10000, AlignedScheduler.previousBoundary(-1, 10000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        new AlignedScheduler(executor, 0, System::currentTimeMillis, boundary -> {});
+    }
+
+    @Test
+    public void testRunsOnBoundaries() throws InterruptedException {
+        List<Long> boundaries = new CopyOnWriteArrayList<>();
+        List<Long> runTimes = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(4);
+        AlignedScheduler scheduler = new AlignedScheduler(executor, INTERVAL, System::currentTimeMillis, boundary -> {
+            boundaries.add(boundary);
+            runTimes.add(System.currentTimeMillis());
+            latch.countDown();
+        });
+        long start = System.currentTimeMillis();
+        scheduler.start();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        scheduler.cancel();
+
+        Assert.assertTrue(boundaries.get(0) > start);
+        for (int i = 0; i < boundaries.size(); i++) {
+            Assert.assertEquals(0, boundaries.get(i) % INTERVAL);
+            // The executor may be late, but never before the boundary it runs for
+            Assert.assertTrue(runTimes.get(i) >= boundaries.get(i));
+            if (i > 0) {
+                Assert.assertTrue(boundaries.get(i) > boundaries.get(i - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsMissedBoundaries() throws InterruptedException {
+        List<Long> boundaries = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        AlignedScheduler scheduler = new AlignedScheduler(executor, INTERVAL, System::currentTimeMillis, boundary -> {
+            boundaries.add(boundary);
+            if (boundaries.size() == 1) {
+                sleep(INTERVAL * 3);
+            }
+            latch.countDown();
+        });
+        scheduler.start();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        scheduler.cancel();
+
+        Assert.assertTrue(boundaries.get(1) - boundaries.get(0) >= INTERVAL * 3);
+    }
+
+    @Test
+    public void testExceptionDoesNotCancel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        AlignedScheduler scheduler = new AlignedScheduler(executor, INTERVAL, System::currentTimeMillis, boundary -> {
+            latch.countDown();
+            throw new IllegalStateException("failed");
+        });
+        scheduler.start();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        scheduler.cancel();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        List<Long> boundaries = new CopyOnWriteArrayList<>();
+        AlignedScheduler scheduler = new AlignedScheduler(executor, INTERVAL, System::currentTimeMillis, boundaries::add);
+        scheduler.start();
+        scheduler.cancel();
+        Thread.sleep(INTERVAL * 3);
+        Assert.assertTrue(boundaries.isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
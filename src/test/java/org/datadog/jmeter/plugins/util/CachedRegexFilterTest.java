@@ -0,0 +1,65 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that cached decisions are the same as evaluating the regex directly, for both match modes.
+ */
+@RunWith(Parameterized.class)
+public class CachedRegexFilterTest {
+    private static final List<String> INPUTS = Arrays.asList(
+        "", "200", "301", "404", "500", "foo", "foo1", "fooA", "Non HTTP response code: java.net.NoRouteToHostException"
+    );
+
+    @Parameters(name = "\"{0}\"")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+            { "" },
+            { "^foo\\d*$" },
+            { "foo" },
+            { "[23][0-5][0-9]" },
+            { "^[23][0-5][0-9]$" },
+            { ".*" },
+        });
+    }
+
+    private final Pattern pattern;
+
+    public CachedRegexFilterTest(String regex) {
+        this.pattern = Pattern.compile(regex);
+    }
+
+    @Test
+    public void testFindSameAsRegex() {
+        CachedRegexFilter filter = new CachedRegexFilter(pattern, false, 4);
+        // Twice, to go through both the evaluation and the cached path
+        for (int i = 0; i < 2; i++) {
+            for (String input : INPUTS) {
+                Assert.assertEquals(input, pattern.matcher(input).find(), filter.test(input));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesSameAsRegex() {
+        CachedRegexFilter filter = new CachedRegexFilter(pattern, true, 4);
+        for (int i = 0; i < 2; i++) {
+            for (String input : INPUTS) {
+                Assert.assertEquals(input, pattern.matcher(input).matches(), filter.test(input));
+            }
+        }
+    }
+}
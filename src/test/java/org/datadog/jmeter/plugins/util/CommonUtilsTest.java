@@ -7,6 +7,7 @@ package org.datadog.jmeter.plugins.util;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -148,4 +149,94 @@ public class CommonUtilsTest {
         }
 
     }
+
+    /**
+     * Compares the sanitizer with the original, StringBuilder and {@link Character} based implementation on random inputs.
+     */
+    public static class SanitizeTagPairPropertyTest {
+        private static final int MAX_TAG_LENGTH = 200;
+        private static final String[] KEYS = {"t", "sample_label", "response_code", "thread_group", "assertion_name"};
+        // ASCII, Latin-1, Greek, Cyrillic, CJK, combining marks, surrogates and full width forms
+        private static final char[][] RANGES = {
+            {0, 127}, {'_', '_'}, {' ', ' '}, {0x80, 0xFF}, {0x370, 0x3FF}, {0x400, 0x4FF},
+            {0x4E00, 0x4FFF}, {0x300, 0x36F}, {0xD800, 0xDFFF}, {0xFF00, 0xFFEF}
+        };
+
+        private static String referenceSanitizeTagPair(String key, String value) {
+            if (value == null || value.isEmpty()) {
+                return key + ":";
+            }
+            int maxValueLength = Math.max(1, MAX_TAG_LENGTH - key.length() - 1);
+            int limit = Math.min(value.length(), maxValueLength);
+            StringBuilder out = new StringBuilder(key.length() + 1 + limit);
+            out.append(key).append(':');
+            boolean lastWasUnderscore = false;
+            for (int i = 0; i < limit; i++) {
+                char c = value.charAt(i);
+                char sanitized;
+                if (Character.isLetter(c)) {
+                    sanitized = Character.toLowerCase(c);
+                } else if (Character.isDigit(c) || c == '_' || c == '-' || c == ':' || c == '.' || c == '/') {
+                    sanitized = c;
+                } else {
+                    sanitized = '_';
+                }
+                if (sanitized == '_') {
+                    if (!lastWasUnderscore) {
+                        out.append('_');
+                        lastWasUnderscore = true;
+                    }
+                } else {
+                    out.append(sanitized);
+                    lastWasUnderscore = false;
+                }
+            }
+            while (out.length() > key.length() + 1 && out.charAt(out.length() - 1) == '_') {
+                out.setLength(out.length() - 1);
+            }
+            return out.toString();
+        }
+
+        private static String randomValue(Random random) {
+            int length = random.nextInt(random.nextInt(10) == 0 ? 260 : 30);
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                char[] range = RANGES[random.nextInt(RANGES.length)];
+                sb.append((char) (range[0] + random.nextInt(range[1] - range[0] + 1)));
+            }
+            return sb.toString();
+        }
+
+        @Test
+        public void testMatchesReferenceImplementation() {
+            Random random = new Random(42);
+            for (int i = 0; i < 20000; i++) {
+                String key = KEYS[random.nextInt(KEYS.length)];
+                String value = randomValue(random);
+                String expected = referenceSanitizeTagPair(key, value);
+                Assert.assertEquals(value, expected, CommonUtils.computeTagPair(key, value));
+                // Twice, the second call is served by the cache
+                Assert.assertEquals(value, expected, CommonUtils.sanitizeTagPair(key, value));
+                Assert.assertEquals(value, expected, CommonUtils.sanitizeTagPair(key, value));
+            }
+        }
+
+        @Test
+        public void testClearSanitizedTagPairs() {
+            Assert.assertEquals("sample_label:foo", CommonUtils.sanitizeTagPair("sample_label", "Foo"));
+            Assert.assertTrue(CommonUtils.sanitizedTagPairCount() > 0);
+            CommonUtils.clearSanitizedTagPairs();
+            Assert.assertEquals(0, CommonUtils.sanitizedTagPairCount());
+            Assert.assertEquals("sample_label:foo", CommonUtils.sanitizeTagPair("sample_label", "Foo"));
+            Assert.assertEquals(1, CommonUtils.sanitizedTagPairCount());
+        }
+
+        @Test
+        public void testAllCharacters() {
+            for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+                String value = "a" + (char) c + "b";
+                Assert.assertEquals(Integer.toHexString(c), referenceSanitizeTagPair("t", value), CommonUtils.sanitizeTagPair("t", value));
+            }
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Enclosed.class)
+public class LabelNormalizerTest {
+
+    @RunWith(Parameterized.class)
+    public static class TemplatePathTest {
+
+        @Parameters(name = "\"{0}\" -> \"{1}\"")
+        public static Collection<Object[]> data() {
+            return Arrays.asList(new Object[][] {
+                { "", "" },
+                { "home", "home" },
+                { "GET /orders/81723", "GET /orders/{id}" },
+                { "/orders/81723/items/2", "/orders/{id}/items/{id}" },
+                { "/users/123e4567-e89b-12d3-a456-426614174000", "/users/{id}" },
+                { "/objects/507f1f77bcf86cd799439011", "/objects/{id}" },
+                { "/search?page=3&q=shoes", "/search?page={id}&q=shoes" },
+                { "/v2/orders", "/v2/orders" },
+                { "/decafbadcafebabe", "/decafbadcafebabe" },
+                { "/abc123", "/abc123" },
+                { "/orders/", "/orders/" },
+            });
+        }
+
+        private final String input;
+        private final String expected;
+
+        public TemplatePathTest(String input, String expected) {
+            this.input = input;
+            this.expected = expected;
+        }
+
+        @Test
+        public void testTemplatePath() {
+            Assert.assertEquals(expected, LabelNormalizer.templatePath(input));
+        }
+    }
+
+    public static class NormalizerTests {
+
+        @Test
+        public void testIdentity() {
+            String label = "GET /orders/1";
+            Assert.assertSame(label, LabelNormalizer.IDENTITY.normalize(label));
+            Assert.assertNull(LabelNormalizer.IDENTITY.normalize(null));
+        }
+
+        @Test
+        public void testRulesAppliedInOrder() {
+            List<LabelNormalizer.RewriteRule> rules = LabelNormalizer.parseRules("\\?.*=>;^(GET|POST) =>$1:");
+            LabelNormalizer normalizer = new LabelNormalizer(rules, false, 0, 100);
+            Assert.assertEquals("GET:/orders", normalizer.normalize("GET /orders?id=1"));
+        }
+
+        @Test
+        public void testRulesThenTemplatingThenTruncation() {
+            List<LabelNormalizer.RewriteRule> rules = LabelNormalizer.parseRules("^https?://[^/]+=>");
+            LabelNormalizer normalizer = new LabelNormalizer(rules, true, 12, 100);
+            Assert.assertEquals("/orders/{id}", normalizer.normalize("https://example.com/orders/42"));
+            Assert.assertEquals("/customers/{", normalizer.normalize("https://example.com/customers/42"));
+        }
+
+        @Test
+        public void testCacheIsBounded() {
+            LabelNormalizer normalizer = new LabelNormalizer(Collections.emptyList(), true, 0, 2);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals("/orders/{id}", normalizer.normalize("/orders/" + i));
+            }
+        }
+
+        @Test
+        public void testParseEmptyRules() {
+            Assert.assertTrue(LabelNormalizer.parseRules("").isEmpty());
+            Assert.assertTrue(LabelNormalizer.parseRules(" ; ").isEmpty());
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void testParseRuleWithoutReplacement() {
+            LabelNormalizer.parseRules("foo");
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void testParseRuleWithInvalidPattern() {
+            LabelNormalizer.parseRules("(foo=>bar");
+        }
+    }
+
+    public static class BoundedCacheTests {
+
+        @Test
+        public void testStopsInsertingWhenFull() {
+            BoundedCache<String, String> cache = new BoundedCache<>(2);
+            Assert.assertEquals("A", cache.get("a", String::toUpperCase));
+            Assert.assertEquals("B", cache.get("b", String::toUpperCase));
+            Assert.assertEquals("C", cache.get("c", String::toUpperCase));
+            Assert.assertEquals(2, cache.size());
+
+            cache.invalidate("a");
+            Assert.assertEquals("C", cache.get("c", String::toUpperCase));
+            Assert.assertEquals(2, cache.size());
+
+            cache.clear();
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/* Unless explicitly stated otherwise all files in this repository are licensed under the Apache License 2.0.
+ * This product includes software developed at Datadog (https://www.datadoghq.com/).
+ * Copyright 2026-present Datadog, Inc.
+ */
+
+package org.datadog.jmeter.plugins.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResponseCodeTaggerTest {
+
+    @Test
+    public void testExact() {
+        ResponseCodeTagger tagger = new ResponseCodeTagger(ResponseCodeTagger.Mode.EXACT, Collections.singleton("429"), 10);
+        Assert.assertArrayEquals(new String[] { "response_code:200" }, tagger.tags("200"));
+        Assert.assertArrayEquals(new String[] { "response_code:non_http_response_code:_java.net.sockettimeoutexception" },
+            tagger.tags("Non HTTP response code: java.net.SocketTimeoutException"));
+    }
+
+    @Test
+    public void testClass() {
+        ResponseCodeTagger tagger = new ResponseCodeTagger(ResponseCodeTagger.Mode.CLASS, new HashSet<>(Arrays.asList("429", "503")), 10);
+        Assert.assertArrayEquals(new String[] { "response_class:2xx" }, tagger.tags("200"));
+        Assert.assertArrayEquals(new String[] { "response_class:3xx" }, tagger.tags("302"));
+        Assert.assertArrayEquals(new String[] { "response_class:4xx" }, tagger.tags("404"));
+        Assert.assertArrayEquals(new String[] { "response_class:4xx", "response_code:429" }, tagger.tags("429"));
+        Assert.assertArrayEquals(new String[] { "response_class:5xx", "response_code:503" }, tagger.tags("503"));
+        Assert.assertArrayEquals(new String[] { "response_class:other" },
+            tagger.tags("Non HTTP response code: java.net.SocketTimeoutException"));
+    }
+
+    @Test
+    public void testResponseClass() {
+        for (String code : Arrays.asList("", "100", "600", "20", "2000", "2x0", "20 ", "OK", "٢٠٠")) {
+            Assert.assertEquals(code, ResponseCodeTagger.OTHER_CLASS, ResponseCodeTagger.responseClass(code));
+        }
+        Assert.assertEquals("2xx", ResponseCodeTagger.responseClass("299"));
+        Assert.assertEquals("5xx", ResponseCodeTagger.responseClass("500"));
+    }
+
+    @Test
+    public void testCached() {
+        ResponseCodeTagger tagger = new ResponseCodeTagger(ResponseCodeTagger.Mode.CLASS, Collections.emptySet(), 1);
+        Assert.assertSame(tagger.tags("200"), tagger.tags("200"));
+        // Beyond the cache size, the tags are still computed
+        Assert.assertArrayEquals(new String[] { "response_class:5xx" }, tagger.tags("500"));
+        Assert.assertArrayEquals(new String[] { "response_class:5xx" }, tagger.tags("500"));
+    }
+
+    @Test
+    public void testParseAllowList() {
+        Assert.assertEquals(new HashSet<>(Arrays.asList("429", "503")), ResponseCodeTagger.parseAllowList(" 429, ,503,"));
+        Assert.assertTrue(ResponseCodeTagger.parseAllowList("").isEmpty());
+    }
+}